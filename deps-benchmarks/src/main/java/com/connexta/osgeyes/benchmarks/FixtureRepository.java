@@ -0,0 +1,69 @@
+package com.connexta.osgeyes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * A small, local maven repository of OSGi bundles for the benchmarks to run against, made by the
+ * {@link RepositoryGenerator} with its default settings apart from the size. Since generation is
+ * deterministic it only happens once: later runs reuse the repository from the fixtures directory.
+ *
+ * <p>Fixtures are written to the {@code fixtures.dir} system property, or {@code
+ * target/benchmark-fixtures} by default.
+ */
+public class FixtureRepository {
+
+  /** The only version in a fixture repository. */
+  public static final String VERSION = "1.0.0";
+
+  private static final Path FIXTURES_DIR =
+      Paths.get(System.getProperty("fixtures.dir", "target/benchmark-fixtures"));
+
+  private static final String COMPLETE_MARKER = ".complete";
+
+  private final Path root;
+
+  private final RepositoryGenerator generator;
+
+  private FixtureRepository(Path root, RepositoryGenerator generator) {
+    this.root = root;
+    this.generator = generator;
+  }
+
+  /**
+   * Returns the fixture repository of the given size, generating it first if necessary.
+   *
+   * @param groups number of groups, each with its own aggregator pom.
+   * @param bundlesPerGroup number of bundles within each group.
+   * @return the repository.
+   * @throws IOException if the repository could not be written.
+   */
+  public static synchronized FixtureRepository of(int groups, int bundlesPerGroup)
+      throws IOException {
+    final Path root = FIXTURES_DIR.resolve("repo-" + groups + "x" + bundlesPerGroup);
+    final RepositoryGenerator generator =
+        new RepositoryGenerator().setGroups(groups).setBundlesPerGroup(bundlesPerGroup);
+    if (!Files.exists(root.resolve(COMPLETE_MARKER))) {
+      generator.generate(root);
+      Files.write(root.resolve(COMPLETE_MARKER), new byte[0]);
+    }
+    return new FixtureRepository(root, generator);
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  public int getBundleCount() {
+    return generator.getBundleCount();
+  }
+
+  /** @return the jar of every bundle in the repository. */
+  public List<File> getBundleJars() {
+    return generator.getBundleJars(root, VERSION);
+  }
+}
@@ -0,0 +1,192 @@
+package com.connexta.osgeyes.benchmarks;
+
+import clojure.java.api.Clojure;
+import clojure.lang.IFn;
+import com.connexta.osgeyes.index.IndexingApp;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The graph side of a draw: turning artifacts into edges, filtering edges with a selection, and
+ * building the graph of an export. Edges are built the way the graph builds them, by wiring the
+ * artifacts gathered from an {@link IndexingApp} opened on the fixture repository, and all but the
+ * graph are also run as one pipeline starting from the gather.
+ *
+ * <p>The benchmarks suffixed {@code Reference} measure the reference implementation instead, which
+ * parses the manifest text of the fixture bundles and matches the imports against the exports
+ * itself, for comparison. The manifests are read once during setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphPipelineBenchmark {
+
+  private static final String MANIFEST_NS = "com.connexta.osgeyes.graph.connectors.manifest";
+
+  private static final String QUERY_NS = "com.connexta.osgeyes.graph.query";
+
+  private static final String CSR_NS = "com.connexta.osgeyes.graph.csr";
+
+  private static final String CORE_NS = "com.connexta.osgeyes.graph.core";
+
+  @Param({"10"})
+  public int groups;
+
+  @Param({"50"})
+  public int bundlesPerGroup;
+
+  @Param({"[:node \"com.example.g0.*\" :type \"bundle/package\"]"})
+  public String selection;
+
+  private IndexingApp app;
+
+  private IFn gather;
+
+  private IFn parse;
+
+  private IFn toArtifacts;
+
+  private IFn edges;
+
+  private IFn referenceEdges;
+
+  private IFn select;
+
+  private IFn graph;
+
+  private List<String> manifests;
+
+  private Object selectionForm;
+
+  private Object artifacts;
+
+  private Object parsedArtifacts;
+
+  private Object allEdges;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final FixtureRepository fixture = FixtureRepository.of(groups, bundlesPerGroup);
+    app = IndexingApp.getInstance();
+    app.open(fixture.getRoot());
+
+    final IFn require = Clojure.var("clojure.core", "require");
+    require.invoke(Clojure.read(MANIFEST_NS));
+    require.invoke(Clojure.read(QUERY_NS));
+    require.invoke(Clojure.read(CSR_NS));
+    require.invoke(Clojure.read(CORE_NS));
+
+    // Keyed by root artifact id and symbolic name, from the OSGi headers parsed when indexing
+    gather = fn("(fn [g a v] (%s/create-artifact-map-bundles-only g a v))", CORE_NS);
+    edges = fn("(fn [as] (vec (%s/indexed-artifacts->edges as)))", MANIFEST_NS);
+    parse = fn("(fn [ms] (mapv %s/parse-content ms))", MANIFEST_NS);
+    // Keyed by symbolic name, the same way the graph keys artifacts
+    toArtifacts =
+        fn(
+            "(fn [ps] (into {} (map #(vector (str \"root/\" (:%s/Bundle-SymbolicName %%))"
+                + " {:manifest %%}) ps)))",
+            MANIFEST_NS);
+    referenceEdges = fn("(fn [as] (vec (%s/artifacts->edges as)))", MANIFEST_NS);
+    select = fn("(fn [sel es] (into [] (%s/selection->xform sel) es))", QUERY_NS);
+    // Only the structure is measured, so the nodes are described without any attributes
+    graph = fn("(fn [es as] (%s/graph es (map #(vector (key %%) {}) as)))", CSR_NS);
+
+    manifests = new ArrayList<>();
+    for (File jar : fixture.getBundleJars()) {
+      manifests.add(readManifest(jar));
+    }
+    selectionForm = Clojure.read(selection);
+    artifacts = gatherArtifacts();
+    parsedArtifacts = toArtifacts.invoke(parse.invoke(manifests));
+    allEdges = edges.invoke(artifacts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    app.close();
+  }
+
+  @Benchmark
+  public Object buildEdges() {
+    return edges.invoke(artifacts);
+  }
+
+  @Benchmark
+  public Object parseManifestsReference() {
+    return parse.invoke(manifests);
+  }
+
+  @Benchmark
+  public Object buildEdgesReference() {
+    return referenceEdges.invoke(parsedArtifacts);
+  }
+
+  @Benchmark
+  public Object selectEdges() {
+    return select.invoke(selectionForm, allEdges);
+  }
+
+  @Benchmark
+  public Object buildGraph() {
+    return graph.invoke(allEdges, artifacts);
+  }
+
+  @Benchmark
+  public Object fullPipeline() {
+    return select.invoke(selectionForm, edges.invoke(gatherArtifacts()));
+  }
+
+  @Benchmark
+  public Object fullPipelineReference() {
+    return select.invoke(
+        selectionForm, referenceEdges.invoke(toArtifacts.invoke(parse.invoke(manifests))));
+  }
+
+  private Object gatherArtifacts() {
+    return gather.invoke(
+        RepositoryGenerator.ROOT_GROUP_ID,
+        RepositoryGenerator.ROOT_ARTIFACT_ID,
+        FixtureRepository.VERSION);
+  }
+
+  private static IFn fn(String format, Object... args) {
+    final IFn eval = Clojure.var("clojure.core", "eval");
+    return (IFn) eval.invoke(Clojure.read(String.format(format, args)));
+  }
+
+  private static String readManifest(File file) throws IOException {
+    try (final JarFile jar = new JarFile(file);
+        final InputStream in = jar.getInputStream(jar.getEntry(JarFile.MANIFEST_NAME))) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.connexta.osgeyes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A single {@link IndexCreator#populateArtifactInfo(ArtifactContext)} call per index creator, for
+ * one fixture bundle at a time. Every call gets a fresh artifact context, the same as during a
+ * scan, so creators that read the jar pay for that read; the jar creators share one read per
+ * context.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexCreatorBenchmark {
+
+  @Param({
+    "min",
+    "deps/mvn-hierarchy",
+    "deps/jar-manifest",
+    "deps/jar-packages",
+    "deps/osgi-headers"
+  })
+  public String creatorId;
+
+  private IndexerComponents components;
+
+  private IndexCreator creator;
+
+  private List<File> jars;
+
+  private int next = 0;
+
+  private ArtifactContext artifactContext;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final FixtureRepository repository = FixtureRepository.of(4, 25);
+    components = new IndexerComponents(repository);
+    creator =
+        components.getIndexCreators().stream()
+            .filter(c -> c.getId().equals(creatorId))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown creator " + creatorId));
+    jars = repository.getBundleJars();
+  }
+
+  @Setup(Level.Invocation)
+  public void nextArtifact() throws IOException {
+    final File jar = jars.get(next);
+    next = (next + 1) % jars.size();
+    artifactContext =
+        components.getContextProducer().getArtifactContext(components.getIndexingContext(), jar);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    components.close();
+  }
+
+  @Benchmark
+  public ArtifactInfo populate() throws IOException {
+    creator.populateArtifactInfo(artifactContext);
+    return artifactContext.getArtifactInfo();
+  }
+}
@@ -0,0 +1,93 @@
+package com.connexta.osgeyes.benchmarks;
+
+import com.connexta.osgeyes.index.JarManifestIndexCreator;
+import com.connexta.osgeyes.index.JarPackagesIndexCreator;
+import com.connexta.osgeyes.index.MvnHierarchyIndexCreator;
+import com.connexta.osgeyes.index.OsgiHeadersIndexCreator;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.index.ArtifactContextProducer;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.PlexusContainerException;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+
+/**
+ * The maven-indexer components the lower level benchmarks need, set up the same way {@link
+ * com.connexta.osgeyes.index.IndexingApp} sets them up, along with an indexing context over a
+ * fixture repository. The index itself goes to a temporary directory that is deleted on close, so
+ * benchmarks never see the index of a previous run.
+ */
+class IndexerComponents implements Closeable {
+
+  private final PlexusContainer container;
+
+  private final Indexer indexer;
+
+  private final ArtifactContextProducer contextProducer;
+
+  private final List<IndexCreator> indexCreators;
+
+  private final IndexingContext indexingContext;
+
+  IndexerComponents(FixtureRepository repository)
+      throws PlexusContainerException, ComponentLookupException, IOException {
+    final DefaultContainerConfiguration config = new DefaultContainerConfiguration();
+    config.setClassPathScanning(PlexusConstants.SCANNING_INDEX);
+    this.container = new DefaultPlexusContainer(config);
+    this.indexer = container.lookup(Indexer.class);
+    this.contextProducer = container.lookup(ArtifactContextProducer.class);
+
+    final List<IndexCreator> creators = new ArrayList<>();
+    creators.add(container.lookup(IndexCreator.class, "min"));
+    creators.add(new MvnHierarchyIndexCreator());
+    creators.add(new JarManifestIndexCreator());
+    creators.add(new JarPackagesIndexCreator());
+    creators.add(new OsgiHeadersIndexCreator());
+    this.indexCreators = Collections.unmodifiableList(creators);
+
+    final File indexDir = Files.createTempDirectory("osgeyes-benchmark-index").toFile();
+    this.indexingContext =
+        indexer.createIndexingContext(
+            "benchmark",
+            "benchmark",
+            repository.getRoot().toFile(),
+            indexDir,
+            null,
+            null,
+            true,
+            true,
+            indexCreators);
+  }
+
+  ArtifactContextProducer getContextProducer() {
+    return contextProducer;
+  }
+
+  List<IndexCreator> getIndexCreators() {
+    return indexCreators;
+  }
+
+  IndexingContext getIndexingContext() {
+    return indexingContext;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      indexer.closeIndexingContext(indexingContext, true);
+    } finally {
+      container.dispose();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.connexta.osgeyes.benchmarks;
+
+import com.connexta.osgeyes.index.IndexingApp;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.index.ArtifactInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries against an open {@link IndexingApp}, indexed from a fixture repository during setup. The
+ * index is kept in the fixture repository like any other, so only the first trial pays for the
+ * full scan.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexingAppBenchmark {
+
+  @Param({"10"})
+  public int groups;
+
+  @Param({"50"})
+  public int bundlesPerGroup;
+
+  private IndexingApp app;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    app = IndexingApp.getInstance();
+    app.open(FixtureRepository.of(groups, bundlesPerGroup).getRoot());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    app.close();
+  }
+
+  @Benchmark
+  public Collection<ArtifactInfo> gatherHierarchy() throws IOException {
+    return app.gatherHierarchy(
+        RepositoryGenerator.ROOT_GROUP_ID,
+        RepositoryGenerator.ROOT_ARTIFACT_ID,
+        FixtureRepository.VERSION);
+  }
+
+  @Benchmark
+  public Map<String, List<ArtifactInfo>> searchPackages() throws IOException {
+    return app.searchPackages(RepositoryGenerator.apiPackageSearch());
+  }
+}
@@ -0,0 +1,465 @@
+package com.connexta.osgeyes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import javax.annotation.Nullable;
+
+/**
+ * Writes a synthetic local maven repository of OSGi bundles, laid out the same way {@code mvn
+ * install} would lay it out, for load testing and profiling the indexer and the graph at scale.
+ * Generation is deterministic: the same settings always produce the same repository, byte for
+ * byte.
+ *
+ * <p>Every version of the repository is a single hierarchy. A root aggregator pom is the parent of
+ * one aggregator per group, which is the parent of that group's bundles, optionally through a level
+ * of smaller aggregators. Each bundle exports an api and an impl package and some services, and
+ * imports the api packages and services of other bundles, with the usual attributes and
+ * directives.
+ *
+ * <p>Can be run from the command line, see {@link #main(String[])}.
+ */
+public class RepositoryGenerator {
+
+  public static final String ROOT_GROUP_ID = "com.example";
+
+  public static final String ROOT_ARTIFACT_ID = "root";
+
+  private static final String SNAPSHOT = "-SNAPSHOT";
+
+  // Fixed so the jars are the same no matter when or where they were written. Zip entries store
+  // the local date and time, converted with the default time zone, so the same instant would be
+  // stored differently in every zone; the local date and time is what has to be fixed instead
+  private static final long ENTRY_TIME =
+      LocalDateTime.of(2000, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+  private static final byte[] CLASS_BYTES = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+
+  private int groups = 10;
+
+  private int bundlesPerGroup = 50;
+
+  private int bundlesPerAggregator = 0;
+
+  private int releases = 1;
+
+  private boolean snapshot = false;
+
+  private int importsPerBundle = 8;
+
+  private int servicesPerBundle = 1;
+
+  private int classesPerPackage = 10;
+
+  private long seed = 42L;
+
+  /** @param groups number of groups, each with its own aggregator pom. */
+  public RepositoryGenerator setGroups(int groups) {
+    this.groups = atLeast(1, groups, "groups");
+    return this;
+  }
+
+  /** @param bundlesPerGroup number of bundles within each group. */
+  public RepositoryGenerator setBundlesPerGroup(int bundlesPerGroup) {
+    this.bundlesPerGroup = atLeast(1, bundlesPerGroup, "bundles per group");
+    return this;
+  }
+
+  /**
+   * @param bundlesPerAggregator if positive, the bundles of a group are split across aggregators
+   *     of this many bundles each, between the group aggregator and the bundles; zero makes the
+   *     group aggregator the direct parent of its bundles.
+   */
+  public RepositoryGenerator setBundlesPerAggregator(int bundlesPerAggregator) {
+    this.bundlesPerAggregator = atLeast(0, bundlesPerAggregator, "bundles per aggregator");
+    return this;
+  }
+
+  /**
+   * @param releases number of release versions, {@code 1.0.0}, {@code 1.1.0}, and so on. Can only
+   *     be zero with a snapshot.
+   */
+  public RepositoryGenerator setReleases(int releases) {
+    this.releases = atLeast(0, releases, "releases");
+    return this;
+  }
+
+  /** @param snapshot whether to add a snapshot of the version following the last release. */
+  public RepositoryGenerator setSnapshot(boolean snapshot) {
+    this.snapshot = snapshot;
+    return this;
+  }
+
+  /** @param importsPerBundle number of other bundles whose api package each bundle imports. */
+  public RepositoryGenerator setImportsPerBundle(int importsPerBundle) {
+    this.importsPerBundle = atLeast(0, importsPerBundle, "imports per bundle");
+    return this;
+  }
+
+  /**
+   * @param servicesPerBundle number of services each bundle exports, and number of services of
+   *     its imported bundles it imports.
+   */
+  public RepositoryGenerator setServicesPerBundle(int servicesPerBundle) {
+    this.servicesPerBundle = atLeast(0, servicesPerBundle, "services per bundle");
+    return this;
+  }
+
+  /** @param classesPerPackage number of class entries in each package of each bundle. */
+  public RepositoryGenerator setClassesPerPackage(int classesPerPackage) {
+    this.classesPerPackage = atLeast(0, classesPerPackage, "classes per package");
+    return this;
+  }
+
+  /** @param seed the seed that decides which bundles import which. */
+  public RepositoryGenerator setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  public int getBundleCount() {
+    return groups * bundlesPerGroup;
+  }
+
+  /**
+   * @return every version that gets generated, releases first, in order.
+   * @throws IllegalArgumentException if there are neither releases nor a snapshot to generate.
+   */
+  public List<String> getVersions() {
+    if (releases == 0 && !snapshot) {
+      throw new IllegalArgumentException("Expected at least one release or a snapshot");
+    }
+    final List<String> versions = new ArrayList<>();
+    for (int i = 0; i < releases; i++) {
+      versions.add("1." + i + ".0");
+    }
+    if (snapshot) {
+      versions.add("1." + releases + ".0" + SNAPSHOT);
+    }
+    return versions;
+  }
+
+  /**
+   * @param root the root of the repository.
+   * @param version one of the generated versions.
+   * @return the jar of every bundle of that version.
+   */
+  public List<File> getBundleJars(Path root, String version) {
+    final List<File> jars = new ArrayList<>();
+    for (int g = 0; g < groups; g++) {
+      for (int b = 0; b < bundlesPerGroup; b++) {
+        jars.add(artifactPath(root, groupId(g), bundleId(g, b), version, "jar").toFile());
+      }
+    }
+    return jars;
+  }
+
+  /** @return a package search that matches the api package of every bundle. */
+  public static String apiPackageSearch() {
+    return ROOT_GROUP_ID + ".*.api";
+  }
+
+  /**
+   * Writes every version of the repository, replacing any artifacts of the same name.
+   *
+   * @param root the root of the repository, created if necessary.
+   * @throws IOException if the repository could not be written.
+   * @throws IllegalArgumentException if there are neither releases nor a snapshot to generate.
+   */
+  public void generate(Path root) throws IOException {
+    for (String version : getVersions()) {
+      generate(root, version);
+    }
+  }
+
+  private void generate(Path root, String version) throws IOException {
+    // Same seed per version so bundles import the same packages in every version
+    final Random random = new Random(seed);
+
+    final List<String> groupAggregatorIds = new ArrayList<>();
+    for (int g = 0; g < groups; g++) {
+      groupAggregatorIds.add(aggregatorId(g));
+    }
+    writePom(root, ROOT_GROUP_ID, ROOT_ARTIFACT_ID, version, "pom", null, groupAggregatorIds);
+
+    for (int g = 0; g < groups; g++) {
+      final String groupId = groupId(g);
+      final List<String> modules = new ArrayList<>();
+      final int perAggregator = bundlesPerAggregator > 0 ? bundlesPerAggregator : bundlesPerGroup;
+      for (int first = 0; first < bundlesPerGroup; first += perAggregator) {
+        final int last = Math.min(first + perAggregator, bundlesPerGroup);
+        final List<String> bundleIds = new ArrayList<>();
+        for (int b = first; b < last; b++) {
+          bundleIds.add(bundleId(g, b));
+        }
+        if (bundlesPerAggregator > 0) {
+          final String subAggregatorId = subAggregatorId(g, first / perAggregator);
+          modules.add(subAggregatorId);
+          writePom(root, groupId, subAggregatorId, version, "pom", aggregatorId(g), bundleIds);
+          writeBundles(root, g, first, last, version, subAggregatorId, random);
+        } else {
+          modules.addAll(bundleIds);
+          writeBundles(root, g, first, last, version, aggregatorId(g), random);
+        }
+      }
+      writePom(root, groupId, aggregatorId(g), version, "pom", ROOT_ARTIFACT_ID, modules);
+    }
+  }
+
+  private void writeBundles(
+      Path root, int g, int first, int last, String version, String parentId, Random random)
+      throws IOException {
+    for (int b = first; b < last; b++) {
+      writePom(
+          root, groupId(g), bundleId(g, b), version, "bundle", parentId, Collections.emptyList());
+      writeBundle(root, g, b, version, random);
+    }
+  }
+
+  /** Parents are always in the same group as their children, except for the root. */
+  private void writePom(
+      Path root,
+      String groupId,
+      String artifactId,
+      String version,
+      String packaging,
+      @Nullable String parentArtifactId,
+      List<String> modules)
+      throws IOException {
+    final StringBuilder pom = new StringBuilder();
+    pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+    pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+    if (parentArtifactId != null) {
+      final String parentGroupId =
+          ROOT_ARTIFACT_ID.equals(parentArtifactId) ? ROOT_GROUP_ID : groupId;
+      pom.append(
+          String.format(
+              "  <parent>\n"
+                  + "    <groupId>%s</groupId>\n"
+                  + "    <artifactId>%s</artifactId>\n"
+                  + "    <version>%s</version>\n"
+                  + "  </parent>\n",
+              parentGroupId, parentArtifactId, version));
+    }
+    pom.append(
+        String.format(
+            "  <groupId>%s</groupId>\n"
+                + "  <artifactId>%s</artifactId>\n"
+                + "  <version>%s</version>\n"
+                + "  <packaging>%s</packaging>\n",
+            groupId, artifactId, version, packaging));
+    if (!modules.isEmpty()) {
+      pom.append("  <modules>\n");
+      for (String module : modules) {
+        pom.append("    <module>").append(module).append("</module>\n");
+      }
+      pom.append("  </modules>\n");
+    }
+    pom.append("</project>\n");
+
+    final Path path = artifactPath(root, groupId, artifactId, version, "pom");
+    Files.createDirectories(path.getParent());
+    Files.write(path, pom.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void writeBundle(Path root, int g, int b, String version, Random random)
+      throws IOException {
+    final String bundleId = bundleId(g, b);
+    final String api = packageName(g, b, "api");
+    final String impl = packageName(g, b, "impl");
+    final String osgiVersion = version.replace(SNAPSHOT, ".SNAPSHOT");
+    final String packageVersion = version.replace(SNAPSHOT, "");
+    final String range = "\"[1." + packageVersion.split("\\.")[1] + ",2)\"";
+
+    final Set<Integer> imported = new LinkedHashSet<>();
+    final int importCount = Math.min(importsPerBundle, getBundleCount() - 1);
+    while (imported.size() < importCount) {
+      final int other = random.nextInt(getBundleCount());
+      if (other != g * bundlesPerGroup + b) {
+        imported.add(other);
+      }
+    }
+
+    final List<String> importPackages = new ArrayList<>();
+    final List<String> importServices = new ArrayList<>();
+    importPackages.add("org.osgi.framework;version=\"[1.8,2)\"");
+    for (int other : imported) {
+      final String otherApi = packageName(other / bundlesPerGroup, other % bundlesPerGroup, "api");
+      importPackages.add(otherApi + ";version=" + range);
+      if (importServices.size() < servicesPerBundle) {
+        importServices.add(otherApi + ".Service0;multiple:=false");
+      }
+    }
+
+    final List<String> exportServices = new ArrayList<>();
+    for (int s = 0; s < servicesPerBundle; s++) {
+      exportServices.add(
+          api + ".Service" + s + ";osgi.service.blueprint.compname=" + bundleId + "-" + s);
+    }
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Bundle-ManifestVersion", "2");
+    attributes.putValue("Bundle-SymbolicName", bundleId);
+    attributes.putValue("Bundle-Name", "Fixture :: " + groupId(g) + " :: " + bundleId);
+    attributes.putValue("Bundle-Version", osgiVersion);
+    attributes.putValue("Created-By", "OSG-Eyes Benchmarks");
+    attributes.putValue("Import-Package", String.join(",", importPackages));
+    attributes.putValue(
+        "Export-Package",
+        String.format(
+            "%s;version=\"%s\",%s;version=\"%s\";uses:=\"%s\"",
+            api, packageVersion, impl, packageVersion, api));
+    if (!importServices.isEmpty()) {
+      attributes.putValue("Import-Service", String.join(",", importServices));
+    }
+    if (!exportServices.isEmpty()) {
+      attributes.putValue("Export-Service", String.join(",", exportServices));
+    }
+
+    final Path path = artifactPath(root, groupId(g), bundleId, version, "jar");
+    try (final OutputStream out = Files.newOutputStream(path);
+        final JarOutputStream jar = new JarOutputStream(out)) {
+      final JarEntry manifestEntry = new JarEntry(JarFile.MANIFEST_NAME);
+      manifestEntry.setTime(ENTRY_TIME);
+      jar.putNextEntry(manifestEntry);
+      manifest.write(jar);
+      jar.closeEntry();
+      for (int s = 0; s < servicesPerBundle; s++) {
+        writeClass(jar, api, "Service" + s);
+      }
+      for (String pkg : new String[] {api, impl}) {
+        for (int c = 0; c < classesPerPackage; c++) {
+          writeClass(jar, pkg, "Type" + c);
+        }
+      }
+    }
+  }
+
+  private static void writeClass(JarOutputStream jar, String pkg, String name) throws IOException {
+    final JarEntry entry = new JarEntry(pkg.replace('.', '/') + "/" + name + ".class");
+    entry.setTime(ENTRY_TIME);
+    jar.putNextEntry(entry);
+    jar.write(CLASS_BYTES);
+    jar.closeEntry();
+  }
+
+  private static Path artifactPath(
+      Path root, String groupId, String artifactId, String version, String extension) {
+    return root.resolve(groupId.replace('.', '/'))
+        .resolve(artifactId)
+        .resolve(version)
+        .resolve(artifactId + "-" + version + "." + extension);
+  }
+
+  private static String groupId(int g) {
+    return ROOT_GROUP_ID + ".g" + g;
+  }
+
+  private static String aggregatorId(int g) {
+    return "g" + g;
+  }
+
+  private static String subAggregatorId(int g, int a) {
+    return "g" + g + "-modules-" + a;
+  }
+
+  private static String bundleId(int g, int b) {
+    return "g" + g + "-bundle-" + b;
+  }
+
+  private static String packageName(int g, int b, String suffix) {
+    return ROOT_GROUP_ID + ".g" + g + ".b" + b + "." + suffix;
+  }
+
+  private static int atLeast(int min, int value, String name) {
+    if (value < min) {
+      throw new IllegalArgumentException(
+          "Number of " + name + " should be at least " + min + ", but was " + value);
+    }
+    return value;
+  }
+
+  /**
+   * Generates a repository from the command line. The last argument is the directory to write the
+   * repository to, every other argument is an option followed by its value:
+   *
+   * <pre>
+   *   --groups 10 --bundles-per-group 50 --bundles-per-aggregator 0 --releases 1 --snapshot false
+   *   --imports-per-bundle 8 --services-per-bundle 1 --classes-per-package 10 --seed 42
+   * </pre>
+   *
+   * <p>The values above are the defaults.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0 || args.length % 2 == 0) {
+      throw new IllegalArgumentException(
+          "Expected options and their values followed by the repository directory");
+    }
+    final RepositoryGenerator generator = new RepositoryGenerator();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      final String value = args[i + 1];
+      switch (args[i]) {
+        case "--groups":
+          generator.setGroups(Integer.parseInt(value));
+          break;
+        case "--bundles-per-group":
+          generator.setBundlesPerGroup(Integer.parseInt(value));
+          break;
+        case "--bundles-per-aggregator":
+          generator.setBundlesPerAggregator(Integer.parseInt(value));
+          break;
+        case "--releases":
+          generator.setReleases(Integer.parseInt(value));
+          break;
+        case "--snapshot":
+          generator.setSnapshot(Boolean.parseBoolean(value));
+          break;
+        case "--imports-per-bundle":
+          generator.setImportsPerBundle(Integer.parseInt(value));
+          break;
+        case "--services-per-bundle":
+          generator.setServicesPerBundle(Integer.parseInt(value));
+          break;
+        case "--classes-per-package":
+          generator.setClassesPerPackage(Integer.parseInt(value));
+          break;
+        case "--seed":
+          generator.setSeed(Long.parseLong(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    final Path root = Paths.get(args[args.length - 1]);
+    final long start = System.currentTimeMillis();
+    generator.generate(root);
+    System.out.println(
+        String.format(
+            "Generated %d bundles in each of %s under %s in %d ms",
+            generator.getBundleCount(),
+            generator.getVersions(),
+            root.toAbsolutePath(),
+            System.currentTimeMillis() - start));
+  }
+}
@@ -0,0 +1,94 @@
+package com.connexta.osgeyes.benchmarks;
+
+import com.connexta.osgeyes.index.RepositoryReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactScanningListener;
+import org.apache.maven.index.ScanningRequest;
+import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.context.IndexingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full scans of a fixture repository with {@link RepositoryReader}, including every index creator
+ * populating every artifact, but without writing to the index, so the numbers are about reading
+ * the repository and not about Lucene.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryScanBenchmark {
+
+  @Param({"10"})
+  public int groups;
+
+  @Param({"50"})
+  public int bundlesPerGroup;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private IndexerComponents components;
+
+  private RepositoryReader reader;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    components = new IndexerComponents(FixtureRepository.of(groups, bundlesPerGroup));
+    reader = new RepositoryReader(components.getContextProducer(), threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    components.close();
+  }
+
+  @Benchmark
+  public ScanningResult scan(Blackhole blackhole) {
+    return reader.scan(
+        new ScanningRequest(components.getIndexingContext(), new ConsumingListener(blackhole)));
+  }
+
+  /** Hands every discovered artifact to the blackhole instead of the index. */
+  private static class ConsumingListener implements ArtifactScanningListener {
+
+    private final Blackhole blackhole;
+
+    private ConsumingListener(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void scanningStarted(IndexingContext context) {}
+
+    @Override
+    public void scanningFinished(IndexingContext context, ScanningResult result) {}
+
+    @Override
+    public void artifactError(ArtifactContext ac, Exception e) {
+      throw new IllegalStateException("Could not scan " + ac.getArtifact(), e);
+    }
+
+    @Override
+    public void artifactDiscovered(ArtifactContext ac) {
+      blackhole.consume(ac.getArtifactInfo());
+    }
+  }
+}
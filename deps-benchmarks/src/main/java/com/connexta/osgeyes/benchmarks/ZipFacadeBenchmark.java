@@ -0,0 +1,49 @@
+package com.connexta.osgeyes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.index.util.zip.ZipFacade;
+import org.apache.maven.index.util.zip.ZipHandle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Opening and closing fixture jars through {@link ZipFacade}, as every jar creator does. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipFacadeBenchmark {
+
+  private List<File> jars;
+
+  private int next = 0;
+
+  @Setup
+  public void setUp() throws IOException {
+    jars = FixtureRepository.of(4, 25).getBundleJars();
+  }
+
+  @Benchmark
+  public boolean openAndClose() throws IOException {
+    final File jar = jars.get(next);
+    next = (next + 1) % jars.size();
+    final ZipHandle handle = ZipFacade.getZipHandle(jar);
+    try {
+      return handle.hasEntry("META-INF/MANIFEST.MF");
+    } finally {
+      ZipFacade.close(handle);
+    }
+  }
+}
@@ -55,8 +55,14 @@
 (defn- get-edge-attrs [g]
   (->> g
        edges
-       (map #(uber/edge-with-attrs g %))
-       (map #(last %))))
+       (map #(assoc (attrs g %) :from (src %) :to (dest %)))))
+
+(defn- count-edges-of-type
+  "Number of edges of graph g with the given type attribute."
+  [type g]
+  (->> (edges g)
+       (filter #(= type (attr g % :type)))
+       (count)))
 
 (defn- get-diffable-string-seq []
   (->> test-version
@@ -110,16 +116,12 @@
    "test-package-edge-count" [4126 (->> test-version
                                         (graph/create-artifact-map-bundles-only "ddf" "ddf")
                                         (graph/create-graph-with-attrs)
-                                        (filter-graph-edges #(= "bundle/package" (:type %)))
-                                        (edges)
-                                        (count))]
+                                        (count-edges-of-type "bundle/package"))]
 
    "test-service-edge-count" [335 (->> test-version
                                        (graph/create-artifact-map-bundles-only "ddf" "ddf")
                                        (graph/create-graph-with-attrs)
-                                       (filter-graph-edges #(= "bundle/service" (:type %)))
-                                       (edges)
-                                       (count))]})
+                                       (count-edges-of-type "bundle/service"))]})
 
 ;; The following optional stats / notes were asserted in an .m2 of the following: DDF 2.19.5,
 ;; 2.19.14, 2.19.17-SNAPSHOT, 2.26.1, and 2.27.0-SNAPSHOT. While running these, YMMV if the .m2
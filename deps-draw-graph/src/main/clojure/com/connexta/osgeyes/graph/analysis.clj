@@ -0,0 +1,78 @@
+(ns com.connexta.osgeyes.graph.analysis
+
+  "Transitive questions about a list of edges, answered with GraphAnalysis: what a bundle depends
+  on through any number of edges, what depends on it, which bundles form cycles, and which layer
+  each bundle sits in. Edges point from the importer to the exporter, so the dependencies of a
+  bundle are the bundles it can reach and its dependents are the bundles that can reach it.
+
+  Nodes are picked with a regex that has to match the entire node name, like a :node selection.
+  When several nodes match, the results are combined and the matched nodes are left out."
+
+  (:require [com.connexta.osgeyes.graph.csr :as csr]
+            [loom.graph :as lg])
+  (:import (com.connexta.osgeyes.graph CsrGraph GraphAnalysis)
+           (java.util BitSet)))
+
+(defn analyze
+  "Analyzes the graph of the edges, see the ns docs."
+  [edges]
+  (GraphAnalysis/analyze (csr/graph edges [])))
+
+(defn- graph-of ^CsrGraph [^GraphAnalysis analysis]
+  (.getGraph analysis))
+
+(defn- matching-ids
+  "Ids of the nodes whose names match the regex."
+  [analysis node-regex]
+  (let [g (graph-of analysis)
+        pattern (re-pattern node-regex)]
+    (filterv #(re-matches pattern (.getName g %)) (range (.getNodeCount g)))))
+
+(defn- bits->ids [^BitSet bits]
+  (iterator-seq (.iterator (.stream bits))))
+
+(defn- related
+  "Combined dependencies or dependents of the matching nodes, as node maps ordered by layer.
+  Nodes with an edge to or from one of the matching nodes are marked :direct?."
+  [^GraphAnalysis analysis node-regex transitive neighbors]
+  (let [g (graph-of analysis)
+        ids (matching-ids analysis node-regex)
+        matched (mapv #(.getName g %) ids)
+        direct (set (mapcat #(neighbors g %) matched))]
+    {:matched matched
+     :nodes   (->> (bits->ids (transitive analysis (int-array ids)))
+                   (map #(let [node (.getName g %)]
+                           {:node    node
+                            :layer   (.getLayer analysis %)
+                            :direct? (contains? direct node)}))
+                   (sort-by (juxt :layer :node)))}))
+
+(defn dependencies
+  "Every node that the nodes matching node-regex depend on, directly or not:
+  {:matched [node-name ...] :nodes [{:node node-name :layer 0 :direct? true} ...]}"
+  [analysis node-regex]
+  (related analysis node-regex #(.getDependencies ^GraphAnalysis %1 ^ints %2) lg/successors))
+
+(defn dependents
+  "Every node that depends on the nodes matching node-regex, directly or not, in the same form
+  as (dependencies)."
+  [analysis node-regex]
+  (related analysis node-regex #(.getDependents ^GraphAnalysis %1 ^ints %2) lg/predecessors))
+
+(defn cycles
+  "Names of the nodes of every cycle, largest cycle first."
+  [^GraphAnalysis analysis]
+  (let [g (graph-of analysis)]
+    (mapv (fn [ids] (mapv #(.getName g %) ids)) (.getCycles analysis))))
+
+(defn layers
+  "Every node with its layer, ordered by layer. Layer zero holds the nodes without dependencies,
+  and every other node sits one layer above its highest dependency. The nodes of a cycle share
+  a layer and are marked :cycle?."
+  [^GraphAnalysis analysis]
+  (let [g (graph-of analysis)]
+    (->> (range (.getNodeCount g))
+         (map #(hash-map :node (.getName g %)
+                         :layer (.getLayer analysis %)
+                         :cycle? (.isCyclic analysis %)))
+         (sort-by (juxt :layer :node)))))
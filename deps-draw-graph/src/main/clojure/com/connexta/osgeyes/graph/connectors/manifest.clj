@@ -23,8 +23,10 @@
   data."
 
   (:require [clojure.string :as str]
-            [com.connexta.osgeyes.graph.env :as env])
-  (:import (java.io StringReader BufferedReader)))
+            [com.connexta.osgeyes.graph.env :as env]
+            [com.connexta.osgeyes.index.core :as index])
+  (:import (com.connexta.osgeyes.index ManifestParser)
+           (java.util List)))
 
 (def ^:private namespace-name (.toString *ns*))
 
@@ -73,7 +75,9 @@
 ;; ----------------------------------------------------------------------
 ;; # Manifest Graph Assembly
 ;;
-;; Call chain for transforming parsed entities into a collection of edges.
+;; Call chain for transforming parsed entities into a collection of edges. No longer used by the
+;; graph, which wires bundles through the index below, but kept as the reference implementation
+;; that the index-backed edges are tested and benchmarked against.
 ;;
 
 (defn- multimap-invert
@@ -130,7 +134,10 @@
   "Given a collection of parsed manifests, pull out the pieces of data the manifest can
   operate on and generate a normalized list of dependency graph edges. The definition
   of an edge is:
-  {:from \"qual/node\" :to \"qual/node\" :cause \"thing.that.caused.connection\" :type \"type\"}."
+  {:from \"qual/node\" :to \"qual/node\" :cause \"thing.that.caused.connection\" :type \"type\"}.
+
+  Reference implementation of indexed-artifacts->edges, which the graph uses instead. Only the
+  last exporter of a package is wired here, while the index wires every one of them."
   [artifacts]
   (let [manifests (map #(vector (first %) (:manifest (last %))) artifacts)]
     (flatten
@@ -144,110 +151,45 @@
          (extract-attr ::Export-Service manifests))])))
 
 ;; ----------------------------------------------------------------------
-;; # Manifest Attribute Parsing
-
-(def ^:private package-or-class-matcher
-  (re-pattern
-    (str
-      ;; match some root package
-      "([a-zA-Z]+)"
-      ;; followed by one or more subpackages
-      "(\\.[a-zA-Z0-9_]+)+"
-      ;; and the entire matched package must be followed by a semicolon
-      "(?=;)")))
-
-(defn- handle-basic-csv [[k v]]
-  [k (apply list (str/split v #","))])
-
-(defn- handle-osgi-packages-and-classes [[k v]]
-  [k (map first (re-seq package-or-class-matcher v))])
-
-(defn- handle-bundle-symbolic-name [[k v]]
-  [k (first (str/split v #";"))])
-
-(defmulti ^:private parse-attr
-          "Parses the manfiest attribute value according to its name. Expected
-          input is a size-2 vector representing the key-value pair. Returns a
-          size-2 vector with the value transformed appropriately."
-          #(first %))
-
-(defmethod ^:private parse-attr :default [attr] attr)
-(defmethod ^:private parse-attr ::Bundle-SymbolicName [attr] (handle-bundle-symbolic-name attr))
-
-(defmethod ^:private parse-attr ::Bundle-Blueprint [attr] (handle-basic-csv attr))
-(defmethod ^:private parse-attr ::Embed-Dependency [attr] (handle-basic-csv attr))
-(defmethod ^:private parse-attr ::Embedded-Artifacts [attr] (handle-basic-csv attr))
-(defmethod ^:private parse-attr ::Conditional-Package [attr] (handle-basic-csv attr))
+;; # Index-backed Manifest Graph Assembly
+;;
+;; Same edges as above, but the imports are matched against the exports by the indexer, which
+;; keeps the export lookup around between calls and wires an import to every exporter of it.
+;;
 
-(defmethod ^:private parse-attr ::Import-Package [attr] (handle-osgi-packages-and-classes attr))
-(defmethod ^:private parse-attr ::Export-Package [attr] (handle-osgi-packages-and-classes attr))
-(defmethod ^:private parse-attr ::Import-Service [attr] (handle-osgi-packages-and-classes attr))
-(defmethod ^:private parse-attr ::Export-Service [attr] (handle-osgi-packages-and-classes attr))
+(defn indexed-artifacts->edges
+  "Given a collection of artifacts gathered from the index, generate the same normalized list of
+  dependency graph edges as artifacts->edges, except that an import with several exporters
+  produces an edge to each one of them."
+  [artifacts]
+  (let [uinfo->node (into {} (map (fn [[node artifact]] [(get-in artifact [:maven :uinfo]) node])
+                                  artifacts))]
+    (->> (index/wire-artifacts (map #(:maven (last %)) artifacts))
+         (map #(assoc % :from (uinfo->node (:from %)) :to (uinfo->node (:to %)))))))
 
 ;; ----------------------------------------------------------------------
 ;; # Manifest File Parsing
 ;;
-;; Call chain for turning a manifest file or content into a map. Handles two potential sources
-;; of data, transform, some validation, and eventually dispatches to the above attribute-specific
-;; parsing logic. Refer to the following REPL samples.
+;; Turning a manifest file or content into a map. The text itself is parsed by the indexer's
+;; ManifestParser, including the attribute-specific parsing of OSGi headers; the results are
+;; converted to Clojure data and validated here. Refer to the following REPL samples.
 ;;
 
 (comment
   (->> (str "Manifest-Version: 1.0\nBuild-Jdk: 1.8.0_131\n"
             "Bundle-DocURL: http://c\n odice.org\nInvalid: haha I snuck in ;) how did I do that?")
-       parse-string-to-lines
-       (valid-manifest? "REPL test")
-       (reduce reduce-lines [])
-       (map line->pair))
-  (->> "ddf/catalog/spatial/csw/spatial-csw-endpoint/target/classes/META-INF/MANIFEST.MF"
-       env/resolve-repo
-       parse-path-to-lines)
+       (#(ManifestParser/parseHeaders % "REPL test")))
   (->> "ddf/catalog/spatial/csw/spatial-csw-endpoint/target/classes/META-INF/MANIFEST.MF"
        env/resolve-repo
        parse-file))
 
-(defn- parse-path-to-lines
-  [path]
-  (with-open [rdr (clojure.java.io/reader path)]
-    (doall (filter #(not= "" %) (line-seq rdr)))))
-
-(defn- parse-string-to-lines
-  [raw-string]
-  (with-open [rdr (BufferedReader. (StringReader. raw-string))]
-    (doall (filter #(not= "" %) (line-seq rdr)))))
-
-(defn- valid-manifest?
-  "Ensures the manifest is not empty. Ensures the first line of the manifest does not begin
-  with whitespace."
-  [path lines]
-  (cond (nil? (first lines))
-        (throw (IllegalArgumentException.
-                 (str "Manifest file " path " should not be empty")))
-        (str/starts-with? (first lines) " ")
-        (throw (IllegalArgumentException.
-                 (str "Manifest file " path " should not start with whitespace")))
-        :default
-        lines))
-
-(defn- reduce-lines
-  "Aggregates manifest lines according to attribute, where val is expected to be the target
-  vector of strings for the aggregation, and next is the next line from the manifest file."
-  [val next]
-  (if (str/starts-with? next " ")
-    (update val
-            (- (count val) 1)
-            #(str % (str/trim next)))
-    (conj val next)))
-
-(defn- line->pair
-  "Converts a single line of the manifest into a key-value pair, in this case a size-2 vector."
-  [line]
-  (let [kv-split (str/split line #": " 2)
-        k (keyword namespace-name (first kv-split))
-        v (last kv-split)]
-    (when (or (nil? line) (.isEmpty line))
-      (throw (IllegalArgumentException. (str "Bad manifest attribute for line '" line "'"))))
-    [k v]))
+(defn- java->pairs
+  "Converts the header map returned by ManifestParser into key-value pairs, in this case size-2
+  vectors, with namespaced keyword keys and lists in place of Java lists."
+  [headers]
+  (map (fn [[k v]]
+         [(keyword namespace-name k) (if (instance? List v) (apply list v) v)])
+       headers))
 
 (defn valid-keys?
   "Ensures all parsed manifest keys are valid."
@@ -264,25 +206,43 @@
   "Parses the text of a JAR manifest from a file pointed to by the path to the manifest, passed as
   a string."
   [path]
-  (->> path
-       parse-path-to-lines
-       (valid-manifest? path)
-       (reduce reduce-lines [])
-       (map line->pair)
+  (->> (ManifestParser/parse (slurp path) (str path))
+       java->pairs
        (valid-keys? path)
-       (map parse-attr)
        (into {})))
 
 (defn parse-content
   "Parses the text of a JAR manifest from the already loaded string content of the manifest file."
   [content]
-  (->> content
-       parse-string-to-lines
-       (valid-manifest? "(in-memory)")
-       (reduce reduce-lines [])
-       (map line->pair)
+  (->> (ManifestParser/parse content "(in-memory)")
+       java->pairs
        (valid-keys? "(in-memory)")
-       (map parse-attr)
+       (into {})))
+
+(def ^:private indexed-header->attr
+  "Index attributes holding OSGi headers that were already parsed at index time, and the
+  manifest attribute each one stands in for."
+  {"BUNDLE_SYMBOLIC_NAME"  ::Bundle-SymbolicName
+   "BUNDLE_IMPORT_PACKAGE" ::Import-Package
+   "BUNDLE_EXPORT_PACKAGE" ::Export-Package
+   "BUNDLE_IMPORT_SERVICE" ::Import-Service
+   "BUNDLE_EXPORT_SERVICE" ::Export-Service})
+
+(defn parse-indexed-headers
+  "Builds the same map parse-content would for the OSGi headers, but from the attributes of an
+  indexed artifact, where the headers were already parsed. Package and service attributes are
+  comma separated; the symbolic name is used as is.
+
+  Only ::Bundle-SymbolicName, ::Import-Package, ::Export-Package, ::Import-Service, and
+  ::Export-Service are included, every other manifest attribute is left out. Use parse-content
+  on the JAR_MANIFEST attribute of a loaded artifact (see index/load-artifact) for the rest."
+  [attrs]
+  (->> indexed-header->attr
+       (keep (fn [[attr k]]
+               (when-let [v (get attrs attr)]
+                 (if (= k ::Bundle-SymbolicName)
+                   [k v]
+                   [k (apply list (str/split v #","))]))))
        (into {})))
 
 (defn parse-content-plaintextattrs
@@ -290,11 +250,8 @@
   Does not convert the attributes themselves into Clojure data but leaves each of them intact as
   a clean, single-line string."
   [content]
-  (->> content
-       parse-string-to-lines
-       (valid-manifest? "(in-memory)")
-       (reduce reduce-lines [])
-       (map line->pair)
+  (->> (ManifestParser/parseHeaders content "(in-memory)")
+       java->pairs
        (valid-keys? "(in-memory)")
-       ;; Skipping parse-attr call
+       ;; Skipping value parsing
        (into {})))
\ No newline at end of file
@@ -7,13 +7,18 @@
 
   (:use [loom.graph]
         [loom.attr])
-  (:require [com.connexta.osgeyes.graph.env :as env]
+  (:require [com.connexta.osgeyes.graph.analysis :as analysis]
+            [com.connexta.osgeyes.graph.csr :as csr]
+            [com.connexta.osgeyes.graph.diff :as diff]
+            [com.connexta.osgeyes.graph.env :as env]
             [com.connexta.osgeyes.graph.export :as export]
+            [com.connexta.osgeyes.graph.profile :as profile]
             [com.connexta.osgeyes.graph.query :as query]
+            [com.connexta.osgeyes.graph.snapshot :as snapshot]
             [com.connexta.osgeyes.graph.connectors.manifest :as manifest]
-            [com.connexta.osgeyes.index.core :as index]
-            [ubergraph.core :as uber])
-  (:import (java.awt Desktop)
+            [com.connexta.osgeyes.index.core :as index])
+  (:import (com.connexta.osgeyes.graph CategoryClassifier)
+           (java.awt Desktop)
            (java.io File)))
 
 ;;
@@ -113,27 +118,49 @@
     [:platform           #".*platform.*"]))
 ;; @formatter:on
 
+(def ^:private custom-categories
+  "Tables added with (register-categories), most recent first, applied before the defaults."
+  (atom []))
+
+(def ^:private classifier
+  "Compiled form of all category tables, rebuilt whenever a table is registered."
+  (atom (CategoryClassifier/compile categories :none)))
+
 (defn- categorize
   "Categorizes the provided input string."
   [str]
-  (loop [cats (seq categories)]
-    (if (empty? cats)
-      :none
-      (let [next-cat-vec (first cats)
-            match? (reduce #(and %1 %2) (map #(boolean (re-matches % str)) (rest next-cat-vec)))]
-        (if match?
-          (first next-cat-vec)
-          (recur (rest cats)))))))
-
-(defn- add-category
-  [graph qualname artifact]
-  (let [id (get-in artifact [:maven :artifact-id])]
-    (add-attr graph qualname :category (categorize id))))
-
-(defn- add-api-flag
-  [graph qualname artifact]
-  (let [id (get-in artifact [:maven :artifact-id])]
-    (add-attr graph qualname :api-flag (.contains id "api"))))
+  (.classify ^CategoryClassifier @classifier str))
+
+(defn register-categories
+  "Adds a table of categories that takes precedence over the default ones. The table has the
+  same shape as the defaults, a vector of [:category-name pattern ...] entries in the order
+  they should be applied, where every pattern of an entry must match for it to apply. Patterns
+  can be regexes or strings."
+  [table]
+  (let [tables (cons (vec table) @custom-categories)
+        compiled (CategoryClassifier/compile (vec (apply concat (concat tables [categories])))
+                                             :none)]
+    (reset! custom-categories (vec tables))
+    (reset! classifier compiled)
+    (str "Registered " (count table) " categories")))
+
+(defn reset-categories
+  "Removes every table added with (register-categories), leaving only the default categories."
+  []
+  (reset! custom-categories [])
+  (reset! classifier (CategoryClassifier/compile categories :none))
+  "Restored the default categories")
+
+(defn- artifact->attrs
+  "Node attributes of a maven artifact: its category, whether it's an API bundle, and its GAV."
+  [artifact]
+  (let [{:keys [group-id artifact-id version packaging]} (:maven artifact)]
+    {:category    (categorize artifact-id)
+     :api-flag    (.contains ^String artifact-id "api")
+     :group-id    group-id
+     :artifact-id artifact-id
+     :version     version
+     :packaging   packaging}))
 
 ;;
 ;; ----------------------------------------------------------------------------------------------
@@ -141,34 +168,10 @@
 ;; ----------------------------------------------------------------------------------------------
 ;;
 
-(defn- add-disconnected-nodes-to-graph
-  "Reducing function that ensures any node not inferrable from edges is still apart of the graph."
-  [graph [qualname artifact]]
-  (if (has-node? graph qualname)
-    graph
-    (add-nodes graph qualname)))
-
-(defn- with-node-attrs
-  "Reducing function that adds maven artifact metadata to graph node attributes."
-  [graph [qualname artifact]]
-  ;; If Loom complains about a 'string' not satisfying the 'Edge' protocol, it might mean
-  ;; the node/edge doesn't exist so can't be used to tweak attributes
-  (when (not (has-node? graph qualname))
-    (throw (IllegalArgumentException. (str "Could not find " qualname " in nodes"))))
-  (let [add-mvn-attr (fn [g node artifact key]
-                       (add-attr g node key (get-in artifact [:maven key])))]
-    (-> graph
-        (add-category qualname artifact)
-        (add-api-flag qualname artifact)
-        (add-mvn-attr qualname artifact :group-id)
-        (add-mvn-attr qualname artifact :artifact-id)
-        (add-mvn-attr qualname artifact :version)
-        (add-mvn-attr qualname artifact :packaging))))
-
 (defn- artifacts->edges
   "Given a collection of artifacts, returns a list of edges."
   [artifact-map]
-  (let [connectors [manifest/artifacts->edges]]
+  (let [connectors [manifest/indexed-artifacts->edges]]
     (->> connectors
          (map #(% artifact-map))
          (flatten)
@@ -176,24 +179,19 @@
 
 (defn create-graph-with-attrs
   "Given a collection of artifacts, creates a graph with original metadata preserved as
-  graph attributes."
-  [artifact-map]
-  (let [edges (artifacts->edges artifact-map)
-        ;; Vector used to setup (Uber)graph using edge descriptor: [source, destination, attributes]
-        ;; Refer to README: https://github.com/Engelberg/ubergraph#edge-descriptions
-        graph (->> edges (map #(vector (:from %) (:to %) %)) (apply uber/ubergraph true false))
-        pairs (seq artifact-map)]
-    (as-> graph g
-          (reduce add-disconnected-nodes-to-graph g pairs)
-          (reduce with-node-attrs g pairs))))
+  graph attributes. The edges between the artifacts are generated unless they're provided."
+  ([artifact-map]
+   (create-graph-with-attrs artifact-map (artifacts->edges artifact-map)))
+  ([artifact-map edges]
+   ;; Artifacts without edges are still described, so they end up as disconnected nodes
+   (csr/graph edges (map (fn [[qualname artifact]] [qualname (artifact->attrs artifact)])
+                         artifact-map))))
 
 (comment
   ;; Preview raw graph
   (create-graph-with-attrs (create-artifact-map "ddf" "ddf" "2.19.5"))
   ;; Generate simpler, hard-coded graph
-  (-> (uber/ubergraph true false [:a :b])
-      (add-attr [:a :b] "k" "v")
-      (add-nodes "mystr")
+  (-> (csr/graph [{:from "a" :to "b" :type "k" :cause "v"}] [["mystr" {}]])
       (edges)
       (first)
       (dest))
@@ -207,18 +205,35 @@
 
 (defn- add-manifest [artifact]
   (assoc artifact :manifest
-                  ;; Add keyword mapping / insulation for mvn-indexer attributes TODO
-                  (manifest/parse-content (get-in artifact [:maven :attrs "JAR_MANIFEST"]))))
+                  ;; OSGi headers are parsed when indexing, no need to parse the manifest text,
+                  ;; but only the headers the graph needs are kept (see parse-indexed-headers)
+                  (manifest/parse-indexed-headers (get-in artifact [:maven :attrs]))))
 
 (defn create-artifact-map-bundles-only [g a v]
-  (->> (index/gather-hierarchy g a v)
+  (->> (profile/phase "gather-hierarchy" (index/gather-hierarchy g a v))
        (filter #(= (:packaging %) "bundle"))
        (filter #(= (:file-ext %) "jar"))
        (map #(hash-map :maven %))
-       (map add-manifest)
+       (#(profile/phase "add-manifest" (map add-manifest %)))
        (map #(vector (str a "/" (get-in % [:manifest ::manifest/Bundle-SymbolicName])) %))
        (into {})))
 
+(defn- build-snapshot
+  "Gathers the artifacts for the mvn coordinates and the edges between them."
+  [gather]
+  (let [artifact-map (->> gather
+                          (map gav)
+                          (map #(create-artifact-map-bundles-only (:g %) (:a %) (:v %)))
+                          (apply merge))]
+    {:artifact-map artifact-map
+     :edges        (profile/phase "artifacts->edges" (vec (artifacts->edges artifact-map)))}))
+
+(defn- gather->snapshot
+  "Returns the artifact map and edges for the mvn coordinates, reusing the saved snapshot if the
+  index has not changed since it was built."
+  [gather]
+  (profile/phase "snapshot" (snapshot/load-or-build gather build-snapshot)))
+
 ;;
 ;; ----------------------------------------------------------------------------------------------
 ;; Public CLI
@@ -233,6 +248,20 @@
 (defn open-tmp-dir [] (!open-dir (env/resolve-tmp "")))
 (defn open-working-dir [] (!open-dir (env/resolve-subdir "")))
 (defn open-repos-dir [] (!open-dir (env/resolve-repo "")))
+(defn clear-snapshots [] (snapshot/clear-snapshots!))
+
+(defn index-stats
+  "Shows the breakdown of the last index scan, or of the one still in progress: throughput,
+  bytes read, skipped files, and the time spent in each index creator and in the index writer."
+  []
+  (if-let [stats (index/scan-stats)]
+    (do (clojure.pprint/print-table
+          (map (fn [[k v]] {:stat (name k) :value v}) (dissoc stats :index-creator-ms)))
+        (clojure.pprint/print-table
+          (map (fn [[id ms]] {:index-creator id :ms ms}) (:index-creator-ms stats)))
+        (str (if (:running stats) "Scan in progress, " "Last scan ")
+             "read " (:artifacts stats) " artifacts in " (:elapsed-ms stats) " ms"))
+    "No scan has run, the index was already up to date when it was opened"))
 
 (defn list-edges
   "Lists the edges of a graph in a nicely formatted table.
@@ -252,19 +281,15 @@
              type?  false}}]
   (let [dissoc-cause #(dissoc % :cause)
         dissoc-type #(dissoc % :type)]
-    (->> gather
-         (map gav)
-         (map #(create-artifact-map-bundles-only (:g %) (:a %) (:v %)))
-         (apply merge)
-         (artifacts->edges)
-         (filter (query/selection->predicate select))
+    (->> (:edges (gather->snapshot gather))
+         (#(profile/phase "select" (sequence (query/selection->xform select) %)))
          ;; optionally print duplicate dependencies for each cause
          (#(if cause? % (distinct (map dissoc-cause %))))
          ;; optionally print the type of edge
          (#(if type? % (map dissoc-type %)))
          ;; don't show more than the maximum
          (take max)
-         (#(do (clojure.pprint/print-table %)
+         (#(do (profile/phase "print" (clojure.pprint/print-table %))
                (str "Printed " (count %) " dependencies"))))))
 
 (defn draw-graph
@@ -276,38 +301,190 @@
       ;; :as   all
       :or   {gather default-gather
              select default-select}}]
-  (->> gather
-       (map gav)
-       (map #(create-artifact-map-bundles-only (:g %) (:a %) (:v %)))
-       (apply merge)
-       (artifacts->edges)
-       (filter (query/selection->predicate select))
-       (export/gen-html-from-edges)
-       (export/!write-html)
-       (!open-file-in-browser)))
+  (->> (:edges (gather->snapshot gather))
+       (#(profile/phase "select" (into [] (query/selection->xform select) %)))
+       (#(profile/phase "generate-html" (export/gen-html-from-edges %)))
+       (#(profile/phase "write-html" (export/!write-html %)))
+       (#(profile/phase "open-browser" (!open-file-in-browser %)))))
 
 (defn export-graph
   "Exports a graph of edges as GraphML and opens the file in the browser.
     :gather - vector of mvn coordinates to serve as roots to the artifact trees.
     :select - selection vector for filtering the graph.
+    :gzip?  - should the file be compressed with gzip (defaults to false)?
   The XML file is saved to the user's tmp directory. Run (open-tmp-dir) to find it."
-  [& {:keys [gather select]
+  [& {:keys [gather select gzip?]
       ;; :as   all
       :or   {gather default-gather
-             select default-select}}]
-  (->> gather
-       (map gav)
-       (map #(create-artifact-map-bundles-only (:g %) (:a %) (:v %)))
-       (apply merge)
-       #_(artifacts->edges)
-       (create-graph-with-attrs)
+             select default-select
+             gzip?  false}}]
+  (->> (gather->snapshot gather)
+       (#(profile/phase "create-graph" (create-graph-with-attrs (:artifact-map %) (:edges %))))
        ;; Fix filtering later TODO
        #_(filter (query/selection->predicate select))
-       (export/gen-graphml-from-graph)
-       (export/!write-graphml)
+       (#(profile/phase "write-graphml" (export/!write-graphml-from-graph % gzip?)))
        (#(str "Exported to " % (System/lineSeparator) "Call (open-tmp-dir) to navigate there."))))
 
+(defn- gather->analysis
+  "Analyzes the graph of every edge of the mvn coordinates, or only of the selected ones."
+  [gather select]
+  (let [edges (:edges (gather->snapshot gather))]
+    (->> (if select
+           (profile/phase "select" (into [] (query/selection->xform select) edges))
+           edges)
+         (#(profile/phase "analyze" (analysis/analyze %))))))
+
+(defn- print-related
+  "Prints the nodes from (analysis/dependencies) or (analysis/dependents), returning a summary."
+  [node max {:keys [matched nodes]} relation]
+  (if (empty? matched)
+    (str "No bundles match " node)
+    (do (profile/phase "print" (clojure.pprint/print-table [:node :layer :direct?]
+                                                           (take max nodes)))
+        (str (count nodes) " bundles " relation " the " (count matched) " bundles matching "
+             node))))
+
+(defn impact-of
+  "Lists every bundle that depends on the bundles matching node, directly or through other
+  bundles, which is everything a change to those bundles can break.
+    node    - regex that has to match the entire name of a bundle, like a :node selection.
+    :gather - vector of mvn coordinates to serve as roots to the artifact trees.
+    :select - selection vector for filtering the edges first (defaults to every edge).
+    :max    - maximum number of rows in the table (defaults to 100).
+  Bundles are ordered by layer, see (layers), and :direct? marks the ones that depend on a
+  matching bundle without going through another bundle."
+  [node & {:keys [gather select max]
+           :or   {gather default-gather
+                  max    100}}]
+  (print-related node max (analysis/dependents (gather->analysis gather select) node)
+                 "depend on"))
+
+(defn depends-on*
+  "Lists every bundle that the bundles matching node depend on, directly or through other
+  bundles. Takes the same options as (impact-of)."
+  [node & {:keys [gather select max]
+           :or   {gather default-gather
+                  max    100}}]
+  (print-related node max (analysis/dependencies (gather->analysis gather select) node)
+                 "are needed by"))
+
+(defn find-cycles
+  "Lists the cycles of bundles that depend on each other, largest first, one row per bundle.
+    :gather - vector of mvn coordinates to serve as roots to the artifact trees.
+    :select - selection vector for filtering the edges first (defaults to every edge).
+  A bundle that only depends on itself is not considered a cycle."
+  [& {:keys [gather select]
+      :or   {gather default-gather}}]
+  (let [cycles (analysis/cycles (gather->analysis gather select))]
+    (if (empty? cycles)
+      "No cycles found"
+      (do (clojure.pprint/print-table
+            [:cycle :size :node]
+            (for [[i cycle] (map-indexed vector cycles) node cycle]
+              {:cycle (inc i) :size (count cycle) :node node}))
+          (str "Found " (count cycles) " cycles spanning " (count (apply concat cycles))
+               " bundles")))))
+
+(defn layers
+  "Lists the bundles layer by layer, starting with the bundles that depend on nothing. Every
+  other bundle sits one layer above the highest of its dependencies, so a bundle only ever
+  depends on lower layers, or on the bundles of its own cycle, marked with :cycle?.
+    :gather - vector of mvn coordinates to serve as roots to the artifact trees.
+    :select - selection vector for filtering the edges first (defaults to every edge).
+    :max    - maximum number of rows in the table (defaults to 100)."
+  [& {:keys [gather select max]
+      :or   {gather default-gather
+             max    100}}]
+  (let [nodes (analysis/layers (gather->analysis gather select))]
+    (clojure.pprint/print-table [:layer :node :cycle?] (take max nodes))
+    (str (count nodes) " bundles in " (if (empty? nodes) 0 (inc (:layer (last nodes))))
+         " layers")))
+
+(defn- gather->diff-side
+  "Nodes and edges of the mvn coordinates to compare. Without a selection every gathered bundle
+  is compared, with one only the bundles at the ends of the selected edges are."
+  [gather select]
+  (let [{:keys [artifact-map edges]} (gather->snapshot gather)]
+    (if select
+      {:nodes [] :edges (into [] (query/selection->xform select) edges)}
+      {:nodes (keys artifact-map) :edges edges})))
+
+(defn diff-graph
+  "Compares two gathers, such as two releases of the same project, and lists, draws, or exports
+  what changed: bundles that were added or removed, edges that were added or removed, and edges
+  whose causes changed, such as a bundle importing one more package from another.
+    :from   - vector of mvn coordinates of the old gather.
+    :to     - vector of mvn coordinates of the new gather.
+    :select - selection vector applied to the edges of both gathers (defaults to every edge).
+    :output - :list prints tables (default), :draw renders HTML and opens it in the browser, and
+              :export writes GraphML. Drawings are green where added, red where removed, and
+              orange where changed.
+    :max    - maximum number of edge rows when listing (defaults to 100).
+  Drawings and exports only hold what changed, plus the nodes at the ends of changed edges."
+  [& {:keys [from to select output max]
+      :or   {output :list
+             max    100}}]
+  (when-not (and from to)
+    (throw (IllegalArgumentException. "Both :from and :to need a vector of mvn coordinates")))
+  (let [result (profile/phase "diff" (diff/diff (gather->diff-side from select)
+                                                (gather->diff-side to select)))]
+    (case output
+      :list (do (profile/phase "print"
+                  (when (seq (diff/node-rows result))
+                    (clojure.pprint/print-table [:change :node] (diff/node-rows result)))
+                  (clojure.pprint/print-table [:change :from :to :type :causes]
+                                              (take max (diff/edge-rows result))))
+                (diff/summary result))
+      :draw (->> (diff/diff->graph result)
+                 (#(profile/phase "generate-html" (export/gen-html-from-graph %)))
+                 (#(profile/phase "write-html" (export/!write-html %)))
+                 (#(profile/phase "open-browser" (!open-file-in-browser %))))
+      :export (->> (diff/diff->graph result)
+                   (#(profile/phase "write-graphml" (export/!write-graphml-from-graph %)))
+                   (#(str (diff/summary result) (System/lineSeparator)
+                          "Exported to " % (System/lineSeparator)
+                          "Call (open-tmp-dir) to navigate there.")))
+      (throw (IllegalArgumentException.
+               (str "Unknown output " output ", expected :list, :draw, or :export"))))))
+
+(defmacro profile
+  "Runs a command and prints where its time went, phase by phase: wall time, memory allocated,
+  and the number of items each phase produced. Returns whatever the command returns.
+    (profile (draw-graph :select [:node \"ddf/.*\"]))"
+  [& body]
+  `(profile/profile ~@body))
+
+(defn explain
+  "Shows how a query built with com.connexta.osgeyes.index.core/lookfor runs: the compiled Lucene
+  query, the time spent searching versus loading the first page of results, and how many
+  artifacts each clause matches on its own, to spot the clause that makes a query expensive."
+  [criteria]
+  (let [explanation (index/explain-query criteria)]
+    (clojure.pprint/print-table
+      [:depth :occur :clause :hits :count-ms]
+      (map (fn [c] {:depth    (:depth c)
+                    :clause   (:query c)
+                    :occur    (:occur c)
+                    :hits     (:hits c)
+                    :count-ms (format "%.3f" (:count-ms c))})
+           (:clauses explanation)))
+    (println)
+    (println "Criteria:" (:criteria explanation))
+    (println "Query:   " (:query explanation))
+    (format "%d hits, compile %.3f ms, search %.3f ms, load %d in %.3f ms"
+            (:total-hits explanation) (:compile-ms explanation) (:search-ms explanation)
+            (:loaded explanation) (:load-ms explanation))))
+
 (comment
+  (diff-graph :from [(mvn "ddf" "2.19.5")] :to [(mvn "ddf" "2.19.14")])
+  (diff-graph :from [(mvn "ddf" "2.19.5")] :to [(mvn "ddf" "2.19.14")] :output :draw
+              :select [:node "ddf/.*catalog.*"])
+  (impact-of "ddf/security-core-api")
+  (depends-on* "ddf/catalog-core-api-impl" :select [:type "bundle/package"])
+  (find-cycles :select [:node "ddf/.*catalog.*"])
+  (layers :max 400)
+  (profile (draw-graph :select [:node "ddf/.*"]))
+  (explain (index/lookfor-all (index/lookfor :artifact-id "ddf") (index/lookfor :packaging "pom")))
   (export-graph :select [:node "ddf/.*"])
   (list-edges)
   (draw-graph)
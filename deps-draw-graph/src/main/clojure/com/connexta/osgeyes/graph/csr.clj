@@ -0,0 +1,134 @@
+(ns com.connexta.osgeyes.graph.csr
+
+  "Loom facade for CsrGraph, the compact read only graph the CLI builds its artifact graphs with.
+  The graph satisfies the Graph, Digraph, and AttrGraph protocols of Loom, so (nodes g),
+  (edges g), (successors g n), (attrs g n), and friends work just like they do for any Loom graph,
+  including the exporters. Edges are CsrGraph$Edge objects which satisfy the Edge protocol, and
+  since the graph can hold several edges between the same nodes, (attrs g [n1 n2]) is the
+  attributes of the first one.
+
+  Node attributes are :category, :api-flag, :group-id, :artifact-id, :version, and :packaging,
+  and edge attributes are :type and :cause. Attributes without a value are left out. Adding or
+  removing nodes, edges, or attributes is not supported, build a new graph instead."
+
+  (:require [loom.graph :as lg]
+            [loom.attr :as la])
+  (:import (com.connexta.osgeyes.graph CsrGraph CsrGraph$Builder CsrGraph$Edge)))
+
+(defn graph
+  "Builds a graph from edges of the form {:from \"qual/node\" :to \"qual/node\" :type ...
+  :cause ...} and [qualname node-attrs] pairs describing the nodes. Nodes that only appear in
+  the pairs are still added to the graph."
+  [edges described-nodes]
+  (let [^CsrGraph$Builder builder (CsrGraph/builder)]
+    (doseq [{:keys [from to type cause]} edges]
+      (.addEdge builder from to type cause))
+    (doseq [[qualname {:keys [category api-flag group-id artifact-id version packaging]}]
+            described-nodes]
+      (.describe builder qualname category (boolean api-flag)
+                 group-id artifact-id version packaging))
+    (.build builder)))
+
+(defn- node-id
+  "Id of the node in g, or nil if g has no such node."
+  [^CsrGraph g node]
+  (let [id (.indexOf g node)]
+    (when-not (neg? id) id)))
+
+(defn- edge-id
+  "Id of the edge in g given either a CsrGraph$Edge or the nodes at its ends, or nil if g has no
+  such edge."
+  ([^CsrGraph g edge]
+   (if (instance? CsrGraph$Edge edge)
+     (.getId ^CsrGraph$Edge edge)
+     (when (sequential? edge)
+       (edge-id g (first edge) (second edge)))))
+  ([^CsrGraph g n1 n2]
+   (when-let [from (node-id g n1)]
+     (when-let [to (node-id g n2)]
+       (let [id (.findEdge g from to)]
+         (when-not (neg? id) id))))))
+
+(defn- without-nils [m]
+  (into {} (remove (comp nil? val)) m))
+
+(defn- node-attrs [^CsrGraph g id]
+  (when (.isDescribed g id)
+    (without-nils {:category    (.getCategory g id)
+                   :api-flag    (.isApiFlag g id)
+                   :group-id    (.getGroupId g id)
+                   :artifact-id (.getArtifactId g id)
+                   :version     (.getVersion g id)
+                   :packaging   (.getPackaging g id)})))
+
+(defn- edge-attrs [^CsrGraph g id]
+  (not-empty (without-nils {:type  (.getType g id)
+                            :cause (.getCause g id)})))
+
+(defn- names [^CsrGraph g ids]
+  (map #(.getName g %) ids))
+
+(defn- edge-objects [^CsrGraph g ids]
+  (map #(.getEdge g %) ids))
+
+(defn- read-only [& _]
+  (throw (UnsupportedOperationException.
+           "CsrGraph is read only, build a new graph with (csr/graph) instead")))
+
+(extend-type CsrGraph$Edge
+  lg/Edge
+  (src [edge] (.getSource edge))
+  (dest [edge] (.getTarget edge)))
+
+(extend-type CsrGraph
+  lg/Graph
+  (nodes [g]
+    (names g (range (.getNodeCount g))))
+  (edges [g]
+    (edge-objects g (range (.getEdgeCount g))))
+  (has-node? [g node]
+    (some? (node-id g node)))
+  (has-edge? [g n1 n2]
+    (some? (edge-id g n1 n2)))
+  (successors* [g node]
+    (when-let [id (node-id g node)]
+      (set (names g (.getSuccessors g id)))))
+  (out-degree [g node]
+    (if-let [id (node-id g node)] (.getOutDegree g id) 0))
+  (out-edges [g node]
+    (when-let [id (node-id g node)]
+      (edge-objects g (.getOutEdges g id))))
+
+  lg/Digraph
+  (predecessors* [g node]
+    (when-let [id (node-id g node)]
+      (set (names g (.getPredecessors g id)))))
+  (in-degree [g node]
+    (if-let [id (node-id g node)] (.getInDegree g id) 0))
+  (in-edges [g node]
+    (when-let [id (node-id g node)]
+      (edge-objects g (.getInEdges g id))))
+  (transpose [g]
+    (.transpose g))
+
+  la/AttrGraph
+  (add-attr
+    ([g node-or-edge k v] (read-only))
+    ([g n1 n2 k v] (read-only)))
+  (remove-attr
+    ([g node-or-edge k] (read-only))
+    ([g n1 n2 k] (read-only)))
+  (attr
+    ([g node-or-edge k] (get (la/attrs g node-or-edge) k))
+    ([g n1 n2 k] (get (la/attrs g n1 n2) k)))
+  (attrs
+    ([g node-or-edge]
+     (if-let [id (when-not (or (instance? CsrGraph$Edge node-or-edge)
+                               (sequential? node-or-edge))
+                   (node-id g node-or-edge))]
+       (node-attrs g id)
+       (when-let [id (edge-id g node-or-edge)]
+         (edge-attrs g id))))
+    ([g n1 n2]
+     (when-let [id (edge-id g n1 n2)]
+       (edge-attrs g id)))))
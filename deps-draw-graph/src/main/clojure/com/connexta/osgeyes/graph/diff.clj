@@ -0,0 +1,97 @@
+(ns com.connexta.osgeyes.graph.diff
+
+  "Differences between two graphs of edges, computed by GraphDiff, and the views of them: rows
+  for printing, and a Loom graph of only what changed for drawing and exporting.
+
+  Edges are identified by :from, :to, and :type, so an edge whose :cause set differs between the
+  two graphs is :changed, while an edge only found in one of them is :added or :removed. Changes
+  are recorded on the nodes and edges of the diff graph as a :change attribute, which the
+  exporters use to color them."
+
+  (:require [clojure.string :as str]
+            [loom.graph :as lg]
+            [loom.attr :as la])
+  (:import (com.connexta.osgeyes.graph GraphDiff GraphDiff$EdgeChange)))
+
+(defn- edge->fields [{:keys [from to type cause]}]
+  [from to type cause])
+
+(defn- change->map [^GraphDiff$EdgeChange change]
+  {:from           (.getFrom change)
+   :to             (.getTo change)
+   :type           (.getType change)
+   :change         (keyword (str/lower-case (.name (.getChange change))))
+   :added-causes   (vec (sort (.getAddedCauses change)))
+   :removed-causes (vec (sort (.getRemovedCauses change)))})
+
+(defn diff
+  "Compares two graphs of the form {:nodes [node-name ...] :edges [edge ...]}, where the nodes
+  are any nodes to compare besides the ends of the edges. Returns the differences, sorted:
+  {:added-nodes   [node-name ...]
+   :removed-nodes [node-name ...]
+   :edges         [{:from :to :type :change :added-causes :removed-causes} ...]}"
+  [before after]
+  (let [result (GraphDiff/compare (vec (:nodes before))
+                                  (mapv edge->fields (:edges before))
+                                  (vec (:nodes after))
+                                  (mapv edge->fields (:edges after)))]
+    {:added-nodes   (vec (sort (.getAddedNodes result)))
+     :removed-nodes (vec (sort (.getRemovedNodes result)))
+     :edges         (->> (.getEdgeChanges result)
+                         (map change->map)
+                         (sort-by (juxt :from :to :type))
+                         (vec))}))
+
+(defn summary
+  "One line count of the differences."
+  [{:keys [added-nodes removed-nodes edges]}]
+  (let [edge-count #(count (filter (comp #{%} :change) edges))]
+    (str (count added-nodes) " bundles added, " (count removed-nodes) " removed, "
+         (edge-count :added) " edges added, " (edge-count :removed) " removed, "
+         (edge-count :changed) " changed")))
+
+(defn- causes-text
+  "Causes of an edge change, prefixed with + when added and - when removed."
+  [{:keys [added-causes removed-causes]}]
+  (str/join " " (concat (map #(str "+" %) added-causes)
+                        (map #(str "-" %) removed-causes))))
+
+(defn node-rows
+  "Rows of the nodes that were added or removed, for printing."
+  [{:keys [added-nodes removed-nodes]}]
+  (concat (map #(hash-map :change :added :node %) added-nodes)
+          (map #(hash-map :change :removed :node %) removed-nodes)))
+
+(defn edge-rows
+  "Rows of the edges that changed, for printing, with their causes combined into one column."
+  [{:keys [edges]}]
+  (map #(-> %
+            (select-keys [:change :from :to :type])
+            (assoc :causes (causes-text %)))
+       edges))
+
+(defn- pair-attrs
+  "Attributes of the single graph edge standing for every change between the same two nodes. The
+  change is :changed when the changes of the pair disagree."
+  [changes]
+  (let [kinds (distinct (map :change changes))]
+    {:change (if (= 1 (count kinds)) (first kinds) :changed)
+     :type   (str/join ", " (distinct (map :type changes)))
+     :cause  (str/join " " (map causes-text changes))}))
+
+(defn diff->graph
+  "Loom graph of what changed: the nodes that were added or removed, and the edges that changed
+  along with the nodes at their ends. Nodes and edges that changed have a :change attribute, and
+  edges also have their :type and a :cause listing the causes that came and went."
+  [{:keys [added-nodes removed-nodes edges]}]
+  (let [pairs (group-by (juxt :from :to) edges)
+        graph (apply lg/digraph (concat added-nodes removed-nodes (keys pairs)))
+        with-node-change (fn [change]
+                           (fn [g node] (la/add-attr g node :change change)))]
+    (as-> graph g
+          (reduce (with-node-change :added) g added-nodes)
+          (reduce (with-node-change :removed) g removed-nodes)
+          (reduce (fn [g [[from to] changes]]
+                    (reduce-kv (fn [g k v] (la/add-attr g from to k v)) g (pair-attrs changes)))
+                  g
+                  pairs))))
@@ -3,10 +3,12 @@
   (:use [loom.graph]
         [loom.attr])
   (:require [com.connexta.osgeyes.graph.env :as env]
-            [clojure.xml :as xml]
             [clojure.string :as str]
             [clojure.data.json :as json]
-            [clojure.java.io :as io]))
+            [clojure.java.io :as io])
+  (:import (clojure.lang Named)
+           (com.connexta.osgeyes.graph GraphMLWriter)
+           (java.io StringWriter)))
 
 (def ^:private graphml-file (env/resolve-tmp "exported.graphml"))
 (def ^:private viz-file (env/resolve-tmp "viz.html"))
@@ -55,120 +57,77 @@
 ;; ----------------------------------------------------------------------
 ;; # Graphs -> GraphML
 ;;
-;; Call chain for transforming Loom graphs into XML graphs for importing.
+;; Streams Loom graphs as GraphML for importing, straight to the file so the document is never
+;; held in memory.
 ;;
 
-;; (.replace \' \")
-;; (.replace "&" "&amp;")
-;; (spit path xmlstr :create true)
-(defn- graphml-write
-  "Emits a graphml XML string given a root node."
-  [root]
-  (-> (with-out-str (xml/emit root))
-      (str/replace #"'" "\"")))
-
-;; <graphml xmlns="http://graphml.graphdrawing.org/xmlns">
-(defn- create-graphml-root
-  "Returns a populated <graphml/> XML node with the seq of nodes in 'content' as its children."
-  [content]
-  {:tag     :graphml
-   :attrs   {:xmlns "http://graphml.graphdrawing.org/xmlns"}
-   :content (vec content)})
-
-;; <graph id="G" edgedefault="directed">
-(defn- create-graphml-graph
-  "Returns a populated <graph/> XML node with the seq of nodes in 'content' as its children."
-  [content]
-  {:tag     :graph
-   :attrs   {:id "exported" :edgedefault "directed"}
-   :content (vec content)})
-
-;; <node id="n0"/>
-(defn- create-graphml-node
-  "Returns a populated <node/> XML node with the provided id."
-  ([id]
-   {:tag   :node
-    :attrs {:id id}})
-  ([id children]
-   (let [xmlnode (create-graphml-node id)]
-     (if (empty? children)
-       xmlnode
-       (assoc xmlnode :content (vec children))))))
-
-;; <edge source="n0" target="n2"/>
-(defn- create-graphml-edge
-  "Returns a populated <edge/> XML node linking the provided node ids."
-  ([from-id to-id]
-   {:tag   :edge
-    :attrs {:source from-id :target to-id}})
-  ([from-id to-id children]
-   (let [xmlnode (create-graphml-edge from-id to-id)]
-     (if (empty? children)
-       xmlnode
-       (assoc xmlnode :content (vec children))))))
-
-;; <key id="d1" for="edge" attr.name="weight" attr.type="double"/>
-(defn- create-graphml-key
-  "Returns a populated <key/> XML node with the provided attribute declaration details."
-  [key-name for type]
-  (comment for (any-of :graph :node :edge :all))
-  (comment type (any-of :boolean :int :long :float :double :string))
-  {:tag   :key
-   :attrs {:id        (name key-name)
-           :for       (name for)
-           :attr.name (name key-name)
-           :attr.type (name type)}})
-
-;; <data key="d1">1.0</data>
-(defn- create-graphml-data
-  "Returns a populated <data/> XML node with the provided key and value."
-  [key val]
-  {:tag     :data
-   :attrs   {:key (name key)}
-   :content [(if (keyword? val) (name val) (.toString val))]})
-
-(defn- graphml-node-mapper
-  "Produces a mapping function for creating graphml xml nodes."
+(def ^:private graphml-keys
+  "Data keys declared by every export, as [key-name for type]. Attributes of the graph outside of
+  these are declared as well, see (graphml-extra-keys)."
+  [;; nodes
+   [:group-id :node :string]
+   [:artifact-id :node :string]
+   [:version :node :string]
+   [:packaging :node :string]
+   [:category :node :string]
+   [:api-flag :node :boolean]
+   ;; edges
+   [:type :edge :string]
+   [:cause :edge :string]
+   ;; both, only on diff graphs
+   [:change :all :string]])
+
+(defn- key-text
+  "The key of an attribute the way GraphMLWriter writes it, keywords and symbols by name."
+  [k]
+  (if (instance? Named k) (name k) (str k)))
+
+(defn- graphml-extra-keys
+  "Data keys for the attributes of the graph that are not among graphml-keys, sorted by name, so
+  that every data element of the export refers to a declared key. Keys are for nodes or edges, or
+  all if used by both, and boolean if every value is one, otherwise string."
   [graph]
-  (fn [nodeid]
-    (create-graphml-node
-      nodeid
-      (->> nodeid
-           (attrs graph)
-           (seq)
-           (map #(apply create-graphml-data %))))))
-
-(defn- graphml-edge-mapper
-  "Produces a mapping function for creating graphml xml edges."
-  [graph]
-  (fn [edgeobj]
-    (let [from (src edgeobj)
-          to (dest edgeobj)]
-      (create-graphml-edge
-        from
-        to
-        (->> (attrs graph edgeobj)
-             (seq)
-             (map #(apply create-graphml-data %)))))))
+  (let [declared (set (map (comp name first) graphml-keys))
+        uses (->> (concat (map #(vector :node (attrs graph %)) (nodes graph))
+                          (map #(vector :edge (attrs graph %)) (edges graph)))
+                  (mapcat (fn [[for data]] (map (fn [[k v]] [(key-text k) for v]) data)))
+                  (remove (fn [[k _ v]] (or (nil? v) (declared k)))))]
+    (->> (group-by first uses)
+         (sort-by key)
+         (map (fn [[k uses]]
+                (let [fors (set (map second uses))]
+                  [k
+                   (if (= 1 (count fors)) (first fors) :all)
+                   (if (every? #(instance? Boolean (last %)) uses) :boolean :string)]))))))
+
+(defn- write-graphml
+  "Writes the keys, nodes, and edges of a Loom graph to the writer, then closes it."
+  [^GraphMLWriter writer graph]
+  (with-open [w writer]
+    (doseq [[key-name for type] (concat graphml-keys (graphml-extra-keys graph))]
+      (.declareKey w (name key-name) (name for) (name type)))
+    (doseq [node (nodes graph)]
+      (.node w node (attrs graph node)))
+    (doseq [edge (edges graph)]
+      (.edge w (src edge) (dest edge) (attrs graph edge)))))
 
 (defn gen-graphml-from-graph
-  "Transforms a Loom graph into a graphml XML string."
+  "Transforms a Loom graph into a graphml XML string. Prefer (!write-graphml-from-graph) for
+  large graphs, it does not keep the whole document in memory."
   [graph]
-  (let [graphml-nodes (map (graphml-node-mapper graph) (nodes graph))
-        graphml-edges (map (graphml-edge-mapper graph) (edges graph))
-        graphml-graph (list (create-graphml-graph (concat graphml-nodes graphml-edges)))
-        graphml-keys (list
-                       ;; nodes
-                       (create-graphml-key :group-id :node :string)
-                       (create-graphml-key :artifact-id :node :string)
-                       (create-graphml-key :version :node :string)
-                       (create-graphml-key :packaging :node :string)
-                       (create-graphml-key :category :node :string)
-                       (create-graphml-key :api-flag :node :boolean)
-                       ;; edges
-                       (create-graphml-key :type :edge :string)
-                       (create-graphml-key :cause :edge :string))]
-    (->> (concat graphml-keys graphml-graph) (create-graphml-root) (graphml-write))))
+  (let [out (StringWriter.)]
+    (write-graphml (GraphMLWriter/of out) graph)
+    (str out)))
+
+(defn !write-graphml-from-graph
+  "Streams a Loom graph to the app's temp GRAPHML file, gzipped when gzip? is true, and returns
+  the path to that file."
+  ([graph]
+   (!write-graphml-from-graph graph false))
+  ([graph gzip?]
+   (let [path (if gzip? (str graphml-file ".gz") graphml-file)]
+     (write-graphml (GraphMLWriter/open (.toPath (io/file path))) graph)
+     path)))
 
 (defn !write-graphml
   "Writes the given string to the app's temp GRAPHML file and returns the path to that file."
@@ -184,11 +143,8 @@
                   (add-attr :a :color "purple")
                   (add-attr [:a :c] :color "black")
                   (add-attr :b :type "bundle")
-                  (add-attr :a :flag true))
-        nodes (map (graphml-node-mapper graph) (nodes graph))
-        edges (map (graphml-edge-mapper graph) (edges graph))
-        doc (list (create-graphml-graph (concat nodes edges)))]
-    doc))
+                  (add-attr :a :flag true))]
+    (gen-graphml-from-graph graph)))
 
 ;; ----------------------------------------------------------------------
 ;; # Graphs -> HTML
@@ -196,12 +152,31 @@
 ;; Call chain for transforming Loom graphs into vis.js graphs for rendering.
 ;;
 
+(defn- color-by-qualstring
+  "Color of a node, picked by the first two characters of its name."
+  [node]
+  (let [colors {"dd" "lightblue" "al" "wheat" "gs" "lightsalmon" "au" "lavender"}
+        default "lightgray"]
+    (get colors (subs node 0 2) default)))
+
+(def ^:private change-colors
+  "Colors of the nodes and edges of diff graphs, by their :change attribute."
+  {:added "green" :removed "red" :changed "orange"})
+
+(defn- color-by-change
+  "Colors a node or edge of a diff graph by how it changed, leaving other ones alone."
+  [item]
+  (if-let [color (change-colors (:change item))]
+    (assoc item :color color)
+    item))
+
 (defn- json-for-nodes [graph]
   (->> graph
        (nodes)
        (map #(merge
-               (hash-map :id % :label %)
+               (hash-map :id % :label % :color (color-by-qualstring %))
                (attrs graph %)))
+       (map color-by-change)
        vec
        json/write-str))
 
@@ -209,37 +184,31 @@
   (->> graph
        (edges)
        (map #(merge
-               (hash-map :from (get % 0) :to (get % 1))
+               (hash-map :from (src %) :to (dest %))
                (attrs graph %)))
+       (map color-by-change)
        vec
        json/write-str))
 
-(defn- color-graph-by-qualstring [graph]
-  (let [colors {"dd" "lightblue" "al" "wheat" "gs" "lightsalmon" "au" "lavender"}
-        default "lightgray"]
-    (->> graph
-         nodes
-         (reduce
-           #(let [c (colors (subs %2 0 2))]
-              (add-attr %1 %2 :color (if (nil? c) default c)))
-           graph))))
+(defn gen-html-from-graph
+  "Takes a Loom graph and generates interactive HTML using the vis.js library. Graphs are only
+  read, so read only graphs such as the ones from (create-graph-with-attrs) work too."
+  [graph]
+  (-> viz-template
+      (str/replace
+        #"\"REPLACE_NODES\""
+        (str/re-quote-replacement (json-for-nodes graph)))
+      (str/replace
+        #"\"REPLACE_EDGES\""
+        (str/re-quote-replacement (json-for-edges graph)))))
 
 (defn gen-html-from-edges
   "Takes a coll of edges and generates interactive HTML using the vis.js library."
   [edges]
-  (let [graph->html
-        #(-> viz-template
-             (str/replace
-               #"\"REPLACE_NODES\""
-               (json-for-nodes %))
-             (str/replace
-               #"\"REPLACE_EDGES\""
-               (json-for-edges %)))]
-    (->> edges
-         (map #(vector (:from %) (:to %)))
-         (apply digraph)
-         (color-graph-by-qualstring)
-         (graph->html))))
+  (->> edges
+       (map #(vector (:from %) (:to %)))
+       (apply digraph)
+       (gen-html-from-graph)))
 
 (defn !write-html
   "Writes the given string to the app's temp HTML file and returns the path to that file."
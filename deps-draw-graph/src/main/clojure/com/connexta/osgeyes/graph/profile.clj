@@ -0,0 +1,86 @@
+(ns com.connexta.osgeyes.graph.profile
+
+  "Per-phase profiling for CLI commands. Commands mark their phases with (phase NAME BODY), which
+  costs nothing unless the command runs within (profile BODY). While profiling, each phase records
+  its wall time, the bytes allocated by the calling thread, and the number of items it produced.
+
+  Lazy results are realized within the phase that produced them while profiling, so the time
+  they take is charged to that phase and not to whichever phase happens to consume them first.
+  Allocation is only measured for the calling thread, work handed to other threads (i.e. by the
+  indexer) is not included."
+
+  (:require [clojure.pprint :as pprint]
+            [clojure.string :as str])
+  (:import (java.lang.management ManagementFactory)))
+
+(def ^:private ^:dynamic *phases*
+  "Atom of the phases recorded so far, or nil when not profiling."
+  nil)
+
+(def ^:private ^:dynamic *path*
+  "Names of the phases the current phase is nested in."
+  [])
+
+(def ^:private thread-bean (ManagementFactory/getThreadMXBean))
+
+(defn- allocated-bytes
+  "Bytes allocated by the current thread so far, or nil if the JVM can't tell."
+  []
+  (when (instance? com.sun.management.ThreadMXBean thread-bean)
+    (.getThreadAllocatedBytes ^com.sun.management.ThreadMXBean thread-bean
+                              (.getId (Thread/currentThread)))))
+
+(defn- item-count
+  "Number of items in the result, if it is a collection."
+  [result]
+  (when (coll? result) (count result)))
+
+(defn run-phase
+  "Calls f, recording it as a phase if profiling. Use the phase macro instead."
+  [phase-name f]
+  (if-let [phases *phases*]
+    (let [path (conj *path* phase-name)
+          bytes-before (allocated-bytes)
+          start (System/nanoTime)
+          result (binding [*path* path]
+                   (let [r (f)] (if (seq? r) (doall r) r)))
+          nanos (- (System/nanoTime) start)
+          bytes-after (allocated-bytes)]
+      (swap! phases conj {:phase    (str/join " / " path)
+                          :start    start
+                          :ms       (/ nanos 1e6)
+                          :alloc-mb (when (and bytes-before bytes-after)
+                                      (/ (- bytes-after bytes-before) 1048576.0))
+                          :items    (item-count result)})
+      result)
+    (f)))
+
+(defmacro phase
+  "Evaluates body as a phase of the current command, see the ns docs."
+  [phase-name & body]
+  `(run-phase ~phase-name (fn [] ~@body)))
+
+(defn- format-row [row]
+  (-> row
+      (update :ms #(format "%.1f" (double %)))
+      (update :alloc-mb #(if % (format "%.1f" (double %)) "?"))
+      (update :items #(if % % ""))))
+
+(defn run-profiled
+  "Calls f with profiling on and prints the phases it went through, returning its result. Use
+  the profile macro instead."
+  [f]
+  (let [phases (atom [])
+        result (binding [*phases* phases]
+                 (run-phase "total" f))]
+    (pprint/print-table
+      [:phase :ms :alloc-mb :items]
+      (map format-row (sort-by :start @phases)))
+    result))
+
+(defmacro profile
+  "Evaluates body, then prints the wall time, allocation, and item count of every phase it went
+  through, nested phases named after their parents. Returns the value of body:
+  (profile (draw-graph :select [:node \"ddf/.*\"]))"
+  [& body]
+  `(run-profiled (fn [] ~@body)))
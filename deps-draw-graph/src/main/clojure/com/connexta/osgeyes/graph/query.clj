@@ -1,6 +1,9 @@
 (ns com.connexta.osgeyes.graph.query
   "Transforms, validation, and support for managing the complete data structure
-  that details how to select data and assemble an end result, often a graph.")
+  that details how to select data and assemble an end result, often a graph."
+  (:import (java.util.concurrent ConcurrentHashMap)
+           (java.util.function Function)
+           (java.util.regex Pattern)))
 
 ;; ----------------------------------------------------------------------
 ;; # Dev Notes
@@ -60,43 +63,67 @@
         (throw (IllegalArgumentException.
                  (str "Invalid search term '" kw "', supported terms are " selection-terms)))
         :default
-        `(~kw ~(re-pattern re))))
+        [kw (re-pattern re)]))
 
-(defn- ^:private term-match-fn
-  "Given an edge, return a mapper predicate fn for keyword-pattern (regex) pairs. The intent of
-  the returned function is to evaluate an edge to get a mapping function for use on filtering
-  criteria, like so: (map (term-match-fn edge) pairs)"
-  [edge]
-  (fn [[kw pattern]]
-    (if (= :node kw)
-      (let [{term-from :from term-to :to} edge]
-        (and (= term-from (re-matches pattern term-from))
-             (= term-to (re-matches pattern term-to))))
-      (let [term (kw edge)]
-        (= term (re-matches pattern term))))))
+(def ^:private node-terms
+  "Terms that match node names, which repeat across many edges and are worth caching."
+  #{:node :from :to})
 
-(defn- ^:private pred-fn
-  "Given a coll of keyword-pattern (regex) pairs, returns a function that can
-  filter an edge. All regex pairs are AND'd together for the final result."
+(defn- ^:private full-match?
+  "True if the pattern matches the entire term. Missing terms never match."
+  [^Pattern pattern ^String term]
+  (and (some? term) (.matches (.matcher pattern term))))
+
+(defn- ^:private node-matcher
+  "Returns a fn that checks a node name against every pattern, short-circuiting on the first
+  miss. Results are cached per distinct node name so each name is only ever matched once."
+  [patterns]
+  (if (empty? patterns)
+    (constantly true)
+    (let [cache (ConcurrentHashMap.)
+          match-all (reify Function
+                      (apply [_ term]
+                        (every? #(full-match? % term) patterns)))]
+      (fn [term]
+        (and (some? term) (.computeIfAbsent cache term match-all))))))
+
+(defn- ^:private compile-pairs
+  "Compiles a coll of keyword-pattern (regex) pairs into a single predicate on edges. All pairs
+  are AND'd together. Node terms are checked first since their results are cached, :node
+  applying to both :from and :to, followed by the remaining terms in order."
   [pairs]
-  (fn [edge]
-    (let [matched? (term-match-fn edge)]
-      (reduce #(and %1 %2) (map matched? pairs)))))
+  (let [patterns-for #(for [[kw pattern] pairs :when (contains? % kw)] pattern)
+        from-ok? (node-matcher (patterns-for #{:node :from}))
+        to-ok? (node-matcher (patterns-for #{:node :to}))
+        others (remove (comp node-terms first) pairs)]
+    (fn [edge]
+      (and (from-ok? (:from edge))
+           (to-ok? (:to edge))
+           (every? (fn [[kw pattern]] (full-match? pattern (kw edge))) others)))))
 
 (defn selection->predicate
   "Transforms sel, a selection, to a predicate function that can be used to filter edges:
-  (filter (filter->predicate [:node \"regex\" ...]) edges)"
+  (filter (selection->predicate [:node \"regex\" ...]) edges)
+  The selection is compiled on first use and the predicate should be reused across edges to
+  benefit from its caching."
+  [sel]
+  (let [pairs (->> sel
+                   (#(if (vector? %)
+                       %
+                       (throw (IllegalArgumentException.
+                                (str "Argument filter must be a vector, but was " %)))))
+                   ;; allow nesting for convenience
+                   (flatten)
+                   (apply vector)
+                   ;; validation of final form
+                   (selection-valid-shape?)
+                   (partition 2))
+        compiled (delay (compile-pairs (mapv selection-pair-valid-types? pairs)))]
+    (fn [edge]
+      (@compiled edge))))
+
+(defn selection->xform
+  "Transforms sel, a selection, to a transducer that filters edges:
+  (into [] (selection->xform [:node \"regex\" ...]) edges)"
   [sel]
-  (->> sel
-       (#(if (vector? %)
-           %
-           (throw (IllegalArgumentException.
-                    (str "Argument filter must be a vector, but was " %)))))
-       ;; allow nesting for convenience
-       (flatten)
-       (apply vector)
-       ;; validation of final form
-       (selection-valid-shape?)
-       (partition 2)
-       (map selection-pair-valid-types?)
-       (pred-fn)))
\ No newline at end of file
+  (filter (selection->predicate sel)))
@@ -0,0 +1,88 @@
+(ns com.connexta.osgeyes.graph.snapshot
+
+  "Snapshots save the artifact map and edge list gathered for a set of mvn coordinates so the
+  same gather does not have to be recomputed by every command, or every CLI session. Each
+  snapshot is keyed by its gather coordinates and records the version of the index it was built
+  from. Once the index changes, the version no longer matches and the snapshot is rebuilt.
+
+  Snapshots are written to the tmp directory as gzipped, serialized Clojure data. Run
+  (clear-snapshots!) to remove all of them."
+
+  (:require [com.connexta.osgeyes.graph.env :as env]
+            [com.connexta.osgeyes.index.core :as index]
+            [clojure.java.io :as io])
+  (:import (java.io File ObjectInputStream ObjectOutputStream IOException)
+           (java.nio.charset StandardCharsets)
+           (java.nio.file Files StandardCopyOption AtomicMoveNotSupportedException)
+           (java.security MessageDigest)
+           (java.util.zip GZIPInputStream GZIPOutputStream)))
+
+;; Bump whenever the shape of the snapshot data changes
+(def ^:private format-version 1)
+
+(def ^:private snapshot-dir (env/resolve-tmp "osgeyes-snapshots"))
+
+(defn- gather-key
+  "Normalizes the gather coordinates so the same set of roots always maps to the same key."
+  [gather]
+  (vec (sort (distinct gather))))
+
+(defn- snapshot-file
+  [key]
+  (let [digest (-> (MessageDigest/getInstance "SHA-1")
+                   (.digest (.getBytes (pr-str key) StandardCharsets/UTF_8)))
+        hex (apply str (map #(format "%02x" (bit-and % 0xff)) digest))]
+    (File. ^String snapshot-dir (str hex ".snapshot"))))
+
+(defn- read-snapshot
+  "Returns the saved snapshot for the key if it was built from the given index version,
+  otherwise nil."
+  [^File file key version]
+  (when (.isFile file)
+    (try
+      (with-open [in (ObjectInputStream. (GZIPInputStream. (io/input-stream file)))]
+        (let [header (.readObject in)]
+          (when (= header {:format format-version :key key :version version})
+            (.readObject in))))
+      ;; A partial or outdated file is no different than a missing one
+      (catch IOException _ nil)
+      (catch ClassNotFoundException _ nil))))
+
+(defn- write-snapshot!
+  [^File file key version snapshot]
+  (let [^File temp (File. (str file ".tmp"))]
+    (io/make-parents file)
+    (with-open [out (ObjectOutputStream. (GZIPOutputStream. (io/output-stream temp)))]
+      (.writeObject out {:format format-version :key key :version version})
+      (.writeObject out snapshot))
+    (try
+      (Files/move (.toPath temp) (.toPath file)
+                  (into-array [StandardCopyOption/REPLACE_EXISTING
+                               StandardCopyOption/ATOMIC_MOVE]))
+      (catch AtomicMoveNotSupportedException _
+        (Files/move (.toPath temp) (.toPath file)
+                    (into-array [StandardCopyOption/REPLACE_EXISTING]))))))
+
+(defn load-or-build
+  "Returns the snapshot for the gather coordinates, calling (build-fn gather) and saving the
+  result if there is no snapshot for the current version of the index. The built value must be
+  serializable, so realize any lazy seqs (i.e. with vec) before returning them."
+  [gather build-fn]
+  (let [key (gather-key gather)
+        version (index/index-version)
+        file (snapshot-file key)]
+    (or (read-snapshot file key version)
+        (let [snapshot (build-fn gather)]
+          (try
+            (write-snapshot! file key version snapshot)
+            (catch IOException e
+              (println "Could not save snapshot, it will be rebuilt next time:" (.getMessage e))))
+          snapshot))))
+
+(defn clear-snapshots!
+  "Deletes every saved snapshot."
+  []
+  (let [dir (File. ^String snapshot-dir)]
+    (doseq [^File f (.listFiles dir)]
+      (.delete f))
+    (str "Cleared snapshots in " snapshot-dir)))
@@ -31,12 +31,21 @@
      (println "              (list-edges :gather GATHER :select SELECT")
      (println "                          :max 100 :cause? false :type? false)")
      (println "              (draw-graph :gather GATHER :select SELECT)")
-     (println "              (export-graph :gather GATHER :select SELECT)")
+     (println "              (export-graph :gather GATHER :select SELECT :gzip? false)")
+     (println "              (impact-of NODE :gather GATHER :select SELECT :max 100)")
+     (println "              (depends-on* NODE :gather GATHER :select SELECT :max 100)")
+     (println "              (find-cycles :gather GATHER :select SELECT)")
+     (println "              (layers :gather GATHER :select SELECT :max 100)")
+     (println "              (diff-graph :from GATHER :to GATHER :select SELECT")
+     (println "                          :output :list :max 100)")
      (println "  ------------------------------------------------------------------------------")
      (println "  Management: (load-file PATH)")
      (println "              (open-repos-dir)")
      (println "              (open-tmp-dir)")
      (println "              (open-working-dir)")
+     (println "              (index-stats)")
+     (println "              (profile (draw-graph ...))")
+     (println "              (explain CRITERIA)")
      (println "  ------------------------------------------------------------------------------")
      ;; Eventually support dynamic docs from the Clojure Fn docstrings
      #_(println "        Docs: (doc function-name-here)")
@@ -66,7 +75,8 @@
                (println (.getMessage e))
                (reply/parse-args ["--help"])))]
     (try
-      (index/open-indexer!)
+      ;; Open in the background so the prompt doesn't wait on it, commands wait instead
+      (index/open-indexer-async!)
       (if (:help options)
         (println banner)
         (reply/launch (into options
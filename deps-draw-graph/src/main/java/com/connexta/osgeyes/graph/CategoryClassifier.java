@@ -0,0 +1,247 @@
+package com.connexta.osgeyes.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns a category to a name using an ordered table of rules, where the first rule whose
+ * patterns all match the entire name wins. Equivalent to trying each rule with {@code
+ * re-matches}, but built for tables where most patterns only look for a substring.
+ *
+ * <p>Patterns of the form {@code .*text.*}, or alternations of them such as {@code
+ * .*a.*|.*b.*}, are compiled into one Aho-Corasick automaton so a single pass over the name
+ * finds every substring any rule looks for. Other patterns are matched as regular expressions.
+ * Results are cached per name.
+ *
+ * <p>Thread safe.
+ */
+public class CategoryClassifier {
+
+  // Wildcard patterns with nothing else special in between, i.e. ".*catalog.*"
+  private static final Pattern SUBSTRING_PATTERN =
+      Pattern.compile("\\.\\*([^\\\\.\\[\\]{}()*+?^$|]+)\\.\\*");
+
+  // Anything '.' does not match, see Pattern
+  private static final Pattern LINE_TERMINATOR = Pattern.compile("[\\n\\r\\u0085\\u2028\\u2029]");
+
+  private final Object[] categories;
+
+  // Per rule, the patterns to match when the automaton can't be used
+  private final Pattern[][] patterns;
+
+  // Per rule and pattern, the ids of the substrings that satisfy it, or null for a regex
+  private final int[][][] substrings;
+
+  private final Automaton automaton;
+
+  private final Object none;
+
+  private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+  private CategoryClassifier(
+      Object[] categories,
+      Pattern[][] patterns,
+      int[][][] substrings,
+      Automaton automaton,
+      Object none) {
+    this.categories = categories;
+    this.patterns = patterns;
+    this.substrings = substrings;
+    this.automaton = automaton;
+    this.none = none;
+  }
+
+  /**
+   * Compiles a table of rules, each a list of the form {@code [category pattern ...]}. Patterns
+   * may be {@link Pattern}s or strings.
+   *
+   * @param table the rules, in the order they should be applied.
+   * @param none the category of names that no rule matches.
+   * @return the classifier.
+   * @throws IllegalArgumentException if a rule is malformed.
+   */
+  public static CategoryClassifier compile(List<? extends List<?>> table, Object none) {
+    final Object[] categories = new Object[table.size()];
+    final Pattern[][] patterns = new Pattern[table.size()][];
+    final int[][][] substrings = new int[table.size()][][];
+    final Map<String, Integer> ids = new LinkedHashMap<>();
+
+    for (int rule = 0; rule < table.size(); rule++) {
+      final List<?> entry = table.get(rule);
+      if (entry.size() < 2) {
+        throw new IllegalArgumentException(
+            "Expected a category followed by at least one pattern, but got " + entry);
+      }
+      categories[rule] = entry.get(0);
+      patterns[rule] = new Pattern[entry.size() - 1];
+      substrings[rule] = new int[entry.size() - 1][];
+      for (int i = 1; i < entry.size(); i++) {
+        final Pattern pattern = toPattern(entry.get(i));
+        patterns[rule][i - 1] = pattern;
+        substrings[rule][i - 1] = substringsOf(pattern, ids);
+      }
+    }
+
+    return new CategoryClassifier(
+        categories, patterns, substrings, new Automaton(new ArrayList<>(ids.keySet())), none);
+  }
+
+  /**
+   * @param name the name to classify, i.e. an artifact id.
+   * @return the category of the first rule that matches, or the none category.
+   */
+  public Object classify(String name) {
+    return cache.computeIfAbsent(name, this::doClassify);
+  }
+
+  private Object doClassify(String name) {
+    // Substring matching is only equivalent to '.*' when there's no line to break
+    final boolean regexOnly = LINE_TERMINATOR.matcher(name).find();
+    final BitSet found = regexOnly ? null : automaton.search(name);
+    for (int rule = 0; rule < categories.length; rule++) {
+      if (matches(rule, name, found)) {
+        return categories[rule];
+      }
+    }
+    return none;
+  }
+
+  private boolean matches(int rule, String name, BitSet found) {
+    for (int i = 0; i < patterns[rule].length; i++) {
+      final int[] ids = substrings[rule][i];
+      final boolean match =
+          ids == null || found == null
+              ? patterns[rule][i].matcher(name).matches()
+              : containsAny(found, ids);
+      if (!match) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsAny(BitSet found, int[] ids) {
+    for (int id : ids) {
+      if (found.get(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Pattern toPattern(Object pattern) {
+    if (pattern instanceof Pattern) {
+      return (Pattern) pattern;
+    }
+    if (pattern instanceof String) {
+      return Pattern.compile((String) pattern);
+    }
+    throw new IllegalArgumentException("Expected a pattern or string, but got " + pattern);
+  }
+
+  /**
+   * @return the ids of the substrings the pattern is looking for, registering new ones, or null if
+   *     the pattern is not just an alternation of substring searches.
+   */
+  private static int[] substringsOf(Pattern pattern, Map<String, Integer> ids) {
+    if (pattern.flags() != 0) {
+      return null;
+    }
+    final String[] alternatives = pattern.pattern().split("\\|", -1);
+    final String[] literals = new String[alternatives.length];
+    for (int i = 0; i < alternatives.length; i++) {
+      final Matcher matcher = SUBSTRING_PATTERN.matcher(alternatives[i]);
+      if (!matcher.matches()) {
+        return null;
+      }
+      literals[i] = matcher.group(1);
+    }
+    final int[] result = new int[literals.length];
+    for (int i = 0; i < literals.length; i++) {
+      result[i] = ids.computeIfAbsent(literals[i], literal -> ids.size());
+    }
+    return result;
+  }
+
+  /** Finds every occurrence of a fixed set of strings in a single pass over the input. */
+  private static class Automaton {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+
+    private final List<BitSet> outputs = new ArrayList<>();
+
+    private int[] failures;
+
+    private Automaton(List<String> strings) {
+      newState();
+      for (int id = 0; id < strings.size(); id++) {
+        int state = 0;
+        for (char c : strings.get(id).toCharArray()) {
+          final Integer next = transitions.get(state).get(c);
+          state = next == null ? addTransition(state, c) : next;
+        }
+        outputs.get(state).set(id);
+      }
+      linkFailures();
+    }
+
+    private int newState() {
+      transitions.add(new HashMap<>());
+      outputs.add(new BitSet());
+      return transitions.size() - 1;
+    }
+
+    private int addTransition(int state, char c) {
+      final int next = newState();
+      transitions.get(state).put(c, next);
+      return next;
+    }
+
+    /** Breadth first, so the failure of every shallower state is known when it's needed. */
+    private void linkFailures() {
+      failures = new int[transitions.size()];
+      final Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+      while (!queue.isEmpty()) {
+        final int state = queue.remove();
+        for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+          final int next = edge.getValue();
+          failures[next] = state == 0 ? 0 : step(failures[state], edge.getKey());
+          outputs.get(next).or(outputs.get(failures[next]));
+          queue.add(next);
+        }
+      }
+    }
+
+    private int step(int state, char c) {
+      while (true) {
+        final Integer next = transitions.get(state).get(c);
+        if (next != null) {
+          return next;
+        }
+        if (state == 0) {
+          return 0;
+        }
+        state = failures[state];
+      }
+    }
+
+    private BitSet search(String input) {
+      final BitSet found = new BitSet();
+      int state = 0;
+      for (int i = 0; i < input.length(); i++) {
+        state = step(state, input.charAt(i));
+        found.or(outputs.get(state));
+      }
+      return found;
+    }
+  }
+}
@@ -0,0 +1,517 @@
+package com.connexta.osgeyes.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable directed multigraph of artifacts, with node names interned to {@code int} ids and the
+ * adjacency of every node stored in compressed sparse row form, in both directions. Node and edge
+ * attributes are stored as columns indexed by id instead of a map per node or edge.
+ *
+ * <p>Nodes are numbered in the order they were first seen by the {@link Builder}, and edges in the
+ * order they were added. The edges of a node are stored in the order they were added, so for node
+ * {@code n} its outgoing edge ids are {@code outEdges[outOffsets[n] .. outOffsets[n + 1])}.
+ *
+ * <p>Attribute values repeat a lot across nodes, such as group ids and categories, so every value
+ * is interned once and the columns hold value ids, where {@code 0} means no value.
+ *
+ * <p>Thread safe.
+ */
+public class CsrGraph {
+
+  private static final int NO_VALUE = 0;
+
+  private final String[] names;
+
+  private final Map<String, Integer> ids;
+
+  private final int[] sources;
+
+  private final int[] targets;
+
+  private final int[] outOffsets;
+
+  private final int[] outEdges;
+
+  private final int[] inOffsets;
+
+  private final int[] inEdges;
+
+  // Interned attribute values, where the first one stands for no value
+  private final Object[] values;
+
+  // Nodes whose attributes were set, the others only have a name
+  private final BitSet described;
+
+  private final BitSet apiFlags;
+
+  private final int[] categories;
+
+  private final int[] groupIds;
+
+  private final int[] artifactIds;
+
+  private final int[] versions;
+
+  private final int[] packagings;
+
+  private final int[] types;
+
+  private final int[] causes;
+
+  private CsrGraph(
+      String[] names,
+      Map<String, Integer> ids,
+      int[] sources,
+      int[] targets,
+      int[] outOffsets,
+      int[] outEdges,
+      int[] inOffsets,
+      int[] inEdges,
+      Object[] values,
+      BitSet described,
+      BitSet apiFlags,
+      int[] categories,
+      int[] groupIds,
+      int[] artifactIds,
+      int[] versions,
+      int[] packagings,
+      int[] types,
+      int[] causes) {
+    this.names = names;
+    this.ids = ids;
+    this.sources = sources;
+    this.targets = targets;
+    this.outOffsets = outOffsets;
+    this.outEdges = outEdges;
+    this.inOffsets = inOffsets;
+    this.inEdges = inEdges;
+    this.values = values;
+    this.described = described;
+    this.apiFlags = apiFlags;
+    this.categories = categories;
+    this.groupIds = groupIds;
+    this.artifactIds = artifactIds;
+    this.versions = versions;
+    this.packagings = packagings;
+    this.types = types;
+    this.causes = causes;
+  }
+
+  /** @return a builder for a new graph. */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** @return number of nodes. */
+  public int getNodeCount() {
+    return names.length;
+  }
+
+  /** @return number of edges, parallel edges included. */
+  public int getEdgeCount() {
+    return sources.length;
+  }
+
+  /**
+   * @param name the name of a node, of any type so lookups of foreign objects simply miss.
+   * @return the id of the node, or {@code -1} if the graph has no such node.
+   */
+  public int indexOf(@Nullable Object name) {
+    final Integer id = name instanceof String ? ids.get(name) : null;
+    return id == null ? -1 : id;
+  }
+
+  public String getName(int node) {
+    return names[node];
+  }
+
+  public int getOutDegree(int node) {
+    return outOffsets[node + 1] - outOffsets[node];
+  }
+
+  public int getInDegree(int node) {
+    return inOffsets[node + 1] - inOffsets[node];
+  }
+
+  /** @return ids of the edges leaving the node, in the order they were added. */
+  public int[] getOutEdges(int node) {
+    return Arrays.copyOfRange(outEdges, outOffsets[node], outOffsets[node + 1]);
+  }
+
+  /** @return ids of the edges entering the node, in the order they were added. */
+  public int[] getInEdges(int node) {
+    return Arrays.copyOfRange(inEdges, inOffsets[node], inOffsets[node + 1]);
+  }
+
+  /** @return ids of the nodes the node has edges to, each one once. */
+  public int[] getSuccessors(int node) {
+    return distinctEnds(outEdges, outOffsets[node], outOffsets[node + 1], targets);
+  }
+
+  /** @return ids of the nodes with edges to the node, each one once. */
+  public int[] getPredecessors(int node) {
+    return distinctEnds(inEdges, inOffsets[node], inOffsets[node + 1], sources);
+  }
+
+  public int getSource(int edge) {
+    return sources[edge];
+  }
+
+  public int getTarget(int edge) {
+    return targets[edge];
+  }
+
+  /** @return id of the first edge added from source to target, or {@code -1} if there is none. */
+  public int findEdge(int source, int target) {
+    for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+      if (targets[outEdges[i]] == target) {
+        return outEdges[i];
+      }
+    }
+    return -1;
+  }
+
+  /** @return the edge as an object with the names of its ends. */
+  public Edge getEdge(int edge) {
+    return new Edge(edge, names[sources[edge]], names[targets[edge]]);
+  }
+
+  /** @return whether the attributes of the node were set, see {@link Builder#describe}. */
+  public boolean isDescribed(int node) {
+    return described.get(node);
+  }
+
+  public boolean isApiFlag(int node) {
+    return apiFlags.get(node);
+  }
+
+  @Nullable
+  public Object getCategory(int node) {
+    return values[categories[node]];
+  }
+
+  @Nullable
+  public String getGroupId(int node) {
+    return (String) values[groupIds[node]];
+  }
+
+  @Nullable
+  public String getArtifactId(int node) {
+    return (String) values[artifactIds[node]];
+  }
+
+  @Nullable
+  public String getVersion(int node) {
+    return (String) values[versions[node]];
+  }
+
+  @Nullable
+  public String getPackaging(int node) {
+    return (String) values[packagings[node]];
+  }
+
+  @Nullable
+  public Object getType(int edge) {
+    return values[types[edge]];
+  }
+
+  @Nullable
+  public Object getCause(int edge) {
+    return values[causes[edge]];
+  }
+
+  /**
+   * Reverses every edge, which only swaps the adjacency of both directions, so the attributes and
+   * the ids of the nodes and edges are shared with this graph.
+   *
+   * @return the transposed graph.
+   */
+  public CsrGraph transpose() {
+    return new CsrGraph(
+        names,
+        ids,
+        targets,
+        sources,
+        inOffsets,
+        inEdges,
+        outOffsets,
+        outEdges,
+        values,
+        described,
+        apiFlags,
+        categories,
+        groupIds,
+        artifactIds,
+        versions,
+        packagings,
+        types,
+        causes);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CsrGraph[%d nodes, %d edges]", getNodeCount(), getEdgeCount());
+  }
+
+  private static int[] distinctEnds(int[] edges, int from, int to, int[] ends) {
+    final int[] result = new int[to - from];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      final int end = ends[edges[i]];
+      if (!contains(result, count, end)) {
+        result[count++] = end;
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  // Degrees are small, a linear scan beats hashing
+  private static boolean contains(int[] array, int length, int value) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * An edge of the graph along with the names of its ends. Equal to the edges with the same id and
+   * ends, so it can be used as a key by callers working with several edges at once.
+   */
+  public static class Edge {
+
+    private final int id;
+
+    private final String source;
+
+    private final String target;
+
+    private Edge(int id, String source, String target) {
+      this.id = id;
+      this.source = source;
+      this.target = target;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Edge)) {
+        return false;
+      }
+      final Edge edge = (Edge) o;
+      return id == edge.id && source.equals(edge.source) && target.equals(edge.target);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, source, target);
+    }
+
+    @Override
+    public String toString() {
+      return source + " -> " + target;
+    }
+  }
+
+  /**
+   * Collects nodes and edges in any order, then lays them out once in {@link #build()}. Not thread
+   * safe.
+   */
+  public static class Builder {
+
+    private final List<String> names = new ArrayList<>();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<Object> values = new ArrayList<>();
+
+    private final Map<Object, Integer> valueIds = new HashMap<>();
+
+    private final BitSet described = new BitSet();
+
+    private final BitSet apiFlags = new BitSet();
+
+    private int[] categories = new int[16];
+
+    private int[] groupIds = new int[16];
+
+    private int[] artifactIds = new int[16];
+
+    private int[] versions = new int[16];
+
+    private int[] packagings = new int[16];
+
+    private int[] sources = new int[16];
+
+    private int[] targets = new int[16];
+
+    private int[] types = new int[16];
+
+    private int[] causes = new int[16];
+
+    private int edgeCount = 0;
+
+    private Builder() {
+      values.add(null);
+    }
+
+    /**
+     * Adds a node unless the builder already has one with the same name.
+     *
+     * @param name the name of the node.
+     * @return the id of the node.
+     */
+    public int addNode(String name) {
+      Objects.requireNonNull(name, "Node name cannot be null");
+      final Integer existing = ids.get(name);
+      if (existing != null) {
+        return existing;
+      }
+      final int id = names.size();
+      names.add(name);
+      ids.put(name, id);
+      if (id == categories.length) {
+        final int capacity = id * 2;
+        categories = Arrays.copyOf(categories, capacity);
+        groupIds = Arrays.copyOf(groupIds, capacity);
+        artifactIds = Arrays.copyOf(artifactIds, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        packagings = Arrays.copyOf(packagings, capacity);
+      }
+      return id;
+    }
+
+    /**
+     * Adds an edge, along with its ends if they were not added yet. Edges between the same nodes
+     * are kept apart, as they usually have different causes.
+     *
+     * @return this builder.
+     */
+    public Builder addEdge(
+        String source, String target, @Nullable Object type, @Nullable Object cause) {
+      final int from = addNode(source);
+      final int to = addNode(target);
+      if (edgeCount == sources.length) {
+        final int capacity = edgeCount * 2;
+        sources = Arrays.copyOf(sources, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        types = Arrays.copyOf(types, capacity);
+        causes = Arrays.copyOf(causes, capacity);
+      }
+      sources[edgeCount] = from;
+      targets[edgeCount] = to;
+      types[edgeCount] = intern(type);
+      causes[edgeCount] = intern(cause);
+      edgeCount++;
+      return this;
+    }
+
+    /**
+     * Sets the attributes of a node, adding it if it was not added yet, replacing any attributes
+     * set before.
+     *
+     * @return this builder.
+     */
+    public Builder describe(
+        String name,
+        @Nullable Object category,
+        boolean apiFlag,
+        @Nullable String groupId,
+        @Nullable String artifactId,
+        @Nullable String version,
+        @Nullable String packaging) {
+      final int id = addNode(name);
+      described.set(id);
+      apiFlags.set(id, apiFlag);
+      categories[id] = intern(category);
+      groupIds[id] = intern(groupId);
+      artifactIds[id] = intern(artifactId);
+      versions[id] = intern(version);
+      packagings[id] = intern(packaging);
+      return this;
+    }
+
+    /** @return the graph, the builder should not be used afterwards. */
+    public CsrGraph build() {
+      final int nodeCount = names.size();
+      final int[] edgeSources = Arrays.copyOf(sources, edgeCount);
+      final int[] edgeTargets = Arrays.copyOf(targets, edgeCount);
+      final int[] outOffsets = new int[nodeCount + 1];
+      final int[] inOffsets = new int[nodeCount + 1];
+      final int[] outEdges = new int[edgeCount];
+      final int[] inEdges = new int[edgeCount];
+      layout(edgeSources, outOffsets, outEdges);
+      layout(edgeTargets, inOffsets, inEdges);
+      return new CsrGraph(
+          names.toArray(new String[0]),
+          new HashMap<>(ids),
+          edgeSources,
+          edgeTargets,
+          outOffsets,
+          outEdges,
+          inOffsets,
+          inEdges,
+          values.toArray(),
+          (BitSet) described.clone(),
+          (BitSet) apiFlags.clone(),
+          Arrays.copyOf(categories, nodeCount),
+          Arrays.copyOf(groupIds, nodeCount),
+          Arrays.copyOf(artifactIds, nodeCount),
+          Arrays.copyOf(versions, nodeCount),
+          Arrays.copyOf(packagings, nodeCount),
+          Arrays.copyOf(types, edgeCount),
+          Arrays.copyOf(causes, edgeCount));
+    }
+
+    private int intern(@Nullable Object value) {
+      if (value == null) {
+        return NO_VALUE;
+      }
+      return valueIds.computeIfAbsent(
+          value,
+          v -> {
+            values.add(v);
+            return values.size() - 1;
+          });
+    }
+
+    /**
+     * Counting sort of the edges by the node at one of their ends, which keeps the edges of each
+     * node in the order they were added.
+     */
+    private static void layout(int[] ends, int[] offsets, int[] edges) {
+      for (int end : ends) {
+        offsets[end + 1]++;
+      }
+      for (int node = 0; node < offsets.length - 1; node++) {
+        offsets[node + 1] += offsets[node];
+      }
+      final int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+      for (int edge = 0; edge < ends.length; edge++) {
+        edges[next[ends[edge]]++] = edge;
+      }
+    }
+  }
+}
@@ -0,0 +1,396 @@
+package com.connexta.osgeyes.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Differences between two graphs given as lists of edges: nodes and edges that were added or
+ * removed, and edges whose causes changed. Edges are identified by their ends and their type, so
+ * an edge between the same nodes for a different reason is a changed edge rather than a new one.
+ *
+ * <p>Every node name and every edge identity is hashed to 64 bits, both sides are sorted by hash,
+ * and a single merge walks them in step, so the comparison is linear after sorting no matter how
+ * many edges are shared. Equal hashes are confirmed against the actual names, so a hash collision
+ * never mistakes one edge for another. The causes of an edge are compared by a hash of the whole
+ * set of them, which could only hide a change by colliding in all 64 bits.
+ */
+public class GraphDiff {
+
+  /** How an edge differs between the two graphs. */
+  public enum Change {
+    ADDED,
+    REMOVED,
+    CHANGED
+  }
+
+  private final List<String> addedNodes;
+
+  private final List<String> removedNodes;
+
+  private final List<EdgeChange> edgeChanges;
+
+  private GraphDiff(
+      List<String> addedNodes, List<String> removedNodes, List<EdgeChange> edgeChanges) {
+    this.addedNodes = Collections.unmodifiableList(addedNodes);
+    this.removedNodes = Collections.unmodifiableList(removedNodes);
+    this.edgeChanges = Collections.unmodifiableList(edgeChanges);
+  }
+
+  /**
+   * Compares two graphs. Edges are lists of the form {@code [from to type cause]}, and the nodes of
+   * a graph are the given nodes along with the ends of its edges.
+   *
+   * @param beforeNodes nodes of the old graph, in addition to the ends of its edges.
+   * @param beforeEdges edges of the old graph.
+   * @param afterNodes nodes of the new graph, in addition to the ends of its edges.
+   * @param afterEdges edges of the new graph.
+   * @return the differences, in no particular order.
+   * @throws IllegalArgumentException if an edge is not of the expected form.
+   */
+  public static GraphDiff compare(
+      Collection<?> beforeNodes,
+      List<? extends List<?>> beforeEdges,
+      Collection<?> afterNodes,
+      List<? extends List<?>> afterEdges) {
+    final Side before = new Side(beforeNodes, beforeEdges);
+    final Side after = new Side(afterNodes, afterEdges);
+    final List<String> addedNodes = new ArrayList<>();
+    final List<String> removedNodes = new ArrayList<>();
+    final List<EdgeChange> edgeChanges = new ArrayList<>();
+
+    int i = 0;
+    int j = 0;
+    while (i < before.nodes.length || j < after.nodes.length) {
+      final int order = compareNodes(before, i, after, j);
+      if (order < 0) {
+        removedNodes.add(before.nodes[i++]);
+      } else if (order > 0) {
+        addedNodes.add(after.nodes[j++]);
+      } else {
+        i++;
+        j++;
+      }
+    }
+
+    i = 0;
+    j = 0;
+    while (i < before.groupCount || j < after.groupCount) {
+      final int order = compareGroups(before, i, after, j);
+      if (order < 0) {
+        edgeChanges.add(before.change(i++, Change.REMOVED, Collections.emptySet()));
+      } else if (order > 0) {
+        edgeChanges.add(after.change(j++, Change.ADDED, Collections.emptySet()));
+      } else {
+        if (before.causeHashes[i] != after.causeHashes[j]) {
+          edgeChanges.add(after.change(j, Change.CHANGED, before.causes(i)));
+        }
+        i++;
+        j++;
+      }
+    }
+    return new GraphDiff(addedNodes, removedNodes, edgeChanges);
+  }
+
+  /** @return nodes only found in the new graph. */
+  public List<String> getAddedNodes() {
+    return addedNodes;
+  }
+
+  /** @return nodes only found in the old graph. */
+  public List<String> getRemovedNodes() {
+    return removedNodes;
+  }
+
+  /** @return edges that were added, removed, or whose causes changed. */
+  public List<EdgeChange> getEdgeChanges() {
+    return edgeChanges;
+  }
+
+  public boolean isEmpty() {
+    return addedNodes.isEmpty() && removedNodes.isEmpty() && edgeChanges.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "GraphDiff[+%d -%d nodes, %d edge changes]",
+        addedNodes.size(), removedNodes.size(), edgeChanges.size());
+  }
+
+  // Past the end of a side sorts last, so the merge drains the other side
+  private static int compareNodes(Side before, int i, Side after, int j) {
+    if (i == before.nodes.length) {
+      return 1;
+    }
+    if (j == after.nodes.length) {
+      return -1;
+    }
+    final int order = Long.compare(before.nodeHashes[i], after.nodeHashes[j]);
+    return order != 0 ? order : before.nodes[i].compareTo(after.nodes[j]);
+  }
+
+  private static int compareGroups(Side before, int i, Side after, int j) {
+    if (i == before.groupCount) {
+      return 1;
+    }
+    if (j == after.groupCount) {
+      return -1;
+    }
+    final int order = Long.compare(before.groupHashes[i], after.groupHashes[j]);
+    return order != 0 ? order : compareIdentities(before, before.first(i), after, after.first(j));
+  }
+
+  // Only needed when hashes are equal, which nearly always means the edges are too
+  private static int compareIdentities(Side left, int leftEdge, Side right, int rightEdge) {
+    int order = left.froms[leftEdge].compareTo(right.froms[rightEdge]);
+    if (order == 0) {
+      order = left.tos[leftEdge].compareTo(right.tos[rightEdge]);
+    }
+    if (order == 0) {
+      order = left.types[leftEdge].compareTo(right.types[rightEdge]);
+    }
+    return order;
+  }
+
+  /** An edge that differs between the two graphs, along with the causes that came and went. */
+  public static class EdgeChange {
+
+    private final String from;
+
+    private final String to;
+
+    private final String type;
+
+    private final Change change;
+
+    private final Set<String> addedCauses;
+
+    private final Set<String> removedCauses;
+
+    private EdgeChange(
+        String from,
+        String to,
+        String type,
+        Change change,
+        Set<String> addedCauses,
+        Set<String> removedCauses) {
+      this.from = from;
+      this.to = to;
+      this.type = type;
+      this.change = change;
+      this.addedCauses = Collections.unmodifiableSet(addedCauses);
+      this.removedCauses = Collections.unmodifiableSet(removedCauses);
+    }
+
+    public String getFrom() {
+      return from;
+    }
+
+    public String getTo() {
+      return to;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public Change getChange() {
+      return change;
+    }
+
+    /** @return causes only found in the new graph, every cause of an added edge. */
+    public Set<String> getAddedCauses() {
+      return addedCauses;
+    }
+
+    /** @return causes only found in the old graph, every cause of a removed edge. */
+    public Set<String> getRemovedCauses() {
+      return removedCauses;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %s -> %s [%s]", change, from, to, type);
+    }
+  }
+
+  /**
+   * One graph, with its distinct nodes sorted by hash, and its edges sorted by the hash of their
+   * identity so the edges that only differ by cause form consecutive groups.
+   */
+  private static class Side {
+
+    private final String[] nodes;
+
+    private final long[] nodeHashes;
+
+    private final String[] froms;
+
+    private final String[] tos;
+
+    private final String[] types;
+
+    private final String[] edgeCauses;
+
+    // Edge indexes, sorted by the hash of the edge identity
+    private final int[] order;
+
+    // Start of each group in order, with one extra entry for the end of the last one
+    private final int[] groupStarts;
+
+    private final int groupCount;
+
+    private final long[] groupHashes;
+
+    // Per group, an order independent hash of the causes
+    private final long[] causeHashes;
+
+    private Side(Collection<?> extraNodes, List<? extends List<?>> edges) {
+      final int edgeCount = edges.size();
+      froms = new String[edgeCount];
+      tos = new String[edgeCount];
+      types = new String[edgeCount];
+      edgeCauses = new String[edgeCount];
+      final long[] edgeHashes = new long[edgeCount];
+      for (int edge = 0; edge < edgeCount; edge++) {
+        final List<?> fields = edges.get(edge);
+        if (fields.size() != 4) {
+          throw new IllegalArgumentException("Expected [from to type cause] but got " + fields);
+        }
+        froms[edge] = String.valueOf(fields.get(0));
+        tos[edge] = String.valueOf(fields.get(1));
+        types[edge] = String.valueOf(fields.get(2));
+        edgeCauses[edge] = String.valueOf(fields.get(3));
+        edgeHashes[edge] = combine(combine(hash(froms[edge]), hash(tos[edge])), hash(types[edge]));
+      }
+
+      order = sort(edgeCount, (a, b) -> compareEdges(edgeHashes, a, b));
+      groupStarts = new int[edgeCount + 1];
+      groupHashes = new long[edgeCount];
+      causeHashes = new long[edgeCount];
+      int groups = 0;
+      for (int i = 0; i < edgeCount; i++) {
+        final int edge = order[i];
+        if (i == 0 || compareEdges(edgeHashes, order[i - 1], edge) != 0) {
+          groupStarts[groups] = i;
+          groupHashes[groups++] = edgeHashes[edge];
+        }
+        // Summing keeps the hash independent of the order of the causes
+        causeHashes[groups - 1] += mix(hash(edgeCauses[edge]));
+      }
+      groupStarts[groups] = edgeCount;
+      groupCount = groups;
+
+      final Set<String> names = new HashSet<>();
+      extraNodes.forEach(node -> names.add(String.valueOf(node)));
+      Collections.addAll(names, froms);
+      Collections.addAll(names, tos);
+      final String[] unsorted = names.toArray(new String[0]);
+      final long[] unsortedHashes = new long[unsorted.length];
+      for (int node = 0; node < unsorted.length; node++) {
+        unsortedHashes[node] = hash(unsorted[node]);
+      }
+      final int[] nodeOrder =
+          sort(
+              unsorted.length,
+              (a, b) -> {
+                final int byHash = Long.compare(unsortedHashes[a], unsortedHashes[b]);
+                return byHash != 0 ? byHash : unsorted[a].compareTo(unsorted[b]);
+              });
+      nodes = new String[unsorted.length];
+      nodeHashes = new long[unsorted.length];
+      for (int i = 0; i < nodeOrder.length; i++) {
+        nodes[i] = unsorted[nodeOrder[i]];
+        nodeHashes[i] = unsortedHashes[nodeOrder[i]];
+      }
+    }
+
+    private int first(int group) {
+      return order[groupStarts[group]];
+    }
+
+    private int compareEdges(long[] edgeHashes, int a, int b) {
+      final int byHash = Long.compare(edgeHashes[a], edgeHashes[b]);
+      return byHash != 0 ? byHash : compareIdentities(this, a, this, b);
+    }
+
+    private Set<String> causes(int group) {
+      final Set<String> causes = new HashSet<>();
+      for (int i = groupStarts[group]; i < groupStarts[group + 1]; i++) {
+        causes.add(edgeCauses[order[i]]);
+      }
+      return causes;
+    }
+
+    /** The change of a group of this side, given the causes the other side has for it. */
+    private EdgeChange change(int group, Change change, Set<String> otherCauses) {
+      final int edge = first(group);
+      final Set<String> causes = causes(group);
+      final Set<String> added = new HashSet<>(causes);
+      added.removeAll(otherCauses);
+      final Set<String> removed = new HashSet<>(otherCauses);
+      removed.removeAll(causes);
+      return change == Change.REMOVED
+          ? new EdgeChange(froms[edge], tos[edge], types[edge], change, removed, added)
+          : new EdgeChange(froms[edge], tos[edge], types[edge], change, added, removed);
+    }
+  }
+
+  /** Stable merge sort of the indexes {@code 0 .. length - 1}. */
+  private static int[] sort(int length, IntBinaryOperator comparator) {
+    int[] order = new int[length];
+    int[] buffer = new int[length];
+    for (int i = 0; i < length; i++) {
+      order[i] = i;
+    }
+    for (int width = 1; width < length; width *= 2) {
+      for (int low = 0; low < length; low += 2 * width) {
+        final int middle = Math.min(low + width, length);
+        final int high = Math.min(low + 2 * width, length);
+        int left = low;
+        int right = middle;
+        for (int out = low; out < high; out++) {
+          if (left < middle
+              && (right == high || comparator.applyAsInt(order[left], order[right]) <= 0)) {
+            buffer[out] = order[left++];
+          } else {
+            buffer[out] = order[right++];
+          }
+        }
+      }
+      final int[] sorted = buffer;
+      buffer = order;
+      order = sorted;
+    }
+    return order;
+  }
+
+  /** 64 bit FNV-1a of the characters, finished with {@link #mix(long)}. */
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long combine(long first, long second) {
+    return mix(first * 0x9e3779b97f4a7c15L + second);
+  }
+
+  /** Final mix of MurmurHash3, which spreads every input bit across the output. */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
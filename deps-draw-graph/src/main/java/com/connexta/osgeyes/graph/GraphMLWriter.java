@@ -0,0 +1,225 @@
+package com.connexta.osgeyes.graph;
+
+import clojure.lang.Named;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a GraphML document one element at a time, so exporting a graph takes the same memory no
+ * matter how big the graph is. Declare every {@code <key>} first, then write the nodes and edges in
+ * any order, and close the writer to end the document. Data can only refer to declared keys.
+ *
+ * <p>Names and values are escaped by the underlying StAX writer. Data values are written with
+ * {@link Object#toString()}, except for keywords and symbols which are written by name, and data
+ * without a value is left out.
+ *
+ * <p>Not thread safe.
+ */
+public class GraphMLWriter implements Closeable {
+
+  private static final String NAMESPACE = "http://graphml.graphdrawing.org/xmlns";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final XMLStreamWriter xml;
+
+  private final Closeable target;
+
+  private final Set<String> keys = new HashSet<>();
+
+  private boolean graphStarted = false;
+
+  private GraphMLWriter(XMLStreamWriter xml, Closeable target) throws XMLStreamException {
+    this.xml = xml;
+    this.target = target;
+    xml.writeStartDocument("UTF-8", "1.0");
+    newLine(0);
+    xml.writeStartElement("graphml");
+    xml.writeDefaultNamespace(NAMESPACE);
+  }
+
+  /**
+   * Opens a file for writing, replacing any existing one.
+   *
+   * @param path the file to write, compressed with gzip if its name ends with {@code .gz}.
+   * @return the writer.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static GraphMLWriter open(Path path) throws IOException {
+    OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+    try {
+      if (path.getFileName().toString().endsWith(".gz")) {
+        out = new GZIPOutputStream(out, BUFFER_SIZE);
+      }
+      return new GraphMLWriter(
+          XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8"), out);
+    } catch (XMLStreamException e) {
+      out.close();
+      throw new IOException(e);
+    } catch (IOException | RuntimeException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param writer where to write the document, closed along with this writer.
+   * @return the writer.
+   */
+  public static GraphMLWriter of(Writer writer) {
+    try {
+      return new GraphMLWriter(
+          XMLOutputFactory.newInstance().createXMLStreamWriter(writer), writer);
+    } catch (XMLStreamException e) {
+      throw new IllegalStateException("Could not start GraphML document", e);
+    }
+  }
+
+  /**
+   * Declares a data key, which has to happen before the first node or edge is written.
+   *
+   * @param id the name of the key, as used by the data of nodes and edges.
+   * @param domain what the key applies to: graph, node, edge, or all.
+   * @param type the type of the values: boolean, int, long, float, double, or string.
+   * @return this writer.
+   * @throws IllegalStateException if a node or edge was already written.
+   */
+  public GraphMLWriter declareKey(String id, String domain, String type) throws IOException {
+    if (graphStarted) {
+      throw new IllegalStateException("Keys must be declared before any node or edge: " + id);
+    }
+    try {
+      newLine(1);
+      xml.writeEmptyElement("key");
+      xml.writeAttribute("id", id);
+      xml.writeAttribute("for", domain);
+      xml.writeAttribute("attr.name", id);
+      xml.writeAttribute("attr.type", type);
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    keys.add(id);
+    return this;
+  }
+
+  /**
+   * @param id the id of the node, referenced by the edges.
+   * @param data the data of the node by key, may be null.
+   * @return this writer.
+   * @throws IllegalArgumentException if the data has a value for a key that was not declared.
+   */
+  public GraphMLWriter node(Object id, @Nullable Map<?, ?> data) throws IOException {
+    try {
+      startGraph();
+      writeElement("node", data, "id", text(id));
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    return this;
+  }
+
+  /**
+   * @param source the id of the node the edge starts from.
+   * @param target the id of the node the edge points to.
+   * @param data the data of the edge by key, may be null.
+   * @return this writer.
+   * @throws IllegalArgumentException if the data has a value for a key that was not declared.
+   */
+  public GraphMLWriter edge(Object source, Object target, @Nullable Map<?, ?> data)
+      throws IOException {
+    try {
+      startGraph();
+      writeElement("edge", data, "source", text(source), "target", text(target));
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    return this;
+  }
+
+  /** Ends the document, then flushes and closes the file or writer it was written to. */
+  @Override
+  public void close() throws IOException {
+    try {
+      startGraph();
+      newLine(1);
+      xml.writeEndElement();
+      newLine(0);
+      xml.writeEndElement();
+      xml.writeEndDocument();
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      target.close();
+    }
+  }
+
+  private void startGraph() throws XMLStreamException {
+    if (!graphStarted) {
+      graphStarted = true;
+      newLine(1);
+      xml.writeStartElement("graph");
+      xml.writeAttribute("id", "exported");
+      xml.writeAttribute("edgedefault", "directed");
+    }
+  }
+
+  private void writeElement(String name, @Nullable Map<?, ?> data, String... attributes)
+      throws XMLStreamException {
+    if (data != null) {
+      for (Map.Entry<?, ?> entry : data.entrySet()) {
+        if (entry.getValue() != null && !keys.contains(text(entry.getKey()))) {
+          throw new IllegalArgumentException("Undeclared key: " + text(entry.getKey()));
+        }
+      }
+    }
+    final boolean empty = data == null || data.values().stream().allMatch(v -> v == null);
+    newLine(2);
+    if (empty) {
+      xml.writeEmptyElement(name);
+    } else {
+      xml.writeStartElement(name);
+    }
+    for (int i = 0; i < attributes.length; i += 2) {
+      xml.writeAttribute(attributes[i], attributes[i + 1]);
+    }
+    if (empty) {
+      return;
+    }
+    for (Map.Entry<?, ?> entry : data.entrySet()) {
+      if (entry.getValue() != null) {
+        newLine(3);
+        xml.writeStartElement("data");
+        xml.writeAttribute("key", text(entry.getKey()));
+        xml.writeCharacters(text(entry.getValue()));
+        xml.writeEndElement();
+      }
+    }
+    newLine(2);
+    xml.writeEndElement();
+  }
+
+  private void newLine(int depth) throws XMLStreamException {
+    xml.writeCharacters("\n");
+    for (int i = 0; i < depth; i++) {
+      xml.writeCharacters("  ");
+    }
+  }
+
+  private static String text(Object value) {
+    return value instanceof Named ? ((Named) value).getName() : String.valueOf(value);
+  }
+}
@@ -0,0 +1,53 @@
+(ns com.connexta.osgeyes.graph.analysis-test
+  (:require [clojure.test :refer :all]
+            [com.connexta.osgeyes.graph.analysis :as analysis]))
+
+(defn- edge [from to]
+  {:from from :to to :type "bundle/package" :cause (str to ".pkg")})
+
+;; app -> ui -> core -> api, with core and util depending on each other and api on itself
+(def ^:private test-analysis
+  (analysis/analyze [(edge "ddf/app" "ddf/ui")
+                     (edge "ddf/ui" "ddf/core")
+                     (edge "ddf/core" "ddf/api")
+                     (edge "ddf/core" "ddf/util")
+                     (edge "ddf/util" "ddf/core")
+                     (edge "ddf/api" "ddf/api")
+                     (edge "ddf/other" "ddf/api")]))
+
+(defn- node-names [result]
+  (set (map :node (:nodes result))))
+
+(deftest dependencies
+  (let [result (analysis/dependencies test-analysis "ddf/ui")]
+    (is (= ["ddf/ui"] (:matched result)))
+    (is (= #{"ddf/core" "ddf/util" "ddf/api"} (node-names result)))
+    (is (= #{"ddf/core"} (set (map :node (filter :direct? (:nodes result))))))))
+
+(deftest dependencies-within-a-cycle
+  (is (= #{"ddf/util" "ddf/api"} (node-names (analysis/dependencies test-analysis "ddf/core")))
+      "Nodes of the same cycle depend on each other, but not on themselves"))
+
+(deftest dependents
+  (is (= #{"ddf/app" "ddf/ui" "ddf/core" "ddf/util" "ddf/other"}
+         (node-names (analysis/dependents test-analysis "ddf/api"))))
+  (is (= #{"ddf/app" "ddf/ui" "ddf/core" "ddf/util"}
+         (node-names (analysis/dependents test-analysis "ddf/api|ddf/other")))
+      "Results of several matching nodes should be combined, without the matching nodes")
+  (is (empty? (:matched (analysis/dependents test-analysis "ddf/missing")))))
+
+(deftest cycles
+  (is (= [["ddf/core" "ddf/util"]] (map sort (analysis/cycles test-analysis)))
+      "Self loops should not count as cycles"))
+
+(deftest layers
+  (let [layer-of (into {} (map (juxt :node :layer) (analysis/layers test-analysis)))]
+    (is (= {"ddf/api"   0
+            "ddf/core"  1
+            "ddf/util"  1
+            "ddf/other" 1
+            "ddf/ui"    2
+            "ddf/app"   3}
+           layer-of))
+    (is (= (sort-by (juxt :layer :node) (analysis/layers test-analysis))
+           (analysis/layers test-analysis)))))
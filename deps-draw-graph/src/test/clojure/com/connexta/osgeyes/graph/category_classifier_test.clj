@@ -0,0 +1,89 @@
+(ns com.connexta.osgeyes.graph.category-classifier-test
+  (:require [clojure.test :refer :all]
+            [com.connexta.osgeyes.graph.core :as core])
+  (:import (com.connexta.osgeyes.graph CategoryClassifier)))
+
+(defn- regex-categorize
+  "The categorization the classifier replaced, trying every pattern of each rule in order with
+  re-matches."
+  [table none str]
+  (loop [cats (seq table)]
+    (if (empty? cats)
+      none
+      (let [next-cat-vec (first cats)
+            match? (every? #(boolean (re-matches (re-pattern %) str)) (rest next-cat-vec))]
+        (if match?
+          (first next-cat-vec)
+          (recur (rest cats)))))))
+
+(defn- classify [table str]
+  (.classify ^CategoryClassifier (CategoryClassifier/compile table :none) str))
+
+(def ^:private artifact-ids
+  ["catalog-core-api" "catalog-core-standardframework" "catalog-transformer-xml"
+   "catalog-opensearch-source" "catalog-rest-endpoint" "catalog-plugin-metacard-validation"
+   "catalog-ui-search" "solr-catalog-core" "platform-solr-server-standalone"
+   "admin-core-logviewer" "admin-ui" "spatial-csw-transformer" "spatial-geocoding-offline"
+   "spatial-kml-transformer" "spatial-ogc-common" "spatial-wfs-v2-source" "spatial-commons"
+   "security-core-api" "security-claims-ldap" "security-encryption-api"
+   "security-expansion-impl" "security-filter-basic" "security-handler-saml"
+   "security-interceptor-guest" "security-policy-context" "security-realm-saml"
+   "security-rest-authentication" "security-idp-saml" "token-storage-impl"
+   "security-servlet-logout" "session-management-impl" "security-pdp-authzrealm"
+   "registry-api" "resourcemanagement-query" "persistence-core-api" "action-core-api"
+   "metrics-reporting" "micrometer-reporter" "mime-tika-resolver" "platform-util"
+   "ddf-common" "" "catalog\ncore" "CATALOG-core"])
+
+;; Substrings that contain, start, or end other substrings, alongside rules the automaton can't
+;; handle and have to fall back on the regex.
+(def ^:private overlapping-table
+  [[:cat-log #".*catalog.*" #".*log.*"]
+   [:he-hers #".*he.*" #".*hers.*"]
+   [:she-his #".*she.*|.*his.*"]
+   [:ab-abc #".*ab.*" #".*abc.*"]
+   [:impl-not-api #"^(?!.*api).*impl.*"]
+   [:exact "exact"]
+   [:upper #"(?i).*upper.*"]
+   [:cat #".*cat.*"]
+   [:a-or-b #".*a.*|b"]])
+
+(def ^:private overlapping-names
+  ["catalog" "cataloging" "ushers" "hers" "she" "this" "he" "abc" "ab" "aababc" "xabcx" "impl"
+   "api-impl" "exact" "exactly" "UPPER" "b" "concatenate" "c" "" "line\ncatalog" "cat\nlog"])
+
+(deftest default-categories-match-regexes
+  (doseq [id artifact-ids]
+    (is (= (regex-categorize @#'core/categories :none id) (#'core/categorize id))
+        (str "Category of " (pr-str id)))))
+
+(deftest overlapping-substrings-match-regexes
+  (let [classifier (CategoryClassifier/compile overlapping-table :none)]
+    (doseq [id overlapping-names]
+      (is (= (regex-categorize overlapping-table :none id) (.classify classifier id))
+          (str "Category of " (pr-str id))))))
+
+(deftest overlapping-substrings
+  (is (= :cat-log (classify overlapping-table "catalog"))
+      "A substring inside another one should still be found")
+  (is (= :he-hers (classify overlapping-table "ushers")))
+  (is (= :she-his (classify overlapping-table "this")))
+  (is (= :ab-abc (classify overlapping-table "aababc")))
+  (is (= :a-or-b (classify overlapping-table "ab"))
+      "Rules needing a longer substring than the name has should not match")
+  (is (= :impl-not-api (classify overlapping-table "impl")))
+  (is (= :a-or-b (classify overlapping-table "api-impl")))
+  (is (= :exact (classify overlapping-table "exact")))
+  (is (= :a-or-b (classify overlapping-table "exactly")))
+  (is (= :cat (classify overlapping-table "concatenate")))
+  (is (= :upper (classify overlapping-table "UPPER")))
+  (is (= :none (classify overlapping-table "line\ncatalog"))
+      "Patterns should not match across lines"))
+
+(deftest rules-apply-in-order
+  (is (= :first (classify [[:first #".*core.*"] [:second #".*core.*"]] "core")))
+  (is (= :none (classify [] "core")))
+  (is (= :none (classify [[:first #".*core.*"]] "co-re"))))
+
+(deftest malformed-rules
+  (is (thrown? IllegalArgumentException (CategoryClassifier/compile [[:no-patterns]] :none)))
+  (is (thrown? IllegalArgumentException (CategoryClassifier/compile [[:number 42]] :none))))
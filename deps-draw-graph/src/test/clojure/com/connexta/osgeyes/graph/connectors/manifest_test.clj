@@ -7,6 +7,7 @@
     - Base Attribute Cases, base truth for individual attributes.
     - Base Multi-valued Attribute Cases, base truth for the more complicated attributes.
     - Document Cases, which represent realistic input encountered in the wild.
+  - Indexed Headers, verifies headers parsed at index time map to the same Clojure data.
 
   In general, keep the base truths simple and limited. For verifying against format quirks or other
   difficult issues, use document cases that target the attribute in question.
@@ -650,4 +651,19 @@
              "ddf.catalog.transform.QueryFilterTransformer"
              "ddf.action.ActionProvider"
              "ddf.catalog.transformer.api.PrintWriterProvider")}
-         (mf/parse-file is-basic-carriage))))
\ No newline at end of file
+         (mf/parse-file is-basic-carriage))))
+;;
+;; ----------------------------------------------------------------------------------------------
+;; # Indexed Headers
+;; ----------------------------------------------------------------------------------------------
+;;
+
+(deftest parse-indexed-headers
+  (is (= {::mf/Bundle-SymbolicName "spatial-csw-endpoint"
+          ::mf/Import-Package      '("ddf.catalog" "ddf.catalog.data")
+          ::mf/Export-Service      '("ddf.catalog.transform.InputTransformer")}
+         (mf/parse-indexed-headers
+           {"BUNDLE_SYMBOLIC_NAME"  "spatial-csw-endpoint"
+            "BUNDLE_IMPORT_PACKAGE" "ddf.catalog,ddf.catalog.data"
+            "BUNDLE_EXPORT_SERVICE" "ddf.catalog.transform.InputTransformer"
+            "JAR_MANIFEST"          "Manifest-Version: 1.0"}))))
@@ -0,0 +1,35 @@
+(ns com.connexta.osgeyes.graph.core-test
+  (:require [clojure.test :refer :all]
+            [loom.graph :as lg]
+            [loom.attr :as la]
+            [com.connexta.osgeyes.graph.core :as core]))
+
+(defn- artifact [group-id artifact-id]
+  {:maven {:group-id group-id :artifact-id artifact-id :version "1.0" :packaging "bundle"}})
+
+(def ^:private artifact-map
+  {"ddf/catalog-core-api" (artifact "ddf" "catalog-core-api")
+   "ddf/catalog-core-impl" (artifact "ddf" "catalog-core-impl")
+   "ddf/spatial-commons" (artifact "ddf" "spatial-commons")})
+
+(deftest commands-are-loaded
+  (doseq [command ['draw-graph 'list-edges 'export-graph 'impact-of 'depends-on* 'find-cycles
+                   'layers 'diff-graph 'explain]]
+    (is (fn? (some-> (ns-resolve 'com.connexta.osgeyes.graph.core command) deref))
+        (str "The " command " command should be available from the REPL"))))
+
+(deftest graph-with-attrs
+  (let [graph (core/create-graph-with-attrs
+                artifact-map
+                [{:from "ddf/catalog-core-impl" :to "ddf/catalog-core-api"
+                  :type "bundle/package" :cause "ddf.catalog.api"}])]
+    (is (= #{"ddf/catalog-core-api" "ddf/catalog-core-impl" "ddf/spatial-commons"}
+           (set (lg/nodes graph)))
+        "Artifacts without edges should still be nodes")
+    (is (lg/has-edge? graph "ddf/catalog-core-impl" "ddf/catalog-core-api"))
+    (is (= {:category :catalog-core :api-flag true :group-id "ddf" :artifact-id "catalog-core-api"
+            :version "1.0" :packaging "bundle"}
+           (la/attrs graph "ddf/catalog-core-api")))
+    (is (= :spatial (la/attr graph "ddf/spatial-commons" :category)))
+    (is (= "ddf.catalog.api"
+           (la/attr graph "ddf/catalog-core-impl" "ddf/catalog-core-api" :cause)))))
@@ -0,0 +1,60 @@
+(ns com.connexta.osgeyes.graph.csr-test
+  (:require [clojure.test :refer :all]
+            [clojure.string :as str]
+            [loom.graph :as lg]
+            [loom.attr :as la]
+            [com.connexta.osgeyes.graph.csr :as csr]
+            [com.connexta.osgeyes.graph.export :as export]))
+
+(def ^:private test-graph
+  (csr/graph [{:from "ddf/a" :to "ddf/b" :type "bundle/package" :cause "ddf.b"}
+              {:from "ddf/a" :to "ddf/b" :type "bundle/service" :cause "ddf.b.Service"}
+              {:from "ddf/b" :to "ddf/c" :type "bundle/package" :cause "ddf.c"}]
+             [["ddf/a" {:category :catalog :api-flag false :group-id "ddf" :artifact-id "a"
+                        :version "1.0" :packaging "bundle"}]
+              ["ddf/d" {:category :none :api-flag true :group-id "ddf" :artifact-id "d-api"
+                        :version "1.0" :packaging "bundle"}]]))
+
+(deftest nodes-and-edges
+  (is (= ["ddf/a" "ddf/b" "ddf/c" "ddf/d"] (lg/nodes test-graph))
+      "Nodes should be ordered as first seen, described nodes without edges included")
+  (is (= 3 (count (lg/edges test-graph)))
+      "Parallel edges should be kept")
+  (is (= [["ddf/a" "ddf/b"] ["ddf/a" "ddf/b"] ["ddf/b" "ddf/c"]]
+         (map (juxt lg/src lg/dest) (lg/edges test-graph))))
+  (is (lg/has-node? test-graph "ddf/d"))
+  (is (not (lg/has-node? test-graph :ddf/d)))
+  (is (lg/has-edge? test-graph "ddf/b" "ddf/c"))
+  (is (not (lg/has-edge? test-graph "ddf/c" "ddf/b"))))
+
+(deftest adjacency
+  (is (= #{"ddf/b"} (lg/successors test-graph "ddf/a"))
+      "Successors should be distinct despite parallel edges")
+  (is (= 2 (lg/out-degree test-graph "ddf/a")))
+  (is (= #{"ddf/a"} (lg/predecessors test-graph "ddf/b")))
+  (is (= 2 (lg/in-degree test-graph "ddf/b")))
+  (is (= 0 (lg/out-degree test-graph "ddf/d")))
+  (is (= #{"ddf/b"} (lg/successors (lg/transpose test-graph) "ddf/c"))))
+
+(deftest node-and-edge-attrs
+  (is (= {:category :catalog :api-flag false :group-id "ddf" :artifact-id "a" :version "1.0"
+          :packaging "bundle"}
+         (la/attrs test-graph "ddf/a")))
+  (is (true? (la/attr test-graph "ddf/d" :api-flag)))
+  (is (nil? (la/attrs test-graph "ddf/c"))
+      "Nodes only known from edges should have no attributes")
+  (is (= [{:type "bundle/package" :cause "ddf.b"}
+          {:type "bundle/service" :cause "ddf.b.Service"}
+          {:type "bundle/package" :cause "ddf.c"}]
+         (map #(la/attrs test-graph %) (lg/edges test-graph))))
+  (is (= "ddf.b" (la/attr test-graph "ddf/a" "ddf/b" :cause))
+      "Looking up an edge by its ends should find the first one")
+  (is (thrown? UnsupportedOperationException (la/add-attr test-graph "ddf/a" :color "red"))))
+
+(deftest exporters-read-the-graph
+  (let [graphml (export/gen-graphml-from-graph test-graph)]
+    (is (str/includes? graphml "<data key=\"category\">catalog</data>"))
+    (is (= 3 (count (re-seq #"<edge " graphml)))))
+  (let [html (export/gen-html-from-graph test-graph)]
+    (is (str/includes? html "\"cause\":\"ddf.b.Service\""))
+    (is (str/includes? html "\"color\":\"lightblue\""))))
@@ -0,0 +1,58 @@
+(ns com.connexta.osgeyes.graph.diff-test
+  (:require [clojure.test :refer :all]
+            [clojure.string :as str]
+            [loom.graph :as lg]
+            [loom.attr :as la]
+            [com.connexta.osgeyes.graph.diff :as diff]
+            [com.connexta.osgeyes.graph.export :as export]))
+
+(defn- edge [from to type cause]
+  {:from from :to to :type type :cause cause})
+
+(def ^:private before
+  {:nodes ["ddf/a" "ddf/b" "ddf/c" "ddf/old"]
+   :edges [(edge "ddf/a" "ddf/b" "bundle/package" "ddf.b")
+           (edge "ddf/a" "ddf/b" "bundle/package" "ddf.b.impl")
+           (edge "ddf/b" "ddf/c" "bundle/package" "ddf.c")
+           (edge "ddf/c" "ddf/old" "bundle/service" "ddf.old.Service")]})
+
+(def ^:private after
+  {:nodes ["ddf/a" "ddf/b" "ddf/c" "ddf/new"]
+   :edges [(edge "ddf/a" "ddf/b" "bundle/package" "ddf.b")
+           (edge "ddf/a" "ddf/b" "bundle/package" "ddf.b.api")
+           (edge "ddf/b" "ddf/c" "bundle/package" "ddf.c")
+           (edge "ddf/c" "ddf/new" "bundle/service" "ddf.new.Service")]})
+
+(def ^:private result (diff/diff before after))
+
+(deftest nodes
+  (is (= ["ddf/new"] (:added-nodes result)))
+  (is (= ["ddf/old"] (:removed-nodes result))))
+
+(deftest edges
+  (is (= [{:from "ddf/a" :to "ddf/b" :type "bundle/package" :change :changed
+           :added-causes ["ddf.b.api"] :removed-causes ["ddf.b.impl"]}
+          {:from "ddf/c" :to "ddf/new" :type "bundle/service" :change :added
+           :added-causes ["ddf.new.Service"] :removed-causes []}
+          {:from "ddf/c" :to "ddf/old" :type "bundle/service" :change :removed
+           :added-causes [] :removed-causes ["ddf.old.Service"]}]
+         (:edges result))
+      "Unchanged edges should be left out"))
+
+(deftest identical-graphs
+  (is (= {:added-nodes [] :removed-nodes [] :edges []} (diff/diff before before))))
+
+(deftest summary-and-rows
+  (is (= "1 bundles added, 1 removed, 1 edges added, 1 removed, 1 changed"
+         (diff/summary result)))
+  (is (= "+ddf.b.api -ddf.b.impl" (:causes (first (diff/edge-rows result))))))
+
+(deftest diff-graph
+  (let [g (diff/diff->graph result)]
+    (is (= #{"ddf/a" "ddf/b" "ddf/c" "ddf/new" "ddf/old"} (set (lg/nodes g)))
+        "Only the changes and the ends of changed edges should be drawn")
+    (is (not (lg/has-edge? g "ddf/b" "ddf/c")))
+    (is (= :added (la/attr g "ddf/new" :change)))
+    (is (= :changed (la/attr g "ddf/a" "ddf/b" :change)))
+    (is (str/includes? (export/gen-html-from-graph g) "\"color\":\"orange\""))
+    (is (str/includes? (export/gen-graphml-from-graph g) "<data key=\"change\">removed</data>"))))
@@ -0,0 +1,49 @@
+(ns com.connexta.osgeyes.graph.export-test
+  (:require [clojure.test :refer :all]
+            [clojure.string :as str]
+            [clojure.xml :as xml]
+            [loom.graph :as lg]
+            [loom.attr :as la]
+            [com.connexta.osgeyes.graph.export :as export])
+  (:import (java.io ByteArrayInputStream)))
+
+(def ^:private test-graph
+  (-> (lg/digraph ["ddf/a" "ddf/b"] "ddf/c")
+      (la/add-attr "ddf/a" :category :catalog)
+      (la/add-attr "ddf/a" :version nil)
+      (la/add-attr "ddf/a" "ddf/b" :cause "it's <a> & \"b\"")))
+
+(defn- parse [graphml]
+  (xml/parse (ByteArrayInputStream. (.getBytes ^String graphml "UTF-8"))))
+
+(defn- elements [tag root]
+  (filter #(= tag (:tag %)) (xml-seq root)))
+
+(deftest graphml-structure
+  (let [root (parse (export/gen-graphml-from-graph test-graph))]
+    (is (= :graphml (:tag root)))
+    (is (= #{"ddf/a" "ddf/b" "ddf/c"} (set (map (comp :id :attrs) (elements :node root)))))
+    (is (= [{:source "ddf/a" :target "ddf/b"}] (map :attrs (elements :edge root))))
+    (is (some #(= "change" (get-in % [:attrs :id])) (elements :key root)))))
+
+(deftest graphml-escaping
+  (let [graphml (export/gen-graphml-from-graph test-graph)
+        data (elements :data (parse graphml))]
+    (is (= ["catalog" "it's <a> & \"b\""] (map (comp first :content) data))
+        "Values should survive a round trip, apostrophes included")
+    (is (not (str/includes? graphml "key=\"version\""))
+        "Data without a value should be left out")))
+
+(deftest graphml-declares-every-key
+  (let [graph (-> test-graph
+                  (la/add-attr "ddf/a" :color "purple")
+                  (la/add-attr "ddf/a" "ddf/b" :color "black")
+                  (la/add-attr "ddf/c" :flag true)
+                  (la/add-attr "ddf/c" :weight nil))
+        root (parse (export/gen-graphml-from-graph graph))
+        declared (into {} (map (comp (juxt :id identity) :attrs) (elements :key root)))]
+    (is (every? declared (map (comp :key :attrs) (elements :data root)))
+        "Every data element should refer to a declared key")
+    (is (= {:id "color" :for "all" :attr.name "color" :attr.type "string"} (declared "color")))
+    (is (= {:id "flag" :for "node" :attr.name "flag" :attr.type "boolean"} (declared "flag")))
+    (is (nil? (declared "weight")) "Attributes without a value should not be declared")))
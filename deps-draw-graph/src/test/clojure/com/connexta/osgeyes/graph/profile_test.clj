@@ -0,0 +1,28 @@
+(ns com.connexta.osgeyes.graph.profile-test
+  (:require [clojure.test :refer :all]
+            [clojure.string :as str]
+            [com.connexta.osgeyes.graph.profile :as profile]))
+
+(deftest phase-without-profiling
+  (let [result (profile/phase "lazy" (map inc [1 2 3]))]
+    (is (not (realized? result))
+        "Phases should not realize lazy results unless profiling")
+    (is (= [2 3 4] result))))
+
+(deftest profile-returns-result
+  (binding [*out* (java.io.StringWriter.)]
+    (is (= [2 3 4] (profile/profile (vec (profile/phase "inc" (map inc [1 2 3])))))
+        "Profiling should not change the result of the body")))
+
+(deftest profile-prints-nested-phases
+  (let [out (with-out-str
+              (profile/profile
+                (profile/phase "outer"
+                  (profile/phase "inner" (map inc [1 2 3])))))
+        lines (str/split-lines out)
+        row-of (fn [phase-name] (first (filter #(str/includes? % phase-name) lines)))]
+    (is (row-of "total / outer"))
+    (is (row-of "total / outer / inner")
+        "Nested phases should be named after their parents")
+    (is (re-find #"\|\s+3 \|$" (row-of "total / outer / inner"))
+        "Lazy results should be counted once realized")))
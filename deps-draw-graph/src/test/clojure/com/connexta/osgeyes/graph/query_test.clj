@@ -106,4 +106,24 @@
   (is (= true
          ((query/selection->predicate [[:node "one.*" :node ".*two.*"] :cause ".*package.*"])
           {:from "one-two-three" :to "one-three-two" :cause "some.package"}))
-      "Compound test has failed which means atomic tests are missing"))
\ No newline at end of file
+      "Compound test has failed which means atomic tests are missing"))
+
+(deftest selection-evaled-missing-term
+  (is (= false ((query/selection->predicate [:cause ".*"]) {:from "term" :to "term"}))
+      "Edges without the selected term should not match"))
+
+(deftest selection-evaled-repeatedly
+  (let [pred (query/selection->predicate [:node "one.*"])]
+    (is (= [true false true]
+           (map pred [{:from "one-a" :to "one-b"}
+                      {:from "one-a" :to "two-b"}
+                      {:from "one-b" :to "one-a"}]))
+        "Cached node matches should not leak between nodes")))
+
+(deftest selection-as-transducer
+  (is (= [{:from "one" :to "one" :cause "p"}]
+         (into [] (query/selection->xform [:node "one" :cause "p"])
+               [{:from "one" :to "one" :cause "p"}
+                {:from "one" :to "two" :cause "p"}
+                {:from "one" :to "one" :cause "q"}]))
+      "Selections should be usable as transducers"))
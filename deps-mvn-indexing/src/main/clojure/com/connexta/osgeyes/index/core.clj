@@ -1,9 +1,12 @@
 (ns com.connexta.osgeyes.index.core
   "Clojure wrapper code that changes with the Java code."
-  (:require [clojure.string :as str])
   (:import
-    (com.connexta.osgeyes.index IndexingApp Criteria MvnOntology Criteria$Options)
-    (org.apache.maven.index MAVEN ArtifactInfo)
+    (com.connexta.osgeyes.index IndexingApp Criteria MvnOntology Criteria$Options
+                                PackageWiringIndex$Kind PackageWiringIndex$Wire ArtifactPager
+                                QueryExplanation QueryExplanation$Clause)
+    (org.apache.maven.index MAVEN ArtifactInfo Field)
+    (java.util Map)
+    (java.util.concurrent ExecutionException)
     (org.apache.lucene.search BooleanClause$Occur BooleanClause)))
 
 ;;
@@ -12,7 +15,23 @@
 ;; ----------------------------------------------------------------------------------------------
 ;;
 
-(defn- get-indexing-app [] (IndexingApp/getInstance))
+(defonce ^:private opening
+  ;; Pending or completed background open, see open-indexer-async!
+  (atom nil))
+
+(defn- await-open
+  "Blocks until a background open started by open-indexer-async! has finished, rethrowing its
+  failure if it had one. Returns immediately if the open finished already or never started."
+  []
+  (when-let [pending @opening]
+    (when-not (realized? pending)
+      (println "Waiting for the index to open..."))
+    (try
+      @pending
+      (catch ExecutionException e
+        (throw (or (.getCause e) e))))))
+
+(defn- get-indexing-app [] (await-open) (IndexingApp/getInstance))
 (defn- get-criteria [] (-> (get-indexing-app) (.getCriteria)))
 
 ;;
@@ -39,8 +58,15 @@
    ;; Custom queryable fields
    ;;   :pom-modules excluded because it has very low filtering utility
    ;;   :jar-manifest excluded because it's not indexed so cannot be searched on
+   ;;   :jar-packages excluded for the same reason, search on the individual :jar-package instead
    :pom-parent    MvnOntology/POM_PARENT
-   :jar-packages  MvnOntology/JAR_PACKAGES})
+   :jar-package   MvnOntology/JAR_PACKAGE
+   ;; Parsed OSGi headers, multi-valued except for the symbolic name
+   :bundle-symbolic-name  MvnOntology/BUNDLE_SYMBOLIC_NAME
+   :bundle-import-package MvnOntology/BUNDLE_IMPORT_PACKAGE
+   :bundle-export-package MvnOntology/BUNDLE_EXPORT_PACKAGE
+   :bundle-import-service MvnOntology/BUNDLE_IMPORT_SERVICE
+   :bundle-export-service MvnOntology/BUNDLE_EXPORT_SERVICE})
 
 (defn- artifact-info->map
   "Converts an org.apache.maven.index.ArtifactInfo into a map with keywords. Exclude keys
@@ -60,6 +86,8 @@
           :description      (-> info .getDescription)
           :file-ext         (-> info .getFileExtension)
           :sha1             (-> info .getSha1)
+          ;; ~ Identifies the exact artifact within the index
+          :uinfo            (-> info .getUinfo)
           ;; Followed by transient (w.r.t index), dynamic fields
           ;; ~ Dynamically added to artifact info when results are being returned
           :repository-id    (-> info .getRepository)
@@ -73,7 +101,8 @@
           :file-name        (-> info .getFileName)
           :path             (-> info .getPath)
           :size             (-> info .getSize)
-          ;; Followed by custom attrs (pom-parent, pom-modules, jar-manifest, jar-packages)
+          ;; Followed by custom attrs (pom-parent, pom-modules, jar-manifest, jar-packages,
+          ;;   and the parsed bundle-* osgi headers)
           :attrs            (into {} (-> info .getAttributes))}]
      (->> mappings
           (filter (complement #(contains? exclusions (first %))))
@@ -118,10 +147,72 @@
   [& criteria]
   (-> (get-criteria) (.of (into-array criteria))))
 
+(defn- pager->chunked-seq
+  "Turns each page of the pager into a chunk of a lazy seq of artifact maps. The next page is
+  only fetched once the previous chunk has been consumed."
+  [^ArtifactPager pager]
+  (lazy-seq
+    (let [page (.nextPage pager)]
+      (when-not (.isEmpty page)
+        (let [buffer (chunk-buffer (count page))]
+          (doseq [info page]
+            (chunk-append buffer (artifact-info->map info)))
+          (chunk-cons (chunk buffer) (pager->chunked-seq pager)))))))
+
+(def ^:private keyword->heavy-field
+  "Stored fields left out of query results unless asked for, see FieldProjection."
+  {:jar-manifest MvnOntology/JAR_MANIFEST
+   :jar-packages MvnOntology/JAR_PACKAGES})
+
+(defn- make-projection [heavy-fields]
+  (let [fields (map keyword->heavy-field heavy-fields)]
+    (if (every? identity fields)
+      (-> (get-indexing-app) (.getStandardProjection) (.including (into-array Field fields)))
+      (throw (IllegalArgumentException. (str "Invalid heavy fields specified: " heavy-fields))))))
+
 (defn query-mvn
-  "Wrapper for IndexingApp#searchArtifacts."
-  [criteria]
-  (map artifact-info->map (-> (get-indexing-app) (.searchArtifacts criteria))))
+  "Wrapper for IndexingApp#pageArtifacts. Returns a chunked lazy seq of artifact maps, so
+  results are only fetched from the index a page at a time as they are consumed. Heavy attrs
+  are not loaded unless their keywords are included, i.e. #{:jar-manifest :jar-packages}, use
+  load-artifact to get them for a single result instead."
+  ([criteria]
+   (query-mvn criteria IndexingApp/DEFAULT_PAGE_SIZE))
+  ([criteria page-size]
+   (query-mvn criteria page-size #{}))
+  ([criteria page-size heavy-fields]
+   (pager->chunked-seq
+     (-> (get-indexing-app) (.pageArtifacts criteria page-size (make-projection heavy-fields))))))
+
+(defn- clause->map [^QueryExplanation$Clause clause]
+  {:depth    (.getDepth clause)
+   :occur    (str (.getOccur clause))
+   :query    (.getQuery clause)
+   :hits     (.getHits clause)
+   :count-ms (.getCountMillis clause)})
+
+(defn explain-query
+  "Wrapper for IndexingApp#explain. Runs the criteria like query-mvn would fetch its first page
+  and returns a map of the compiled Lucene :query, its :total-hits, and the time spent compiling,
+  searching, and loading the page, along with the :clauses of the query and the hits of each
+  clause on its own."
+  ([criteria]
+   (explain-query criteria IndexingApp/DEFAULT_PAGE_SIZE))
+  ([criteria page-size]
+   (let [^QueryExplanation explanation (-> (get-indexing-app) (.explain criteria page-size))]
+     {:criteria   (.getCriteria explanation)
+      :query      (.getQuery explanation)
+      :total-hits (.getTotalHits explanation)
+      :compile-ms (.getCompileMillis explanation)
+      :search-ms  (.getSearchMillis explanation)
+      :loaded     (.getLoadedCount explanation)
+      :load-ms    (.getLoadMillis explanation)
+      :clauses    (mapv clause->map (.getClauses explanation))})))
+
+(defn load-artifact
+  "Wrapper for IndexingApp#loadArtifact. Returns the given artifact map with all of its attrs
+  loaded, including the heavy ones, or nil if it's no longer in the index."
+  [artifact-map]
+  (some-> (get-indexing-app) (.loadArtifact (:uinfo artifact-map)) artifact-info->map))
 
 (comment
 
@@ -131,6 +222,18 @@
       (lookfor :artifact-id "ddf")
       (lookfor :packaging "pom")))
 
+  ;; First few jars, only the first page is ever fetched
+  (take 10 (query-mvn (lookfor :file-ext "jar") 20))
+
+  ;; Where the time goes, and which clause matches the most
+  (explain-query
+    (lookfor-all
+      (lookfor :artifact-id "ddf")
+      (lookfor :packaging "pom")))
+
+  ;; Manifest of the first jar, without loading the manifest of every other one
+  (-> (query-mvn (lookfor :file-ext "jar")) first load-artifact (get-in [:attrs "JAR_MANIFEST"]))
+
   ;; All reactor poms that are not ddf
   (query-mvn
     (lookfor-all
@@ -150,11 +253,38 @@
   []
   (-> (get-indexing-app) (.open (IndexingApp/getRepoLocation))))
 
+(defn open-indexer-async!
+  "Starts opening the indexer on another thread and returns immediately. Any function in this ns
+  that needs the indexer waits for the open to finish first, so callers only block if they get
+  to the index before it is ready."
+  []
+  (reset! opening (future (-> (IndexingApp/getInstance) (.open (IndexingApp/getRepoLocation))))))
+
 (defn close-indexer!
-  "Wrapper for IndexingApp#close."
+  "Wrapper for IndexingApp#close. Waits for a background open to finish so the two never race."
   []
+  (try
+    (await-open)
+    ;; Whatever failed was already reported to whoever needed the index
+    (catch Exception _ nil)
+    (finally
+      (reset! opening nil)))
   (-> (get-indexing-app) (.close)))
 
+(defn index-version
+  "Wrapper for IndexingApp#getIndexVersion."
+  []
+  (-> (get-indexing-app) (.getIndexVersion)))
+
+(defn scan-stats
+  "Wrapper for IndexingApp#getLastScanMetrics. Returns the metrics of the last repository scan,
+  or of the one in progress, as a map with keywords, or nil if nothing was scanned. Doesn't wait
+  for a background open, so it can be called while the open is still scanning."
+  []
+  (when-let [metrics (.getLastScanMetrics (IndexingApp/getInstance))]
+    (into {} (map (fn [[k v]] [(keyword k) (if (instance? Map v) (into {} v) v)])
+                  (.toMap metrics)))))
+
 ;;
 ;; ----------------------------------------------------------------------------------------------
 ;; Hierarchies
@@ -188,51 +318,53 @@
 
 ;;
 ;; ----------------------------------------------------------------------------------------------
-;; Package search
+;; Package wiring
 ;; ----------------------------------------------------------------------------------------------
 ;;
 
-(defn- extract-packages
-  "Extract packages from artifact map as sequence of vectors."
-  [artifact-map]
-  (as-> (get-in artifact-map [:jar-packages]) results
-        (map #(vector % (dissoc artifact-map :jar-packages)) results)))
+(def ^:private wire-kind->type
+  {PackageWiringIndex$Kind/PACKAGE "bundle/package"
+   PackageWiringIndex$Kind/SERVICE "bundle/service"})
+
+(defn wire-artifacts
+  "Wrapper for IndexingApp#wireArtifacts. Takes a coll of artifact maps and returns the
+  import->export wires between them as maps of :from and :to uinfo, :cause, and :type."
+  [artifact-maps]
+  (map (fn [^PackageWiringIndex$Wire wire]
+         {:from  (.getFrom wire)
+          :to    (.getTo wire)
+          :cause (.getCause wire)
+          :type  (wire-kind->type (.getKind wire))})
+       (.wireArtifacts (get-indexing-app) (map :uinfo artifact-maps))))
 
-(defn- reduce-packages
-  "Combines like artifacts by package."
-  [package-map next-package]
-  (if (not (contains? package-map (first next-package)))
-    (assoc package-map (first next-package) (list (last next-package)))
-    (update package-map (first next-package) #(cons (last next-package) %))))
+;;
+;; ----------------------------------------------------------------------------------------------
+;; Package search
+;; ----------------------------------------------------------------------------------------------
+;;
+
+(defn- package-artifact->map
+  "Converts an artifact found by package search into a map, keeping only the pom parent of the
+  custom attrs."
+  [^ArtifactInfo info]
+  (let [artifact-map (artifact-info->map info)]
+    (into {:pom-parent (get-in artifact-map [:attrs "POM_PARENT"])}
+          (dissoc artifact-map :attrs))))
 
 (defn do-package-search
   "Wrapper for IndexingApp#searchPackages."
-  [package-name]
-  (.searchPackages (get-indexing-app) package-name))
-
-(defn match-package-search?
-  "Predicate that can filter packages by matching them against the original wildcard search."
-  [package-search item]
-  (let [search-parts (.split package-search "\\*")]
-    (every? #(.contains item %) search-parts)))
+  [package-search]
+  (.searchPackages (get-indexing-app) package-search))
 
 (defn package-search
-  ;; Investigate non-trailing wildcards TODO
-  "Search for packages. Supports ending * wildcards only."
+  "Search for packages. Supports * wildcards anywhere in the search. Returns a coll of
+  [package artifacts] pairs, ordered by package, where every artifact contains the package."
   [package-search]
-  (as-> (map artifact-info->map (do-package-search package-search)) results
-        (filter #(contains? (:attrs %) "JAR_PACKAGES") results)
-        (map #(into
-                {:jar-packages (str/split (get-in % [:attrs "JAR_PACKAGES"]) #",")
-                 :pom-parent   (get-in % [:attrs "POM_PARENT"])}
-                (dissoc % :attrs))
-             results)
-        (mapcat extract-packages results)
-        (reduce reduce-packages {} results)
-        (filter #(match-package-search? package-search (first %)) results)))
+  (map (fn [[package infos]] [package (map package-artifact->map infos)])
+       (do-package-search package-search)))
 
 (comment
-  (count (map artifact-info->map (do-package-search "ddf.catalog*impl")))
+  (count (do-package-search "ddf.catalog*impl"))
   (count (map first (package-search "ddf.catalog*impl")))
   (reduce + (map #(count (second %)) (package-search "ddf.catalog*impl")))
   (reduce + (map #(count (second %)) (gather-hierarchy "ddf" "ddf" "2.19.5")))
@@ -0,0 +1,141 @@
+package com.connexta.osgeyes.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * Walks the results of a query one page at a time, so only a single page of {@link ArtifactInfo}s
+ * is ever held by the pager and callers that stop early never pay for the rest of the results.
+ *
+ * <p>Every page is its own search, starting after the last hit of the previous page, so each search
+ * only collects a page worth of hits no matter how deep into the results it is. Its searcher is
+ * released before the page is returned, so an abandoned pager holds no index resources. Only the
+ * fields of the {@link FieldProjection} are loaded for each hit. Pages are consistent with each
+ * other for as long as the index does not change while paging.
+ *
+ * <p>Not thread safe.
+ */
+public class ArtifactPager {
+
+  private final IndexingContext indexingContext;
+
+  private final Query query;
+
+  private final int pageSize;
+
+  private final FieldProjection projection;
+
+  // Last hit of the previous page, null before the first page
+  @Nullable private ScoreDoc after = null;
+
+  private long collected = 0;
+
+  private boolean exhausted = false;
+
+  ArtifactPager(
+      IndexingContext indexingContext, Query query, int pageSize, FieldProjection projection) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive, but was " + pageSize);
+    }
+    this.indexingContext = indexingContext;
+    this.query = query;
+    this.pageSize = pageSize;
+    this.projection = projection;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Fetches the next page of results.
+   *
+   * @return up to a page size worth of results, or an empty list once there are no more.
+   * @throws IOException if an error occurs during search.
+   */
+  public List<ArtifactInfo> nextPage() throws IOException {
+    if (exhausted) {
+      return Collections.emptyList();
+    }
+
+    final List<ArtifactInfo> page = new ArrayList<>(pageSize);
+    // Descriptor and group documents can match too, but they aren't artifacts so they're skipped;
+    // keep going until the page has something in it rather than signalling the end early
+    while (page.isEmpty() && !exhausted) {
+      final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+      try {
+        final TopDocs topDocs = searcher.searchAfter(after, query, pageSize);
+        final ScoreDoc[] hits = topDocs.scoreDocs;
+        for (ScoreDoc hit : hits) {
+          final ArtifactInfo info = projection.load(searcher, hit.doc, indexingContext);
+          if (info != null) {
+            info.setLuceneScore(hit.score);
+            page.add(info);
+          }
+        }
+        collected += hits.length;
+        exhausted = hits.length < pageSize || collected >= topDocs.totalHits;
+        if (hits.length > 0) {
+          after = hits[hits.length - 1];
+        }
+      } finally {
+        indexingContext.releaseIndexSearcher(searcher);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * @return a lazy stream over every remaining result, fetching pages only as they are consumed.
+   */
+  public Stream<ArtifactInfo> stream() {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            new PageIterator(), Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  private class PageIterator implements Iterator<ArtifactInfo> {
+
+    private Iterator<ArtifactInfo> current = Collections.emptyIterator();
+
+    @Override
+    public boolean hasNext() {
+      while (!current.hasNext()) {
+        if (exhausted) {
+          return false;
+        }
+        try {
+          current = nextPage().iterator();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public ArtifactInfo next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+  }
+}
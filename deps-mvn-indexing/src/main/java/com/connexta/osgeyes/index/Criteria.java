@@ -9,8 +9,6 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.apache.maven.index.Field;
 import org.apache.maven.index.Indexer;
-import org.apache.maven.index.expr.SourcedSearchExpression;
-import org.apache.maven.index.expr.UserInputSearchExpression;
 
 /**
  * General mechanism for specifying search criteria.
@@ -24,43 +22,51 @@ public class Criteria {
   private final Options options;
 
   /**
-   * Eventually it would be nice to remove this as a dependency. To do so, we would need to
-   * understand how mvn-indexer is building the query and own that process ourselves. For now that's
-   * too big a jump to be immediately useful.
+   * Shared by every criteria created from the same root, so identical criteria compile to the same
+   * query. Keyword fields are compiled directly; the indexer is still needed for analyzed fields,
+   * see {@link QueryCompiler}.
    */
-  private final Indexer indexer;
+  private final QueryCompiler compiler;
 
   public Criteria(Indexer indexer) {
     this(new Options(), indexer);
   }
 
   public Criteria(Options options, Indexer indexer) {
+    this(options, new QueryCompiler(Objects.requireNonNull(indexer, "indexer cannot be null")));
+  }
+
+  private Criteria(Options options, QueryCompiler compiler) {
     this.options = Objects.requireNonNull(options, "options cannot be null");
-    this.indexer = Objects.requireNonNull(indexer, "indexer cannot be null");
+    this.compiler = compiler;
   }
 
   public Options getOptions() {
     return options;
   }
 
+  QueryCompiler getCompiler() {
+    return compiler;
+  }
+
   public Indexer getIndexer() {
-    return indexer;
+    return compiler.getIndexer();
   }
 
   public Queryable of(Field field, String value) {
-    return new KeyValue(field, value, options, indexer);
+    return new KeyValue(field, value, options, compiler);
   }
 
   public Queryable of(Field field, String value, Options options) {
-    return new KeyValue(field, value, options, indexer);
+    return new KeyValue(field, value, options, compiler);
   }
 
   public Queryable of(Queryable... criteria) {
-    return new Compound(new Options(), Arrays.asList(criteria), indexer);
+    return new Compound(new Options(), Arrays.asList(criteria), compiler);
   }
 
   public Queryable of(Options options, Queryable... criteria) {
-    return new Compound(options, Arrays.asList(criteria), indexer);
+    return new Compound(options, Arrays.asList(criteria), compiler);
   }
 
   public Options options() {
@@ -99,11 +105,25 @@ public class Criteria {
    */
   public abstract static class Queryable extends Criteria {
 
-    public Queryable(Options options, Indexer indexer) {
-      super(options, indexer);
+    private Queryable(Options options, QueryCompiler compiler) {
+      super(options, compiler);
     }
 
-    public abstract Query getQuery();
+    /**
+     * Returns the Lucene query for this criteria. Queries are cached by {@link #getKey()}, so
+     * calling this repeatedly, or on structurally identical criteria, returns the same query, which
+     * must not be modified.
+     *
+     * @return the query.
+     */
+    public Query getQuery() {
+      return getCompiler().get(getKey(), this::compile);
+    }
+
+    /** @return a key that is equal for any two criteria that would compile to the same query. */
+    abstract QueryCompiler.Key getKey();
+
+    abstract Query compile();
   }
 
   /**
@@ -115,8 +135,8 @@ public class Criteria {
 
     private final List<Queryable> criteria;
 
-    public Compound(Options options, List<Queryable> criteria, Indexer indexer) {
-      super(options, indexer);
+    private Compound(Options options, List<Queryable> criteria, QueryCompiler compiler) {
+      super(options, compiler);
       if (criteria == null || criteria.isEmpty()) {
         throw new IllegalArgumentException("Null or empty criteria is not supported");
       }
@@ -124,9 +144,21 @@ public class Criteria {
     }
 
     @Override
-    public Query getQuery() {
+    QueryCompiler.Key getKey() {
       if (criteria.size() == 1) {
-        return criteria.get(0).getQuery();
+        return criteria.get(0).getKey();
+      }
+      // The occurrence of each clause is part of the query, the compound's own is not
+      return QueryCompiler.keyOf(
+          criteria.stream().map(c -> c.getOptions().occur).collect(Collectors.toList()),
+          criteria.stream().map(Queryable::getKey).collect(Collectors.toList()));
+    }
+
+    @Override
+    Query compile() {
+      if (criteria.size() == 1) {
+        // Shares its key with the single criteria, so compile it here rather than looking it up
+        return criteria.get(0).compile();
       }
       BooleanQuery.Builder builder = new BooleanQuery.Builder();
       criteria.forEach(c -> builder.add(c.getQuery(), c.getOptions().occur));
@@ -145,9 +177,8 @@ public class Criteria {
    * Terminal search criteria that looks for a particular matching between a key and a value,
    * typically a maven attribute indexed as part of the build model.
    *
-   * <p>Currently leverages code from the maven indexer library to hide some lucene details,
-   * although many parts of lucene are still leaking and should be cleaned up if further iteration
-   * is expected (depending on scope).
+   * <p>Compiled by the {@link QueryCompiler}, which only falls back to the maven indexer library
+   * for analyzed fields.
    */
   private static class KeyValue extends Queryable {
 
@@ -155,21 +186,20 @@ public class Criteria {
 
     private final String value;
 
-    private KeyValue(Field field, String value, Options options, Indexer indexer) {
-      super(options, indexer);
+    private KeyValue(Field field, String value, Options options, QueryCompiler compiler) {
+      super(options, compiler);
       this.field = field;
       this.value = value;
     }
 
     @Override
-    public Query getQuery() {
-      // Note the use of indexer expression classes, not strictly lucene classes
-      return getIndexer()
-          .constructQuery(
-              field,
-              getOptions().exact
-                  ? new SourcedSearchExpression(value)
-                  : new UserInputSearchExpression(value));
+    QueryCompiler.Key getKey() {
+      return QueryCompiler.keyOf(field, value, getOptions().exact);
+    }
+
+    @Override
+    Query compile() {
+      return getCompiler().compile(field, value, getOptions().exact);
     }
 
     @Override
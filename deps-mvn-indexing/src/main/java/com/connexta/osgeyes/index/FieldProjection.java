@@ -0,0 +1,136 @@
+package com.connexta.osgeyes.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.Field;
+import org.apache.maven.index.IndexerField;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexUtils;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * The stored fields to load when turning a search hit into an {@link ArtifactInfo}. Index creators
+ * only populate the attributes whose fields were loaded, so leaving out a field skips both reading
+ * it from disk and holding it on the heap for every hit.
+ *
+ * <p>The {@link #standard(Collection) standard} projection loads everything except the fields that
+ * are large and rarely needed, see {@link #HEAVY_FIELDS}. Those can be added back with {@link
+ * #including(Field...)}, or fetched for a single artifact later with {@link
+ * IndexingApp#loadArtifact(String)}.
+ *
+ * <p>Fields are stored under the keys of their {@link IndexerField}s rather than their names, and a
+ * single field can have several of them (the {@code MAVEN} fields in particular, whose values live
+ * in the {@link ArtifactInfo#UINFO} and {@link ArtifactInfo#INFO} fields among others), so
+ * projections are always resolved through the index creators.
+ *
+ * <p>Projections are immutable.
+ */
+public class FieldProjection {
+
+  /** Fields excluded from the standard projection. */
+  public static final Set<Field> HEAVY_FIELDS =
+      Collections.unmodifiableSet(
+          new HashSet<>(Arrays.asList(MvnOntology.JAR_MANIFEST, MvnOntology.JAR_PACKAGES)));
+
+  private static final FieldProjection ALL = new FieldProjection(null, Collections.emptyMap());
+
+  // Null when every stored field should be loaded
+  @Nullable private final Set<String> fieldNames;
+
+  // Lucene keys of every field of the index creators
+  private final Map<Field, Set<String>> keysByField;
+
+  private FieldProjection(@Nullable Set<String> fieldNames, Map<Field, Set<String>> keysByField) {
+    this.fieldNames = fieldNames == null ? null : Collections.unmodifiableSet(fieldNames);
+    this.keysByField = keysByField;
+  }
+
+  /** @return a projection that loads every stored field. */
+  public static FieldProjection all() {
+    return ALL;
+  }
+
+  /**
+   * @param indexCreators the creators of the index the projection will be used with.
+   * @return a projection of every stored field of the given creators, minus the heavy ones.
+   */
+  static FieldProjection standard(Collection<? extends IndexCreator> indexCreators) {
+    final Set<String> fieldNames =
+        indexCreators.stream()
+            .flatMap(creator -> creator.getIndexerFields().stream())
+            .filter(IndexerField::isStored)
+            .filter(field -> !HEAVY_FIELDS.contains(field.getOntology()))
+            .map(IndexerField::getKey)
+            .collect(Collectors.toCollection(HashSet::new));
+    // Every artifact document is identified by these, no matter which creators are present
+    fieldNames.add(ArtifactInfo.UINFO);
+    fieldNames.add(ArtifactInfo.INFO);
+    final Map<Field, Set<String>> keysByField =
+        indexCreators.stream()
+            .flatMap(creator -> creator.getIndexerFields().stream())
+            .collect(
+                Collectors.groupingBy(
+                    IndexerField::getOntology,
+                    Collectors.mapping(IndexerField::getKey, Collectors.toSet())));
+    return new FieldProjection(fieldNames, Collections.unmodifiableMap(keysByField));
+  }
+
+  /**
+   * @param fields additional fields to load, every key of which is loaded. Fields that none of the
+   *     index creators have are not part of the index, so there is nothing to load for them.
+   * @return a projection that loads the given fields along with the fields of this one.
+   */
+  public FieldProjection including(Field... fields) {
+    if (fieldNames == null) {
+      return this;
+    }
+    final Set<String> included = new HashSet<>(fieldNames);
+    for (Field field : fields) {
+      included.addAll(keysByField.getOrDefault(field, Collections.emptySet()));
+    }
+    return new FieldProjection(included, keysByField);
+  }
+
+  /** @return the keys of the stored fields to load, or {@code null} to load every one of them. */
+  @Nullable
+  Set<String> getFieldNames() {
+    return fieldNames;
+  }
+
+  /**
+   * Loads the projected fields of the document and builds the artifact they describe.
+   *
+   * @param searcher the searcher the document id belongs to.
+   * @param doc the document id.
+   * @param indexingContext the context the searcher was acquired from.
+   * @return the artifact, or {@code null} if the document does not describe one.
+   * @throws IOException if the document could not be read.
+   */
+  @Nullable
+  ArtifactInfo load(IndexSearcher searcher, int doc, IndexingContext indexingContext)
+      throws IOException {
+    final Document document =
+        fieldNames == null ? searcher.doc(doc) : searcher.doc(doc, fieldNames);
+    final ArtifactInfo info = IndexUtils.constructArtifactInfo(document, indexingContext);
+    if (info != null) {
+      info.setRepository(indexingContext.getRepositoryId());
+      info.setContext(indexingContext.getId());
+    }
+    return info;
+  }
+
+  @Override
+  public String toString() {
+    return fieldNames == null ? "[all]" : fieldNames.toString();
+  }
+}
@@ -7,22 +7,46 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
-import org.apache.lucene.search.BooleanClause.Occur;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
 import org.apache.maven.index.ArtifactContextProducer;
 import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.ArtifactInfoFilter;
@@ -46,6 +70,8 @@ import org.codehaus.plexus.PlexusConstants;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Custom Maven indexing app to provide build data directly to Clojure tooling.
@@ -71,16 +97,31 @@ import org.codehaus.plexus.component.repository.exception.ComponentLookupExcepti
  */
 public class IndexingApp implements Closeable {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(IndexingApp.class);
+
   private static final String PROP_WORKING_DIR = System.getProperty("user.dir");
 
   private static final String PROP_USER_HOME = System.getProperty("user.home");
 
   private static final String PROP_USER_REPO = System.getProperty("user.repo");
 
+  // Number of threads used while scanning the repository, defaults to the available processors
+  private static final int PROP_SCAN_THREADS =
+      Integer.getInteger("scan.threads", Runtime.getRuntime().availableProcessors());
+
+  // Seconds between progress lines while scanning the repository, zero turns them off
+  private static final long PROP_SCAN_PROGRESS_SECONDS = Long.getLong("scan.progress.seconds", 10L);
+
   private static final String INDEX_DIR_NAME = ".index";
 
   private static final String MIN_INDEX_CREATOR_ID = "min";
 
+  // Results fetched per search when paging, see pageArtifacts(...)
+  public static final int DEFAULT_PAGE_SIZE = 256;
+
+  // Bump whenever a change to the index creators invalidates existing indexes
+  private static final int INDEX_SCHEMA_VERSION = 2;
+
   // Using a singleton helps the object cleanly map to a Clojure namespace
   private static IndexingApp INSTANCE = null;
 
@@ -101,8 +142,22 @@ public class IndexingApp implements Closeable {
   // Controlled by object open(...) / close() lifecycle
   private IndexingContext indexingContext = null;
 
+  private Path repoLocation = null;
+
+  // Fields loaded for search results, based on the index creators of the context
+  private FieldProjection standardProjection = null;
+
+  // Tracks the Lucene index, see getHierarchyIndex(...)
+  private MvnHierarchyIndex hierarchyIndex = null;
+
+  // Tracks the Lucene index, see getWiringIndex(...)
+  private PackageWiringIndex wiringIndex = null;
+
+  // Metrics of the last scan, or the one in progress, see newRepositoryReader(...)
+  private volatile ScanMetrics lastScanMetrics = null;
+
   // Using a singleton helps the object cleanly map to a Clojure namespace
-  public static IndexingApp getInstance()
+  public static synchronized IndexingApp getInstance()
       throws PlexusContainerException, ComponentLookupException {
     if (INSTANCE == null) {
       INSTANCE = new IndexingApp();
@@ -126,14 +181,7 @@ public class IndexingApp implements Closeable {
   }
 
   private IndexingApp() throws PlexusContainerException, ComponentLookupException {
-    // Create a Plexus container, the Maven default IoC container
-    // Note that maven-indexer is a Plexus component
-    final DefaultContainerConfiguration config = new DefaultContainerConfiguration();
-
-    // Needed SCANNING_ON instead of SCANNING_INDEX so other main modules can find components
-    config.setClassPathScanning(PlexusConstants.SCANNING_ON);
-
-    this.plexusContainer = new DefaultPlexusContainer(config);
+    this.plexusContainer = createContainer();
     this.indexer = plexusContainer.lookup(Indexer.class);
     this.indexerEngine = plexusContainer.lookup(IndexerEngine.class);
     this.contextProducer = plexusContainer.lookup(ArtifactContextProducer.class);
@@ -147,6 +195,32 @@ public class IndexingApp implements Closeable {
         new JarManifestIndexCreator(), IndexCreator.class, JarManifestIndexCreator.ID);
     plexusContainer.addComponent(
         new JarPackagesIndexCreator(), IndexCreator.class, JarPackagesIndexCreator.ID);
+    plexusContainer.addComponent(
+        new OsgiHeadersIndexCreator(), IndexCreator.class, OsgiHeadersIndexCreator.ID);
+  }
+
+  /**
+   * Creates a Plexus container, the Maven default IoC container. Note that maven-indexer is a
+   * Plexus component.
+   *
+   * <p>Components are discovered through the Sisu indexes generated at build time, which is far
+   * cheaper than scanning every class on the classpath. If the indexes are missing, i.e. when a jar
+   * was repackaged without merging them, falls back to the full classpath scan.
+   */
+  private static PlexusContainer createContainer() throws PlexusContainerException {
+    final PlexusContainer container = createContainer(PlexusConstants.SCANNING_INDEX);
+    if (container.hasComponent(Indexer.class)) {
+      return container;
+    }
+    logline("Component index incomplete, scanning the classpath instead");
+    container.dispose();
+    return createContainer(PlexusConstants.SCANNING_ON);
+  }
+
+  private static PlexusContainer createContainer(String scanning) throws PlexusContainerException {
+    final DefaultContainerConfiguration config = new DefaultContainerConfiguration();
+    config.setClassPathScanning(scanning);
+    return new DefaultPlexusContainer(config);
   }
 
   /**
@@ -162,6 +236,15 @@ public class IndexingApp implements Closeable {
           "Cannot open indexer, it's already open, " + indexingContext.toString());
     }
     indexingContext = indexTryCreate(repoLocation);
+    this.repoLocation = repoLocation;
+    this.standardProjection = FieldProjection.standard(indexingContext.getIndexCreators());
+
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      getHierarchyIndex(searcher.getIndexReader());
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
     // Will revisit incremental updates later
     // remoteIndexUpdate(indexingContext);
   }
@@ -179,6 +262,10 @@ public class IndexingApp implements Closeable {
       indexer.closeIndexingContext(indexingContext, false);
       logline("...done!");
       indexingContext = null;
+      repoLocation = null;
+      standardProjection = null;
+      hierarchyIndex = null;
+      wiringIndex = null;
     }
   }
 
@@ -233,7 +320,7 @@ public class IndexingApp implements Closeable {
       app.search(
           app.criteria.of(
               app.criteria.of(
-                  MvnOntology.JAR_PACKAGES,
+                  MvnOntology.JAR_PACKAGE,
                   "mil.nga.gsr*",
                   app.criteria.getOptions().partialInput()),
               app.criteria.of(MAVEN.VERSION, "16*")));
@@ -304,6 +391,34 @@ public class IndexingApp implements Closeable {
     throw new IllegalStateException(message);
   }
 
+  /**
+   * Identifies the current state of the index, so results derived from it can be cached and
+   * discarded automatically once the index changes. Invokable by Clojure.
+   *
+   * @return a string that changes whenever the contents of the index change.
+   * @throws IOException if the index could not be read.
+   */
+  public String getIndexVersion() throws IOException {
+    validateContext();
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      return MvnHierarchyIndex.versionOf(searcher.getIndexReader());
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
+  }
+
+  /**
+   * Accessor for the metrics of the last repository scan, or of the one in progress, invokable by
+   * Clojure. The same metrics are available over JMX as {@value ScanMetrics#OBJECT_NAME}.
+   *
+   * @return the metrics, or null if nothing was scanned since the app started.
+   */
+  @Nullable
+  public ScanMetrics getLastScanMetrics() {
+    return lastScanMetrics;
+  }
+
   /**
    * Provides a generic way to search a Maven repository for artifacts using a full criteria query.
    *
@@ -319,21 +434,181 @@ public class IndexingApp implements Closeable {
   }
 
   /**
-   * Provides a way to search for Java packages within artifacts. Wildcards (*) supported at the end
-   * of the package search string. Adding a wildcard in the middle of the string works in some cases
-   * but is not yet fully supported.
+   * Provides a way to search a Maven repository for artifacts one page at a time, so broad queries
+   * never have to hold all of their results at once. Invokable by Clojure.
+   *
+   * @param criteria the query.
+   * @param pageSize the maximum number of artifacts in each page.
+   * @return a pager over the artifacts that match the query criteria.
+   */
+  public ArtifactPager pageArtifacts(Criteria.Queryable criteria, int pageSize) {
+    validateContext();
+    return pageArtifacts(criteria, pageSize, standardProjection);
+  }
+
+  /**
+   * Same as {@link #pageArtifacts(Criteria.Queryable, int)}, but only loads the stored fields of
+   * the given projection for each artifact.
+   *
+   * @param criteria the query.
+   * @param pageSize the maximum number of artifacts in each page.
+   * @param projection the fields to load for each artifact.
+   * @return a pager over the artifacts that match the query criteria.
+   */
+  public ArtifactPager pageArtifacts(
+      Criteria.Queryable criteria, int pageSize, FieldProjection projection) {
+    validateContext();
+    return new ArtifactPager(indexingContext, criteria.getQuery(), pageSize, projection);
+  }
+
+  /**
+   * Explains where the time of a query goes and how selective each of its clauses is, see {@link
+   * QueryExplanation}. Invokable by Clojure.
    *
-   * @param packageName the package prefix to search for.
-   * @return artifacts that have a non-empty package matching the provided string.
+   * @param criteria the query.
+   * @param limit the number of hits to load, as with the page size when paging.
+   * @return the explanation.
    * @throws IOException if an error occurs during search.
    */
-  public Collection<ArtifactInfo> searchPackages(String packageName) throws IOException {
+  public QueryExplanation explain(Criteria.Queryable criteria, int limit) throws IOException {
     validateContext();
-    Criteria.Queryable query =
-        criteria.of(MvnOntology.JAR_PACKAGES, packageName, criteria.options().partialInput());
-    IteratorSearchRequest request = new IteratorSearchRequest(query.getQuery(), indexingContext);
-    IteratorSearchResponse response = indexer.searchIterator(request);
-    return Lists.newArrayList(response.getResults().iterator());
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      return QueryExplanation.explain(
+          criteria, searcher, indexingContext, standardProjection, limit);
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
+  }
+
+  /**
+   * The projection used by default when searching, which leaves out {@link
+   * FieldProjection#HEAVY_FIELDS}. Invokable by Clojure.
+   *
+   * @return the fields loaded for each artifact unless specified otherwise.
+   */
+  public FieldProjection getStandardProjection() {
+    validateContext();
+    return standardProjection;
+  }
+
+  /**
+   * Loads every stored field of a single artifact, including the ones that are left out of search
+   * results by default.
+   *
+   * @param uinfo the {@link ArtifactInfo#UINFO} of the artifact.
+   * @return the fully populated artifact, or {@code null} if it is no longer in the index.
+   * @throws IOException if an error occurs during search.
+   */
+  @Nullable
+  public ArtifactInfo loadArtifact(String uinfo) throws IOException {
+    validateContext();
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      final TopDocs topDocs =
+          searcher.search(new TermQuery(new Term(ArtifactInfo.UINFO, uinfo)), 1);
+      if (topDocs.scoreDocs.length == 0) {
+        return null;
+      }
+      return FieldProjection.all().load(searcher, topDocs.scoreDocs[0].doc, indexingContext);
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
+  }
+
+  /**
+   * Lazily streams the artifacts that match the query, fetching {@link #DEFAULT_PAGE_SIZE} of them
+   * at a time as the stream is consumed.
+   *
+   * @param criteria the query.
+   * @return a stream of the artifacts that match the query criteria.
+   */
+  public Stream<ArtifactInfo> streamArtifacts(Criteria.Queryable criteria) {
+    return pageArtifacts(criteria, DEFAULT_PAGE_SIZE).stream();
+  }
+
+  /**
+   * Provides a way to search for Java packages within artifacts. Wildcards (*) are supported
+   * anywhere in the package search string; a search without wildcards matches a package exactly.
+   *
+   * <p>Packages are individual terms in a sorted terms dictionary, so only the terms that share the
+   * literal prefix of the search (everything before the first wildcard) are visited, and the rest
+   * of the search is matched against each of those terms.
+   *
+   * @param packageSearch the package, or package pattern, to search for.
+   * @return every matching package, in order, mapped to the artifacts that contain it.
+   * @throws IOException if an error occurs during search.
+   */
+  public Map<String, List<ArtifactInfo>> searchPackages(String packageSearch) throws IOException {
+    validateContext();
+    final int wildcard = packageSearch.indexOf('*');
+    final String prefix = wildcard < 0 ? packageSearch : packageSearch.substring(0, wildcard);
+    final Pattern pattern = packagePattern(packageSearch);
+
+    final Map<String, List<ArtifactInfo>> results = new TreeMap<>();
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      final IndexReader reader = searcher.getIndexReader();
+      final Terms terms = MultiFields.getTerms(reader, MvnOntology.JAR_PACKAGE.getFieldName());
+      if (terms == null) {
+        return results;
+      }
+
+      final Bits liveDocs = MultiFields.getLiveDocs(reader);
+      // A jar matches many packages, only resolve each of its documents once
+      final Map<Integer, ArtifactInfo> infosByDoc = new HashMap<>();
+      final BytesRef prefixBytes = new BytesRef(prefix);
+      final TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postings = null;
+
+      if (termsEnum.seekCeil(prefixBytes) == TermsEnum.SeekStatus.END) {
+        return results;
+      }
+      for (BytesRef term = termsEnum.term();
+          term != null && StringHelper.startsWith(term, prefixBytes);
+          term = termsEnum.next()) {
+        final String packageName = term.utf8ToString();
+        if (!pattern.matcher(packageName).matches()) {
+          continue;
+        }
+        final List<ArtifactInfo> artifacts = new ArrayList<>();
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        for (int doc = postings.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = postings.nextDoc()) {
+          if (liveDocs != null && !liveDocs.get(doc)) {
+            continue;
+          }
+          final ArtifactInfo info =
+              infosByDoc.computeIfAbsent(doc, d -> constructInfo(searcher, d));
+          if (info != null) {
+            artifacts.add(info);
+          }
+        }
+        if (!artifacts.isEmpty()) {
+          results.put(packageName, artifacts);
+        }
+      }
+      return results;
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
+  }
+
+  private static Pattern packagePattern(String packageSearch) {
+    return Pattern.compile(
+        Arrays.stream(packageSearch.split("\\*", -1))
+            .map(part -> part.isEmpty() ? "" : Pattern.quote(part))
+            .collect(Collectors.joining(".*")));
+  }
+
+  @Nullable
+  private ArtifactInfo constructInfo(IndexSearcher searcher, int doc) {
+    try {
+      return standardProjection.load(searcher, doc, indexingContext);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
@@ -358,6 +633,9 @@ public class IndexingApp implements Closeable {
    * <p>Currently this search only targets modules with packaging {@code pom} or {@code bundle} but
    * can be evolved to be more flexible in the future.
    *
+   * <p>Artifacts are loaded with the {@link #getStandardProjection() standard projection}, use
+   * {@link #loadArtifact(String)} for any of the heavy fields.
+   *
    * @param root the coordinate of the root node.
    * @return a collection of all terminal artifacts within the hierarchy.
    * @throws IOException if an error occurs during search.
@@ -365,120 +643,115 @@ public class IndexingApp implements Closeable {
   public Collection<ArtifactInfo> gatherHierarchy(MvnCoordinate root) throws IOException {
 
     validateContext();
-    validateRoot(root);
-
-    /*
-    // NOTE - the equals() and hashcode() for ArtifactInfo is wrong so Sets are broken
-    //    final Set<ArtifactInfo> totalResults =
-    //        new TreeSet<>(
-    //            Comparator.comparing(ArtifactInfo::getGroupId)
-    //                .thenComparing(ArtifactInfo::getArtifactId)
-    //                .thenComparing(ArtifactInfo::getVersion));
-    */
-    final List<ArtifactInfo> totalResults = new ArrayList<>();
-
-    boolean keepGoing = true;
-    List<MvnCoordinate> nextUp = new ArrayList<>();
-    nextUp.add(root);
-
-    do {
-
-      final List<IteratorSearchRequest> requests =
-          nextUp.stream()
-              .map(this::createSubmoduleQuery)
-              .map(q -> new IteratorSearchRequest(q, indexingContext))
-              .collect(Collectors.toList());
-
-      final List<IteratorSearchResponse> responses = new ArrayList<>(requests.size());
-      for (IteratorSearchRequest request : requests) {
-        responses.add(indexer.searchIterator(request));
-      }
-
-      final List<ArtifactInfo> results =
-          responses.stream()
-              .map(IteratorSearchResponse::getResults)
-              .flatMap(r -> StreamSupport.stream(r.spliterator(), false))
-              .collect(Collectors.toList());
 
-      totalResults.addAll(results);
-
-      keepGoing = !responses.isEmpty();
-      nextUp =
-          results.stream()
-              .map(
-                  info ->
-                      MvnCoordinate.newInstance(
-                          info.getGroupId(), info.getArtifactId(), info.getVersion()))
-              .collect(Collectors.toList());
-
-    } while (keepGoing);
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      // Doc ids from the hierarchy are only valid for the reader it was built against
+      final MvnHierarchyIndex hierarchy = getHierarchyIndex(searcher.getIndexReader());
+      validateRoot(hierarchy, root);
+
+      /*
+      // NOTE - the equals() and hashcode() for ArtifactInfo is wrong so Sets are broken
+      //    final Set<ArtifactInfo> totalResults =
+      //        new TreeSet<>(
+      //            Comparator.comparing(ArtifactInfo::getGroupId)
+      //                .thenComparing(ArtifactInfo::getArtifactId)
+      //                .thenComparing(ArtifactInfo::getVersion));
+      */
+      final List<ArtifactInfo> totalResults = new ArrayList<>();
+
+      for (int doc : hierarchy.gather(root)) {
+        final ArtifactInfo info = constructInfo(searcher, doc);
+        if (info != null) {
+          totalResults.add(info);
+        }
+      }
 
-    totalResults.sort(
-        Comparator.comparing(ArtifactInfo::getGroupId)
-            .thenComparing(ArtifactInfo::getArtifactId)
-            .thenComparing(ArtifactInfo::getVersion));
+      totalResults.sort(
+          Comparator.comparing(ArtifactInfo::getGroupId)
+              .thenComparing(ArtifactInfo::getArtifactId)
+              .thenComparing(ArtifactInfo::getVersion));
 
-    return totalResults;
+      return totalResults;
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
   }
 
   /**
-   * Creates a query that will retrieve modules that specify the provided parent as their {@code
-   * <parent/>} in their pom.
+   * Wires the given artifacts together by matching the packages and services each one imports
+   * against the ones the others export. Every exporter of an import gets its own wire, not just one
+   * of them. Artifacts without OSGi headers, or that are not in the index, are ignored.
    *
-   * <p>The original strategy was to be a bit more precise with the query and leverage the {@code
-   * <modules/>} block as well, but there is no guarantee that a module string is also the artifact
-   * ID. See the discrepancy in DDF for an example.
-   *
-   * <p><a href="https://github.com/codice/ddf/blob/ddf-2.19.5/pom.xml#L1233">Parent</a> <a
-   * href="https://github.com/codice/ddf/blob/ddf-2.19.5/libs/pom.xml#L23">Child</a>
+   * @param artifactUinfos the {@link ArtifactInfo#UINFO} of each artifact to wire together.
+   * @return the import -> export wires between the given artifacts.
+   * @throws IOException if the wiring could not be built.
+   */
+  public List<PackageWiringIndex.Wire> wireArtifacts(Collection<String> artifactUinfos)
+      throws IOException {
+    validateContext();
+    final IndexSearcher searcher = indexingContext.acquireIndexSearcher();
+    try {
+      return getWiringIndex(searcher.getIndexReader()).wire(artifactUinfos);
+    } finally {
+      indexingContext.releaseIndexSearcher(searcher);
+    }
+  }
+
+  /**
+   * Returns the wiring index for the given reader, rebuilding it if the index has changed since it
+   * was last built. Unlike the hierarchy it is only built on first use and is not saved.
    *
-   * <p>It was also intended to include 'jar' but those results were not necessary for this
-   * iteration and the artifacts would just have to be filtered down to bundles anyway (for now).
+   * @param reader the reader to build from, if needed.
+   * @return a wiring index that is up to date with the given reader.
+   * @throws IOException if the wiring could not be built.
+   */
+  private synchronized PackageWiringIndex getWiringIndex(IndexReader reader) throws IOException {
+    final String version = MvnHierarchyIndex.versionOf(reader);
+    if (wiringIndex == null || !wiringIndex.getVersion().equals(version)) {
+      logline("Building package wiring index");
+      wiringIndex = PackageWiringIndex.build(reader, version);
+    }
+    return wiringIndex;
+  }
+
+  /**
+   * Returns the hierarchy index for the given reader, rebuilding it (and its sidecar file) if the
+   * index has changed since it was last built.
    *
-   * @param parent the parent module.
-   * @return a query that will yield children of the parent.
+   * @param reader the reader that will be used to resolve the documents of the hierarchy.
+   * @return a hierarchy index that is valid for the given reader.
+   * @throws IOException if the hierarchy could not be built.
    */
-  private Query createSubmoduleQuery(MvnCoordinate parent) {
-    final Criteria.Queryable queryable =
-        criteria.of(
-            criteria.of(MvnOntology.POM_PARENT, MvnCoordinate.write(parent)),
-            criteria.of(
-                criteria.of(MAVEN.PACKAGING, "pom", criteria.options().with(Occur.SHOULD)),
-                criteria.of(
-                    criteria.options().with(Occur.SHOULD),
-                    criteria.of(MAVEN.PACKAGING, "jar"),
-                    criteria.of(MAVEN.EXTENSION, "jar")),
-                criteria.of(
-                    criteria.options().with(Occur.SHOULD),
-                    criteria.of(MAVEN.PACKAGING, "bundle"),
-                    criteria.of(MAVEN.EXTENSION, "jar"))));
-    return queryable.getQuery();
+  private synchronized MvnHierarchyIndex getHierarchyIndex(IndexReader reader) throws IOException {
+    final String version = MvnHierarchyIndex.versionOf(reader);
+    if (hierarchyIndex != null && hierarchyIndex.getVersion().equals(version)) {
+      return hierarchyIndex;
+    }
+
+    hierarchyIndex = MvnHierarchyIndex.read(repoLocation, version);
+    if (hierarchyIndex == null) {
+      logline("Building hierarchy index");
+      hierarchyIndex = MvnHierarchyIndex.build(reader, version);
+      try {
+        hierarchyIndex.write(repoLocation);
+      } catch (IOException e) {
+        logline("Could not save hierarchy index, it will be rebuilt next time: " + e.getMessage());
+      }
+    }
+    return hierarchyIndex;
   }
 
   /**
    * Ensures the provided "root" maven coordinate exists and is suitable for retrieving a hierarchy.
    * Right now only {@code <packaging>pom</packaging>} is supported for hierarchies.
    *
+   * @param hierarchy the hierarchy of the index.
    * @param root target maven artifact to validate.
    * @throws IllegalArgumentException if root is invalid for the purposes of hierarchy retrieval.
-   * @throws IOException if any intermediate queries fail.
    */
-  private void validateRoot(MvnCoordinate root) throws IOException {
-    // TODO - note that we might be able to sub-interface MAVEN with our own (MvnOntology too long)
-    final Query rootCriteria =
-        criteria
-            .of(
-                criteria.of(MAVEN.GROUP_ID, root.getGroupId()),
-                criteria.of(MAVEN.ARTIFACT_ID, root.getArtifactId()),
-                criteria.of(MAVEN.VERSION, root.getVersion()),
-                criteria.of(MAVEN.PACKAGING, "pom"))
-            .getQuery();
-
-    final FlatSearchResponse rootResponse =
-        indexer.searchFlat(new FlatSearchRequest(rootCriteria, indexingContext));
-
-    final Set<ArtifactInfo> rootResults = rootResponse.getResults();
-    if (rootResults.size() != 1) {
+  private void validateRoot(MvnHierarchyIndex hierarchy, MvnCoordinate root) {
+    if (!hierarchy.isSinglePom(root)) {
       throw new IllegalArgumentException("Provided root coordinates did not yield a single result");
     }
   }
@@ -495,6 +768,10 @@ public class IndexingApp implements Closeable {
    * <p>The default index location will be in {@code ~/.m2/repository/.index/} right alongside the
    * artifacts themselves, unless system property {@code user.repo} is specified to overwrite this.
    *
+   * <p>An existing index is only reused when the {@link RepositoryFingerprints} saved next to it
+   * match the current index schema, in which case only the artifact directories that were added,
+   * changed, or removed since the last open are applied to it. Otherwise the index is rebuilt.
+   *
    * @see #getRepoLocation()
    * @see #getUserSpecifiedRepoLocation()
    * @param repoLocation the location to create the index directory for storing the index.
@@ -516,6 +793,7 @@ public class IndexingApp implements Closeable {
     indexers.add(plexusContainer.lookup(IndexCreator.class, MvnHierarchyIndexCreator.ID));
     indexers.add(plexusContainer.lookup(IndexCreator.class, JarManifestIndexCreator.ID));
     indexers.add(plexusContainer.lookup(IndexCreator.class, JarPackagesIndexCreator.ID));
+    indexers.add(plexusContainer.lookup(IndexCreator.class, OsgiHeadersIndexCreator.ID));
 
     final Supplier<IndexingContext> contextSupplier =
         () -> {
@@ -539,15 +817,25 @@ public class IndexingApp implements Closeable {
           }
         };
 
+    final String schema = indexSchema(indexers);
+
     // Crude way to account for '.DS_Store' by checking for > 1 instead of > 0
     if (indexLocationDir.exists()
         && indexLocationDir.isDirectory()
         && indexDirContents != null
         && indexDirContents.length > 1) {
-      logline("Index found: " + indexLocationDir);
-      return contextSupplier.get();
+      final RepositoryFingerprints previous = RepositoryFingerprints.read(repoLocation, schema);
+      if (previous != null) {
+        logline("Index found: " + indexLocationDir);
+        final IndexingContext indexingContext = contextSupplier.get();
+        indexUpdate(indexingContext, repoLocation, previous, schema);
+        return indexingContext;
+      }
+      logline("Index found but it is out of date, rebuilding: " + indexLocationDir);
     }
 
+    RepositoryFingerprints.delete(repoLocation);
+
     if (indexLocationDir.exists()) {
       if (indexLocationDir.isDirectory()) {
         try (final Stream<Path> paths = Files.walk(indexLocation)) {
@@ -572,23 +860,176 @@ public class IndexingApp implements Closeable {
     final IndexingContext indexingContext = contextSupplier.get();
     logline("Creating index for repository at " + indexingContext.getRepository());
     logline("Creating index at " + indexLocationDir);
+    logline("Scanning with " + Math.max(1, PROP_SCAN_THREADS) + " thread(s)");
+
+    final RepositoryFingerprints fingerprints = RepositoryFingerprints.compute(repoLocation);
+    final ArtifactScanningListener listener =
+        new DefaultScannerListener(indexingContext, indexerEngine, false, fingerprints.recorder());
+    final RepositoryReader repositoryReader = newRepositoryReader(indexingContext);
+    final ScanningRequest scanningRequest = new ScanningRequest(indexingContext, listener);
+    final ScanningResult result;
+    try (final Closeable progress = reportProgress(repositoryReader)) {
+      result = repositoryReader.scan(scanningRequest);
+    }
+
+    logScanResult(result, repositoryReader.getMetrics());
+    fingerprints.write(schema);
+
+    return indexingContext;
+  }
+
+  /**
+   * Brings an existing index up to date with the repository by rescanning only the artifact
+   * directories whose fingerprints differ from the ones saved when the index was last written.
+   * Documents from changed or removed directories are deleted before the rescan adds them back, and
+   * groups left without any artifacts are dropped from the context's group lists. The index is
+   * committed once, at the very end.
+   *
+   * @param indexingContext the opened, existing index.
+   * @param repoLocation the location of the repository the index describes.
+   * @param previous the fingerprints saved alongside the index.
+   * @param schema the current index schema.
+   * @throws IOException if an error occurs while updating the index.
+   */
+  private void indexUpdate(
+      IndexingContext indexingContext,
+      Path repoLocation,
+      RepositoryFingerprints previous,
+      String schema)
+      throws IOException {
+    final RepositoryFingerprints current = RepositoryFingerprints.compute(repoLocation);
+    final RepositoryFingerprints.Delta delta = current.update(previous);
+    if (delta.isEmpty()) {
+      logline("Index is up to date");
+      return;
+    }
+
+    logline(
+        String.format(
+            "Updating index: %d added, %d changed, %d removed artifact directories",
+            delta.getAddedCount(), delta.getChangedCount(), delta.getRemovedCount()));
+
+    final IndexWriter indexWriter = indexingContext.getIndexWriter();
+    for (String uinfo : delta.getStaleUinfos()) {
+      indexWriter.deleteDocuments(new Term(ArtifactInfo.UINFO, uinfo));
+    }
+
+    // The listener replaces the group lists with only what it saw, so merge them back afterwards
+    final Set<String> rootGroups = new TreeSet<>(indexingContext.getRootGroups());
+    final Set<String> allGroups = new TreeSet<>(indexingContext.getAllGroups());
 
     final ArtifactScanningListener listener =
-        new DefaultScannerListener(indexingContext, indexerEngine, false, null);
-    final RepositoryReader repositoryReader = new RepositoryReader(contextProducer);
+        new DefaultScannerListener(
+            withoutOptimize(indexingContext), indexerEngine, false, current.recorder());
+    final RepositoryReader repositoryReader = newRepositoryReader(indexingContext);
     final ScanningRequest scanningRequest = new ScanningRequest(indexingContext, listener);
-    final ScanningResult result = repositoryReader.scan(scanningRequest);
+    final ScanningResult result;
+    try (final Closeable progress = reportProgress(repositoryReader)) {
+      result = repositoryReader.scan(scanningRequest, delta.getDirectoriesToScan(repoLocation));
+    }
+
+    rootGroups.addAll(indexingContext.getRootGroups());
+    allGroups.addAll(indexingContext.getAllGroups());
+    final Set<String> removedGroups = current.getRemovedGroupIds(delta);
+    if (!removedGroups.isEmpty()) {
+      allGroups.removeAll(removedGroups);
+      final Set<String> liveRootGroups =
+          allGroups.stream().map(IndexingApp::rootGroup).collect(Collectors.toSet());
+      removedGroups.stream()
+          .map(IndexingApp::rootGroup)
+          .filter(rootGroup -> !liveRootGroups.contains(rootGroup))
+          .forEach(rootGroups::remove);
+      logline("Removed groups without artifacts: " + String.join(", ", removedGroups));
+    }
+    indexingContext.setRootGroups(rootGroups);
+    indexingContext.setAllGroups(allGroups);
+    final long commitStart = System.nanoTime();
+    indexingContext.commit();
+    repositoryReader.getMetrics().finishTimed(System.nanoTime() - commitStart);
+
+    logScanResult(result, repositoryReader.getMetrics());
+    current.write(schema);
+  }
+
+  /**
+   * Wraps the context handed to the listener of an incremental update so finishing the scan skips
+   * {@link IndexingContext#optimize()}. The listener would otherwise commit the index on its own,
+   * twice, before {@link #indexUpdate(IndexingContext, Path, RepositoryFingerprints, String)} has
+   * settled the group lists and commits it anyway; merging segments is left to Lucene.
+   */
+  private static IndexingContext withoutOptimize(IndexingContext indexingContext) {
+    return (IndexingContext)
+        Proxy.newProxyInstance(
+            IndexingContext.class.getClassLoader(),
+            new Class<?>[] {IndexingContext.class},
+            (proxy, method, args) -> {
+              if ("optimize".equals(method.getName()) && method.getParameterCount() == 0) {
+                return null;
+              }
+              try {
+                return method.invoke(indexingContext, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
 
+  /** Mirrors {@link ArtifactInfo#getRootGroup()}, the group id up to its first dot. */
+  private static String rootGroup(String groupId) {
+    final int dot = groupId.indexOf('.');
+    return dot < 0 ? groupId : groupId.substring(0, dot);
+  }
+
+  /**
+   * Creates a reader for a single scan of the context, with fresh metrics that replace those of the
+   * last scan, both for {@link #getLastScanMetrics()} and over JMX.
+   */
+  private RepositoryReader newRepositoryReader(IndexingContext indexingContext) {
+    final ScanMetrics metrics = new ScanMetrics(indexingContext.getIndexCreators());
+    lastScanMetrics = metrics;
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(ScanMetrics.OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(metrics, name);
+    } catch (JMException e) {
+      logline("Could not register scan metrics with JMX: " + e.getMessage());
+    }
+    return new RepositoryReader(contextProducer, Math.max(1, PROP_SCAN_THREADS), metrics);
+  }
+
+  private static Closeable reportProgress(RepositoryReader repositoryReader) {
+    return repositoryReader
+        .getMetrics()
+        .reportProgress(PROP_SCAN_PROGRESS_SECONDS, IndexingApp::logline);
+  }
+
+  private static void logScanResult(ScanningResult result, ScanMetrics metrics) {
     logline("Scan has finished");
     logline("Total files: " + result.getTotalFiles());
     logline("Total deleted: " + result.getDeletedFiles());
+    logline(metrics.toProgressLine());
+    logline("Time spent per index creator (ms): " + metrics.getIndexCreatorMillis());
+    logline(
+        String.format(
+            "Time spent writing (ms): %d, committing and merging (ms): %d",
+            metrics.getWriterMillis(), metrics.getFinishMillis()));
 
     if (!result.getExceptions().isEmpty()) {
-      logline("Some problems occurred during the scan:");
-      result.getExceptions().forEach(Exception::printStackTrace);
+      logline(result.getExceptions().size() + " problem(s) occurred during the scan:");
+      for (Exception e : result.getExceptions()) {
+        logline("  " + e);
+        LOGGER.debug("Problem during the scan", e);
+      }
     }
+  }
 
-    return indexingContext;
+  private static String indexSchema(List<IndexCreator> indexers) {
+    return INDEX_SCHEMA_VERSION
+        + ":"
+        + indexers.stream().map(IndexCreator::getId).collect(Collectors.joining(","));
   }
 
   private void search(ArtifactInfoFilter filter, Criteria.Queryable criteria) throws IOException {
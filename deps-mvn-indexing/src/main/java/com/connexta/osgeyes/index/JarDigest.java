@@ -0,0 +1,222 @@
+package com.connexta.osgeyes.index;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.util.zip.CentralDirectoryZipHandle;
+import org.apache.maven.index.util.zip.ZipFacade;
+import org.apache.maven.index.util.zip.ZipHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Everything the custom {@link org.apache.maven.index.context.IndexCreator}s need out of an
+ * artifact's jar, extracted in a single pass. The first creator to ask for the digest of an {@link
+ * ArtifactContext} pays for opening the jar and reading its central directory; every other creator
+ * working on the same context gets the same digest back, so adding a creator that works off of jar
+ * contents costs no additional I/O.
+ *
+ * <p>When the jar can be read through a {@link CentralDirectoryZipHandle}, entry names are visited
+ * in place and only the distinct class packages are ever materialized as strings.
+ *
+ * <p>Digests are held weakly against the identity of their context, which only lives as long as it
+ * takes to index the artifact.
+ */
+final class JarDigest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JarDigest.class);
+
+  private static final String MANIFEST_ENTRY = "META-INF/MANIFEST.MF";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private static final JarDigest EMPTY = new JarDigest(Collections.emptyList(), null);
+
+  private static final LoadingCache<ArtifactContext, JarDigest> DIGESTS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(
+              new CacheLoader<ArtifactContext, JarDigest>() {
+                @Override
+                public JarDigest load(ArtifactContext artifactContext) throws IOException {
+                  return read(artifactContext.getArtifact());
+                }
+              });
+
+  private final List<String> classPackages;
+
+  @Nullable private final String manifestText;
+
+  private JarDigest(List<String> classPackages, @Nullable String manifestText) {
+    this.classPackages = classPackages;
+    this.manifestText = manifestText;
+  }
+
+  /**
+   * Returns the digest of the artifact's jar, reading it if this is the first request for the given
+   * context. Artifacts that are not jars get an empty digest.
+   *
+   * @param artifactContext the context of the artifact being indexed.
+   * @return the digest of the artifact's jar.
+   * @throws IOException if the jar could not be read.
+   */
+  static JarDigest of(ArtifactContext artifactContext) throws IOException {
+    if (!isJar(artifactContext.getArtifact())) {
+      return EMPTY;
+    }
+    try {
+      return DIGESTS.get(artifactContext);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IOException("Could not read jar " + artifactContext.getArtifact(), cause);
+    }
+  }
+
+  /** @return true if the artifact was a jar, even if that jar ended up being empty. */
+  boolean isPresent() {
+    return this != EMPTY;
+  }
+
+  /**
+   * @return the distinct packages of every class file in the jar, in the order they were first
+   *     encountered, using dot notation. Classes at the root of the jar map to an empty string.
+   */
+  List<String> getClassPackages() {
+    return classPackages;
+  }
+
+  /** @return the text of the jar's manifest, or {@code null} if it does not have one. */
+  @Nullable
+  String getManifestText() {
+    return manifestText;
+  }
+
+  private static boolean isJar(@Nullable File artifactFile) {
+    return artifactFile != null && artifactFile.isFile() && artifactFile.getName().endsWith(".jar");
+  }
+
+  private static JarDigest read(File artifactFile) throws IOException {
+    ZipHandle handle = null;
+    try {
+      handle = ZipFacade.getZipHandle(artifactFile);
+      final PackageCollector packages = new PackageCollector();
+      if (handle instanceof CentralDirectoryZipHandle) {
+        ((CentralDirectoryZipHandle) handle).forEachEntryName(packages);
+      } else {
+        handle.getEntries().forEach(packages);
+      }
+      String manifestText = null;
+      if (handle.hasEntry(MANIFEST_ENTRY)) {
+        try (final InputStream in = handle.getEntryContent(MANIFEST_ENTRY)) {
+          manifestText = readAllBytes(in);
+        }
+      }
+      return new JarDigest(packages.getPackages(), manifestText);
+    } finally {
+      try {
+        ZipFacade.close(handle);
+      } catch (Exception e) {
+        LOGGER.error("Could not close jar file properly", e);
+      }
+    }
+  }
+
+  /**
+   * Turns class file entry names into their packages. Classes of the same package tend to be listed
+   * together, so a new string is only created when the package differs from the previous one.
+   */
+  private static class PackageCollector implements Consumer<CharSequence> {
+
+    private final Set<String> packages = new LinkedHashSet<>();
+
+    private String previous = null;
+
+    @Override
+    public void accept(CharSequence name) {
+      final int length = name.length();
+      if (!endsWith(name, CLASS_SUFFIX)) {
+        return;
+      }
+      int slash = -1;
+      for (int i = length - CLASS_SUFFIX.length() - 1; i >= 0; i--) {
+        if (name.charAt(i) == '/') {
+          slash = i;
+          break;
+        }
+      }
+      final int packageLength = Math.max(slash, 0);
+      if (previous != null && matchesPackage(previous, name, packageLength)) {
+        return;
+      }
+      final StringBuilder builder = new StringBuilder(packageLength);
+      for (int i = 0; i < packageLength; i++) {
+        final char c = name.charAt(i);
+        builder.append(c == '/' ? '.' : c);
+      }
+      previous = builder.toString();
+      packages.add(previous);
+    }
+
+    private List<String> getPackages() {
+      return Collections.unmodifiableList(new ArrayList<>(packages));
+    }
+
+    private static boolean endsWith(CharSequence name, String suffix) {
+      final int offset = name.length() - suffix.length();
+      if (offset < 0) {
+        return false;
+      }
+      for (int i = 0; i < suffix.length(); i++) {
+        if (name.charAt(offset + i) != suffix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean matchesPackage(String pkg, CharSequence name, int packageLength) {
+      if (pkg.length() != packageLength) {
+        return false;
+      }
+      for (int i = 0; i < packageLength; i++) {
+        final char c = name.charAt(i);
+        if (pkg.charAt(i) != (c == '/' ? '.' : c)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static String readAllBytes(InputStream in) throws IOException {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int length;
+    while ((length = in.read(buffer)) != -1) {
+      result.write(buffer, 0, length);
+    }
+    return result.toString(StandardCharsets.UTF_8.name());
+  }
+}
@@ -1,10 +1,6 @@
 package com.connexta.osgeyes.index;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -18,8 +14,6 @@ import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.IndexerField;
 import org.apache.maven.index.IndexerFieldVersion;
 import org.apache.maven.index.context.IndexCreator;
-import org.apache.maven.index.util.zip.ZipFacade;
-import org.apache.maven.index.util.zip.ZipHandle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +30,6 @@ public class JarManifestIndexCreator implements IndexCreator {
   // Useful to reference within package scope
   static final String ID = "deps/jar-manifest";
 
-  private static final String MANFIEST_ENTRY = "META-INF/MANIFEST.MF";
-
   private static final Logger LOGGER = LoggerFactory.getLogger(JarManifestIndexCreator.class);
 
   private static final List<String> DEPS = Collections.singletonList("min");
@@ -72,26 +64,9 @@ public class JarManifestIndexCreator implements IndexCreator {
   public void populateArtifactInfo(ArtifactContext artifactContext) throws IOException {
     final ArtifactInfo info = artifactContext.getArtifactInfo();
     final Map<String, String> attributes = info.getAttributes();
-    final File artifactFile = artifactContext.getArtifact();
-    if (artifactFile != null && artifactFile.isFile() && artifactFile.getName().endsWith(".jar")) {
-      ZipHandle handle = null;
-      try {
-        handle = ZipFacade.getZipHandle(artifactFile);
-        boolean hasManifest = handle.getEntries().stream().anyMatch(MANFIEST_ENTRY::equals);
-        if (!hasManifest) {
-          return;
-        }
-        final String manifestText = readAllBytes(handle.getEntryContent(MANFIEST_ENTRY));
-        if (manifestText != null && !manifestText.isEmpty()) {
-          attributes.put(JAR_MANIFEST_FIELD.getKey(), manifestText);
-        }
-      } finally {
-        try {
-          ZipFacade.close(handle);
-        } catch (Exception e) {
-          LOGGER.error("Could not close jar file properly", e);
-        }
-      }
+    final String manifestText = JarDigest.of(artifactContext).getManifestText();
+    if (manifestText != null && !manifestText.isEmpty()) {
+      attributes.put(JAR_MANIFEST_FIELD.getKey(), manifestText);
     }
   }
 
@@ -130,14 +105,4 @@ public class JarManifestIndexCreator implements IndexCreator {
   public String toString() {
     return ID;
   }
-
-  private static String readAllBytes(InputStream in) throws IOException {
-    final ByteArrayOutputStream result = new ByteArrayOutputStream();
-    byte[] buffer = new byte[1024];
-    int length;
-    while ((length = in.read(buffer)) != -1) {
-      result.write(buffer, 0, length);
-    }
-    return result.toString(StandardCharsets.UTF_8.name());
-  }
 }
@@ -1,13 +1,11 @@
 package com.connexta.osgeyes.index;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.apache.lucene.document.Document;
@@ -18,12 +16,17 @@ import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.IndexerField;
 import org.apache.maven.index.IndexerFieldVersion;
 import org.apache.maven.index.context.IndexCreator;
-import org.apache.maven.index.util.zip.ZipFacade;
-import org.apache.maven.index.util.zip.ZipHandle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Makes all packages contained in a jar indexed and searchable. */
+/**
+ * Makes all packages contained in a jar indexed and searchable.
+ *
+ * <p>The packages are stored together as one comma separated value so they can be returned with the
+ * artifact, and indexed individually, without analysis, so each package is its own term. The terms
+ * dictionary of that field is sorted, which is what lets {@link IndexingApp#searchPackages(String)}
+ * resolve package prefixes without touching stored fields.
+ */
 @Singleton
 @Named(JarPackagesIndexCreator.ID)
 public class JarPackagesIndexCreator implements IndexCreator {
@@ -40,9 +43,19 @@ public class JarPackagesIndexCreator implements IndexCreator {
           MvnOntology.JAR_PACKAGES.getFieldName(),
           MvnOntology.JAR_PACKAGES.getDescription(),
           Field.Store.YES,
-          Index.ANALYZED);
+          Index.NO);
 
-  private static final List<IndexerField> FIELDS = Collections.singletonList(JAR_PACKAGES_FIELD);
+  private static final IndexerField JAR_PACKAGE_FIELD =
+      new IndexerField(
+          MvnOntology.JAR_PACKAGE,
+          IndexerFieldVersion.V3,
+          MvnOntology.JAR_PACKAGE.getFieldName(),
+          MvnOntology.JAR_PACKAGE.getDescription(),
+          Field.Store.NO,
+          Index.NOT_ANALYZED);
+
+  private static final List<IndexerField> FIELDS =
+      Collections.unmodifiableList(Arrays.asList(JAR_PACKAGES_FIELD, JAR_PACKAGE_FIELD));
 
   private static final List<String> DEPS = Collections.singletonList("min");
 
@@ -65,25 +78,9 @@ public class JarPackagesIndexCreator implements IndexCreator {
   public void populateArtifactInfo(ArtifactContext artifactContext) throws IOException {
     final ArtifactInfo info = artifactContext.getArtifactInfo();
     final Map<String, String> attributes = info.getAttributes();
-    final File artifactFile = artifactContext.getArtifact();
-    if (artifactFile != null && artifactFile.isFile() && artifactFile.getName().endsWith(".jar")) {
-      ZipHandle handle = null;
-      try {
-        handle = ZipFacade.getZipHandle(artifactFile);
-        List<String> paths =
-            handle.getEntries().stream()
-                .filter(s -> s.endsWith(".class"))
-                .map(JarPackagesIndexCreator::classFileToPackageNotation)
-                .distinct()
-                .collect(Collectors.toList());
-        attributes.put(JAR_PACKAGES_FIELD.getKey(), String.join(",", paths));
-      } finally {
-        try {
-          ZipFacade.close(handle);
-        } catch (Exception e) {
-          LOGGER.error("Could not close jar file properly", e);
-        }
-      }
+    final JarDigest digest = JarDigest.of(artifactContext);
+    if (digest.isPresent()) {
+      attributes.put(JAR_PACKAGES_FIELD.getKey(), String.join(",", digest.getClassPackages()));
     }
   }
 
@@ -102,6 +99,11 @@ public class JarPackagesIndexCreator implements IndexCreator {
           MvnCoordinate.write(currentPomCoord));
     } else {
       document.add(JAR_PACKAGES_FIELD.toField(pathText));
+      for (String packageName : pathText.split(",")) {
+        if (!packageName.isEmpty()) {
+          document.add(JAR_PACKAGE_FIELD.toField(packageName));
+        }
+      }
     }
   }
 
@@ -118,11 +120,6 @@ public class JarPackagesIndexCreator implements IndexCreator {
     return validPath;
   }
 
-  private static String classFileToPackageNotation(String classFile) {
-    String[] split = classFile.split("/");
-    return String.join(".", Arrays.copyOf(split, split.length - 1));
-  }
-
   @Override
   public String toString() {
     return ID;
@@ -0,0 +1,289 @@
+package com.connexta.osgeyes.index;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Parses the text of a jar manifest in a single pass over its characters. Continuation lines are
+ * appended to a single reusable buffer as they are read, so long headers such as {@code
+ * Import-Package} cost time linear in their length, and each header value is parsed as soon as its
+ * last line has been read.
+ *
+ * <p>Header values are parsed based on the header name, mirroring what the graph module expects:
+ *
+ * <ul>
+ *   <li>{@code Bundle-SymbolicName} is reduced to the name itself, without its directives.
+ *   <li>Package and service headers become the list of fully qualified names that are directly
+ *       followed by a {@code ;}. Names are interned since the same packages show up in the
+ *       manifests of many bundles.
+ *   <li>Other OSGi clause lists become the list of their clauses, split on the commas that are not
+ *       inside a quoted attribute value.
+ *   <li>Everything else is left as a string.
+ * </ul>
+ *
+ * <p>Names without any attributes or directives are not picked out of package and service headers,
+ * and names are found anywhere in the header, including quoted attribute values. Both quirks are
+ * kept on purpose so results line up with what was parsed before.
+ */
+public class ManifestParser {
+
+  private static final String SYMBOLIC_NAME = "Bundle-SymbolicName";
+
+  private static final Set<String> NAME_HEADERS =
+      new HashSet<>(
+          Arrays.asList("Import-Package", "Export-Package", "Import-Service", "Export-Service"));
+
+  private static final Set<String> CLAUSE_HEADERS =
+      new HashSet<>(
+          Arrays.asList(
+              "Bundle-Blueprint", "Embed-Dependency", "Embedded-Artifacts", "Conditional-Package"));
+
+  private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+  private ManifestParser() {}
+
+  /**
+   * Parses every header of the manifest and the value of each one, see the class docs.
+   *
+   * @param content the text of the manifest.
+   * @param source where the manifest came from, for error messages.
+   * @return the parsed value of each header, either a string or a list of strings, by name and in
+   *     manifest order.
+   * @throws IllegalArgumentException if the manifest is empty or starts with whitespace.
+   */
+  public static Map<String, Object> parse(CharSequence content, String source) {
+    final Map<String, Object> headers = new LinkedHashMap<>();
+    scan(content, source, (name, value) -> headers.put(name, parseValue(name, value)));
+    return headers;
+  }
+
+  /**
+   * Splits the manifest into its headers without parsing their values.
+   *
+   * @param content the text of the manifest.
+   * @param source where the manifest came from, for error messages.
+   * @return each header value as a single line, by name and in manifest order.
+   * @throws IllegalArgumentException if the manifest is empty or starts with whitespace.
+   */
+  public static Map<String, String> parseHeaders(CharSequence content, String source) {
+    final Map<String, String> headers = new LinkedHashMap<>();
+    scan(content, source, (name, value) -> headers.put(name, value.toString()));
+    return headers;
+  }
+
+  /**
+   * @param name the name of the header.
+   * @param value the complete, single line value of the header.
+   * @return the value parsed according to the header name, see the class docs.
+   */
+  public static Object parseValue(String name, CharSequence value) {
+    if (SYMBOLIC_NAME.equals(name)) {
+      return parseSymbolicName(value);
+    }
+    if (NAME_HEADERS.contains(name)) {
+      return parseNames(value);
+    }
+    if (CLAUSE_HEADERS.contains(name)) {
+      return parseClauses(value);
+    }
+    return value.toString();
+  }
+
+  /**
+   * @param value the value of a {@code Bundle-SymbolicName} header.
+   * @return the symbolic name without any of its directives.
+   */
+  public static String parseSymbolicName(CharSequence value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) == ';') {
+        return value.subSequence(0, i).toString();
+      }
+    }
+    return value.toString();
+  }
+
+  /**
+   * Finds the fully qualified package, class, or interface names in the value of a package or
+   * service header. A name is at least two segments, starts with a letter, and is directly followed
+   * by a {@code ;}.
+   *
+   * @param value the value of the header.
+   * @return the interned names in the order they appear.
+   */
+  public static List<String> parseNames(CharSequence value) {
+    final List<String> names = new ArrayList<>();
+    int runStart = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == ';') {
+        final int nameStart = findNameStart(value, runStart, i);
+        if (nameStart >= 0) {
+          names.add(NAMES.intern(value.subSequence(nameStart, i).toString()));
+        }
+        runStart = i + 1;
+      } else if (!isLetter(c) && !isNamePart(c) && c != '.') {
+        runStart = i + 1;
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Splits the value of an OSGi header into its clauses. Commas inside double quotes belong to an
+   * attribute value and do not end a clause. Trailing empty clauses are dropped.
+   *
+   * @param value the value of the header.
+   * @return the clauses in the order they appear, with their attributes and directives intact.
+   */
+  public static List<String> parseClauses(CharSequence value) {
+    if (value.length() == 0) {
+      return Collections.singletonList("");
+    }
+    final List<String> clauses = new ArrayList<>();
+    boolean quoted = false;
+    int clauseStart = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+      } else if (c == ',' && !quoted) {
+        clauses.add(value.subSequence(clauseStart, i).toString());
+        clauseStart = i + 1;
+      }
+    }
+    clauses.add(value.subSequence(clauseStart, value.length()).toString());
+    int size = clauses.size();
+    while (size > 0 && clauses.get(size - 1).isEmpty()) {
+      size--;
+    }
+    return new ArrayList<>(clauses.subList(0, size));
+  }
+
+  /**
+   * Walks the manifest one character at a time, calling back with each header once all of its lines
+   * have been read. Empty lines are ignored and lines starting with a space continue the header
+   * before them, trimmed. The value passed to the callback is only valid during the call.
+   */
+  private static void scan(
+      CharSequence content, String source, BiConsumer<String, CharSequence> onHeader) {
+    final StringBuilder value = new StringBuilder();
+    String name = null;
+    int lineStart = 0;
+    boolean first = true;
+    for (int i = 0; i <= content.length(); i++) {
+      final char c = i < content.length() ? content.charAt(i) : '\n';
+      if (c != '\n' && c != '\r') {
+        continue;
+      }
+      final int lineEnd = i;
+      if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+        i++;
+      }
+      if (lineEnd == lineStart) {
+        lineStart = i + 1;
+        continue;
+      }
+
+      if (content.charAt(lineStart) == ' ') {
+        if (first) {
+          throw new IllegalArgumentException(
+              "Manifest file " + source + " should not start with whitespace");
+        }
+        appendTrimmed(value, content, lineStart, lineEnd);
+      } else {
+        if (name != null) {
+          onHeader.accept(name, value);
+        }
+        name = startHeader(value, content, lineStart, lineEnd);
+      }
+      first = false;
+      lineStart = i + 1;
+    }
+
+    if (first) {
+      throw new IllegalArgumentException("Manifest file " + source + " should not be empty");
+    }
+    onHeader.accept(name, value);
+  }
+
+  /**
+   * Resets the buffer to the value of the header starting on the line. Lines without a {@code ": "}
+   * separator use the whole line as both the name and the value.
+   *
+   * @return the name of the header.
+   */
+  private static String startHeader(
+      StringBuilder value, CharSequence content, int lineStart, int lineEnd) {
+    value.setLength(0);
+    for (int i = lineStart; i + 1 < lineEnd; i++) {
+      if (content.charAt(i) == ':' && content.charAt(i + 1) == ' ') {
+        value.append(content, i + 2, lineEnd);
+        return content.subSequence(lineStart, i).toString();
+      }
+    }
+    value.append(content, lineStart, lineEnd);
+    return value.toString();
+  }
+
+  private static void appendTrimmed(
+      StringBuilder value, CharSequence content, int lineStart, int lineEnd) {
+    int start = lineStart;
+    int end = lineEnd;
+    while (start < end && Character.isWhitespace(content.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+      end--;
+    }
+    value.append(content, start, end);
+  }
+
+  /**
+   * Given a run of name characters that ends right before a {@code ;}, finds the start of the
+   * longest name the run ends with: a segment of letters followed by one or more segments of
+   * letters, digits, or underscores, all separated by single dots.
+   *
+   * @return the start of the name, or -1 if the run does not end with one.
+   */
+  private static int findNameStart(CharSequence value, int runStart, int runEnd) {
+    // Names cannot span an empty segment, so only what follows the last one is eligible
+    int start = runStart;
+    for (int i = runStart; i < runEnd; i++) {
+      if (value.charAt(i) == '.' && (i + 1 == runEnd || value.charAt(i + 1) == '.')) {
+        start = i + 1;
+      }
+    }
+    int i = start;
+    while (i < runEnd) {
+      if (!isLetter(value.charAt(i))) {
+        i++;
+        continue;
+      }
+      final int segmentStart = i;
+      while (i < runEnd && isLetter(value.charAt(i))) {
+        i++;
+      }
+      if (i < runEnd && value.charAt(i) == '.') {
+        return segmentStart;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isNamePart(char c) {
+    return (c >= '0' && c <= '9') || c == '_';
+  }
+}
@@ -0,0 +1,424 @@
+package com.connexta.osgeyes.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.StringHelper;
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * Compact, in-memory view of the maven parent / child relationships within the index, so walking a
+ * hierarchy never has to search Lucene.
+ *
+ * <p>Every distinct {@code mvn:groupId/artifactId/version} coordinate is interned to an int id.
+ * Children are kept in a compressed sparse row layout: the children of coordinate {@code c} are the
+ * Lucene documents {@code childDocs[childOffsets[c]]} up to (but excluding) {@code
+ * childDocs[childOffsets[c + 1]]}, and {@code childCoordinates} holds the coordinate id of each of
+ * those documents in the same position. Only children that have packaging {@code pom}, or that are
+ * {@code jar} or {@code bundle} packaged jar files, are recorded since those are the only ones that
+ * make up a hierarchy.
+ *
+ * <p>Children are found through their {@code <parent/>} only. The {@code <modules/>} block is not
+ * used since there is no guarantee that a module string is also the artifact ID. See the
+ * discrepancy in DDF for an example.
+ *
+ * <p><a href="https://github.com/codice/ddf/blob/ddf-2.19.5/pom.xml#L1233">Parent</a> <a
+ * href="https://github.com/codice/ddf/blob/ddf-2.19.5/libs/pom.xml#L23">Child</a>
+ *
+ * <p>Document ids are only meaningful for the reader the index was built from, so every index
+ * carries the version of that reader (see {@link #versionOf(IndexReader)}) and should be discarded
+ * once the version changes. Indexes can be saved next to the repository and loaded back on open for
+ * as long as the Lucene index has not changed.
+ */
+class MvnHierarchyIndex {
+
+  static final String FILE_NAME = ".index-hierarchy";
+
+  private static final int MAGIC = 0x4D564E48; // MVNH
+
+  // Version 1 dropped unclassified jars, bump to discard indexes saved with that bug
+  private static final int FORMAT_VERSION = 2;
+
+  // Positions within the info field: packaging|modified|size|sources|javadoc|signature|extension
+  private static final int INFO_PACKAGING = 0;
+
+  private static final int INFO_EXTENSION = 6;
+
+  private static final Set<String> FIELDS_TO_LOAD =
+      new HashSet<>(
+          Arrays.asList(
+              ArtifactInfo.UINFO, ArtifactInfo.INFO, MvnOntology.POM_PARENT.getFieldName()));
+
+  private final String version;
+
+  private final String[] coordinates;
+
+  private final Map<String, Integer> ids;
+
+  private final int[] pomCounts;
+
+  private final int[] childOffsets;
+
+  private final int[] childDocs;
+
+  private final int[] childCoordinates;
+
+  private MvnHierarchyIndex(
+      String version,
+      String[] coordinates,
+      int[] pomCounts,
+      int[] childOffsets,
+      int[] childDocs,
+      int[] childCoordinates) {
+    this.version = version;
+    this.coordinates = coordinates;
+    this.pomCounts = pomCounts;
+    this.childOffsets = childOffsets;
+    this.childDocs = childDocs;
+    this.childCoordinates = childCoordinates;
+    this.ids = new HashMap<>(coordinates.length * 2);
+    for (int i = 0; i < coordinates.length; i++) {
+      ids.put(coordinates[i], i);
+    }
+  }
+
+  /**
+   * Identifies the state of the index as seen by the given reader. Document ids are determined by
+   * the segments of the index and the deletions applied to them, so the unique id and deletion
+   * generation of every segment make up the version. Reader versions are not used since they change
+   * on every commit, even when no documents were touched, which is the case every time the index is
+   * opened.
+   *
+   * @param reader the reader that will be used to resolve documents.
+   * @return a string that changes whenever the document ids of the index change.
+   */
+  static String versionOf(IndexReader reader) {
+    final StringBuilder version = new StringBuilder();
+    version.append(reader.maxDoc()).append(':').append(reader.numDocs());
+    for (LeafReaderContext leaf : reader.leaves()) {
+      version.append(':');
+      if (leaf.reader() instanceof SegmentReader) {
+        final SegmentCommitInfo info = ((SegmentReader) leaf.reader()).getSegmentInfo();
+        version
+            .append(StringHelper.idToString(info.info.getId()))
+            .append('_')
+            .append(info.getDelGen());
+      } else {
+        // Not expected, but never reuse a hierarchy for a reader that can't be identified
+        version.append(System.identityHashCode(leaf.reader()));
+      }
+    }
+    return version.toString();
+  }
+
+  /**
+   * Builds the hierarchy by visiting every live document in the index, loading only the stored
+   * fields needed to work out its coordinate, packaging, and parent.
+   *
+   * @param reader the reader to build from.
+   * @param version the version of the reader.
+   * @return the hierarchy of the index.
+   * @throws IOException if documents could not be read.
+   */
+  static MvnHierarchyIndex build(IndexReader reader, String version) throws IOException {
+    final Map<String, Integer> ids = new HashMap<>();
+    final List<String> coordinates = new ArrayList<>();
+    final IntList pomCounts = new IntList();
+    // Parallel lists, one entry per parent -> child edge
+    final IntList edgeParents = new IntList();
+    final IntList edgeDocs = new IntList();
+    final IntList edgeChildren = new IntList();
+
+    final Bits liveDocs = MultiFields.getLiveDocs(reader);
+    for (int doc = 0; doc < reader.maxDoc(); doc++) {
+      if (liveDocs != null && !liveDocs.get(doc)) {
+        continue;
+      }
+      final Document document = reader.document(doc, FIELDS_TO_LOAD);
+      final String uinfo = document.get(ArtifactInfo.UINFO);
+      if (uinfo == null) {
+        // Descriptor and group documents
+        continue;
+      }
+      final String[] parts = uinfo.split("\\|");
+      if (parts.length < 3) {
+        continue;
+      }
+
+      // Same form as MvnCoordinate#write, without the cost of formatting
+      final String coordinate = "mvn:" + parts[0] + "/" + parts[1] + "/" + parts[2];
+      final int id = intern(coordinate, ids, coordinates, pomCounts);
+      final String info = document.get(ArtifactInfo.INFO);
+      final String packaging = infoField(info, INFO_PACKAGING);
+      if ("pom".equals(packaging)) {
+        pomCounts.increment(id);
+      }
+
+      final String parent = document.get(MvnOntology.POM_PARENT.getFieldName());
+      final String extension = infoField(info, INFO_EXTENSION);
+      if (parent != null && isHierarchyMember(packaging, extension)) {
+        edgeParents.add(intern(parent, ids, coordinates, pomCounts));
+        edgeDocs.add(doc);
+        edgeChildren.add(id);
+      }
+    }
+
+    // Counting sort of the edges by parent, which keeps document order within each parent
+    final int coordinateCount = coordinates.size();
+    final int[] childOffsets = new int[coordinateCount + 1];
+    for (int i = 0; i < edgeParents.size(); i++) {
+      childOffsets[edgeParents.get(i) + 1]++;
+    }
+    for (int i = 0; i < coordinateCount; i++) {
+      childOffsets[i + 1] += childOffsets[i];
+    }
+    final int[] cursor = Arrays.copyOf(childOffsets, coordinateCount);
+    final int[] childDocs = new int[edgeParents.size()];
+    final int[] childCoordinates = new int[edgeParents.size()];
+    for (int i = 0; i < edgeParents.size(); i++) {
+      final int slot = cursor[edgeParents.get(i)]++;
+      childDocs[slot] = edgeDocs.get(i);
+      childCoordinates[slot] = edgeChildren.get(i);
+    }
+
+    return new MvnHierarchyIndex(
+        version,
+        coordinates.toArray(new String[0]),
+        pomCounts.toArray(coordinateCount),
+        childOffsets,
+        childDocs,
+        childCoordinates);
+  }
+
+  /**
+   * Loads a hierarchy previously saved for the repository.
+   *
+   * @param repoLocation root of the repository.
+   * @param version the version of the reader the caller will resolve documents with.
+   * @return the saved hierarchy, or {@code null} if there is none or it was built from a different
+   *     version of the index.
+   * @throws IOException if the file exists but could not be read.
+   */
+  @Nullable
+  static MvnHierarchyIndex read(Path repoLocation, String version) throws IOException {
+    final Path file = repoLocation.resolve(FILE_NAME);
+    try (final DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != FORMAT_VERSION
+          || !version.equals(in.readUTF())) {
+        return null;
+      }
+      final String[] coordinates = new String[in.readInt()];
+      for (int i = 0; i < coordinates.length; i++) {
+        coordinates[i] = in.readUTF();
+      }
+      final int[] pomCounts = readInts(in);
+      final int[] childOffsets = readInts(in);
+      final int[] childDocs = readInts(in);
+      final int[] childCoordinates = readInts(in);
+      if (pomCounts.length != coordinates.length
+          || childOffsets.length != coordinates.length + 1
+          || childDocs.length != childCoordinates.length) {
+        return null;
+      }
+      return new MvnHierarchyIndex(
+          version, coordinates, pomCounts, childOffsets, childDocs, childCoordinates);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (EOFException e) {
+      // Truncated, most likely from an interrupted write
+      return null;
+    }
+  }
+
+  /**
+   * Saves this hierarchy next to the repository, replacing any previous one.
+   *
+   * @param repoLocation root of the repository.
+   * @throws IOException if the file could not be written.
+   */
+  void write(Path repoLocation) throws IOException {
+    final Path file = repoLocation.resolve(FILE_NAME);
+    final Path temp = repoLocation.resolve(FILE_NAME + ".tmp");
+    try (final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(version);
+      out.writeInt(coordinates.length);
+      for (String coordinate : coordinates) {
+        out.writeUTF(coordinate);
+      }
+      writeInts(out, pomCounts);
+      writeInts(out, childOffsets);
+      writeInts(out, childDocs);
+      writeInts(out, childCoordinates);
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  String getVersion() {
+    return version;
+  }
+
+  /**
+   * @param root the coordinate to check.
+   * @return true if exactly one document with packaging {@code pom} exists for the coordinate.
+   */
+  boolean isSinglePom(MvnCoordinate root) {
+    final Integer id = ids.get(MvnCoordinate.write(root));
+    return id != null && pomCounts[id] == 1;
+  }
+
+  /**
+   * Walks the hierarchy beneath the given root, breadth first, and returns the documents of every
+   * member in the order they were reached. The root itself is not included.
+   *
+   * @param root the coordinate of the root node.
+   * @return the document ids of every member of the hierarchy.
+   */
+  int[] gather(MvnCoordinate root) {
+    final Integer rootId = ids.get(MvnCoordinate.write(root));
+    if (rootId == null) {
+      return new int[0];
+    }
+
+    final IntList results = new IntList();
+    final boolean[] visited = new boolean[coordinates.length];
+    visited[rootId] = true;
+    IntList frontier = new IntList();
+    frontier.add(rootId);
+
+    while (frontier.size() > 0) {
+      final IntList next = new IntList();
+      for (int i = 0; i < frontier.size(); i++) {
+        final int parent = frontier.get(i);
+        for (int edge = childOffsets[parent]; edge < childOffsets[parent + 1]; edge++) {
+          results.add(childDocs[edge]);
+          final int child = childCoordinates[edge];
+          // Several documents can share a coordinate (classifiers), but only expand it once
+          if (!visited[child]) {
+            visited[child] = true;
+            next.add(child);
+          }
+        }
+      }
+      frontier = next;
+    }
+
+    return results.toArray(results.size());
+  }
+
+  /**
+   * Packaging and extension are indexed but not stored on their own, they are the first and last
+   * values of the info field. The extension is only part of the unique info field when the artifact
+   * has a classifier, so it can't be taken from there.
+   */
+  @Nullable
+  private static String infoField(@Nullable String info, int index) {
+    if (info == null) {
+      return null;
+    }
+    int start = 0;
+    for (int i = 0; i < index; i++) {
+      start = info.indexOf('|', start) + 1;
+      if (start == 0) {
+        return null;
+      }
+    }
+    final int end = info.indexOf('|', start);
+    return end < 0 ? info.substring(start) : info.substring(start, end);
+  }
+
+  private static boolean isHierarchyMember(@Nullable String packaging, @Nullable String extension) {
+    return "pom".equals(packaging)
+        || (("jar".equals(packaging) || "bundle".equals(packaging)) && "jar".equals(extension));
+  }
+
+  private static int intern(
+      String coordinate, Map<String, Integer> ids, List<String> coordinates, IntList pomCounts) {
+    final Integer existing = ids.get(coordinate);
+    if (existing != null) {
+      return existing;
+    }
+    final int id = coordinates.size();
+    ids.put(coordinate, id);
+    coordinates.add(coordinate);
+    pomCounts.add(0);
+    return id;
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    final int[] values = new int[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /** Growable list of primitive ints, to avoid boxing while building. */
+  private static class IntList {
+
+    private int[] values = new int[16];
+
+    private int size = 0;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    private int get(int index) {
+      return values[index];
+    }
+
+    private void increment(int index) {
+      values[index]++;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private int[] toArray(int length) {
+      return Arrays.copyOf(values, length);
+    }
+  }
+}
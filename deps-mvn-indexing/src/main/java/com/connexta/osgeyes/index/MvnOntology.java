@@ -15,4 +15,22 @@ public interface MvnOntology {
       new Field(null, NAMESPACE, "JAR_MANIFEST", "Plain text content of the jar manifest");
 
   Field JAR_PACKAGES = new Field(null, NAMESPACE, "JAR_PACKAGES", "Packages contained in a jar");
+
+  Field JAR_PACKAGE =
+      new Field(null, NAMESPACE, "JAR_PACKAGE", "A single package contained in a jar");
+
+  Field BUNDLE_SYMBOLIC_NAME =
+      new Field(null, NAMESPACE, "BUNDLE_SYMBOLIC_NAME", "Bundle-SymbolicName of the manifest");
+
+  Field BUNDLE_IMPORT_PACKAGE =
+      new Field(null, NAMESPACE, "BUNDLE_IMPORT_PACKAGE", "Packages imported by a bundle");
+
+  Field BUNDLE_EXPORT_PACKAGE =
+      new Field(null, NAMESPACE, "BUNDLE_EXPORT_PACKAGE", "Packages exported by a bundle");
+
+  Field BUNDLE_IMPORT_SERVICE =
+      new Field(null, NAMESPACE, "BUNDLE_IMPORT_SERVICE", "Services imported by a bundle");
+
+  Field BUNDLE_EXPORT_SERVICE =
+      new Field(null, NAMESPACE, "BUNDLE_EXPORT_SERVICE", "Services exported by a bundle");
 }
@@ -0,0 +1,180 @@
+package com.connexta.osgeyes.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IndexerField;
+import org.apache.maven.index.IndexerFieldVersion;
+import org.apache.maven.index.context.IndexCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses the OSGi headers of a jar manifest once, at index time, so consumers can read ready-made
+ * package and service lists instead of re-parsing the full manifest text on every request.
+ *
+ * <p>Each package or service is its own stored, un-analyzed value of a multi-valued field. Since
+ * {@link ArtifactInfo} attributes are single strings, the values of a field are joined with commas
+ * when read back out of the index.
+ *
+ * <p>Headers are parsed by the {@link ManifestParser}, the same parser the manifest connector of
+ * the graph module uses, so indexed headers match what the connector would produce.
+ */
+@Singleton
+@Named(OsgiHeadersIndexCreator.ID)
+public class OsgiHeadersIndexCreator implements IndexCreator {
+
+  // Useful to reference within package scope
+  static final String ID = "deps/osgi-headers";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OsgiHeadersIndexCreator.class);
+
+  private static final String HEADER_SYMBOLIC_NAME = "Bundle-SymbolicName";
+
+  private static final IndexerField SYMBOLIC_NAME_FIELD = field(MvnOntology.BUNDLE_SYMBOLIC_NAME);
+
+  // Manifest header -> field holding the names parsed out of it
+  private static final Map<String, IndexerField> LIST_FIELDS = new LinkedHashMap<>();
+
+  static {
+    LIST_FIELDS.put("Import-Package", field(MvnOntology.BUNDLE_IMPORT_PACKAGE));
+    LIST_FIELDS.put("Export-Package", field(MvnOntology.BUNDLE_EXPORT_PACKAGE));
+    LIST_FIELDS.put("Import-Service", field(MvnOntology.BUNDLE_IMPORT_SERVICE));
+    LIST_FIELDS.put("Export-Service", field(MvnOntology.BUNDLE_EXPORT_SERVICE));
+  }
+
+  private static final List<IndexerField> FIELDS;
+
+  static {
+    final List<IndexerField> fields = new ArrayList<>();
+    fields.add(SYMBOLIC_NAME_FIELD);
+    fields.addAll(LIST_FIELDS.values());
+    FIELDS = Collections.unmodifiableList(fields);
+  }
+
+  private static final List<String> DEPS = Collections.singletonList("min");
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  @Override
+  public List<String> getCreatorDependencies() {
+    return DEPS;
+  }
+
+  @Override
+  public Collection<IndexerField> getIndexerFields() {
+    return FIELDS;
+  }
+
+  @Override
+  public void populateArtifactInfo(ArtifactContext artifactContext) throws IOException {
+    final String manifestText = JarDigest.of(artifactContext).getManifestText();
+    if (manifestText == null || manifestText.isEmpty()) {
+      return;
+    }
+
+    final ArtifactInfo artifactInfo = artifactContext.getArtifactInfo();
+    final Map<String, String> headers;
+    try {
+      headers = ManifestParser.parseHeaders(manifestText, artifactInfo.getUinfo());
+    } catch (IllegalArgumentException e) {
+      LOGGER.debug("Skipping OSGi headers of malformed manifest: {}", e.getMessage());
+      return;
+    }
+
+    final Map<String, String> attributes = artifactInfo.getAttributes();
+    final String symbolicName = headers.get(HEADER_SYMBOLIC_NAME);
+    if (symbolicName != null) {
+      attributes.put(SYMBOLIC_NAME_FIELD.getKey(), ManifestParser.parseSymbolicName(symbolicName));
+    }
+
+    LIST_FIELDS.forEach(
+        (header, field) -> {
+          final String value = headers.get(header);
+          if (value != null) {
+            final List<String> names = ManifestParser.parseNames(value);
+            if (!names.isEmpty()) {
+              attributes.put(field.getKey(), String.join(",", names));
+            }
+          }
+        });
+  }
+
+  @Override
+  public void updateDocument(ArtifactInfo artifactInfo, Document document) {
+    final Map<String, String> attributes = artifactInfo.getAttributes();
+
+    final String symbolicName = attributes.get(SYMBOLIC_NAME_FIELD.getKey());
+    if (symbolicName == null) {
+      LOGGER.trace(
+          "No OSGi headers to write to lucene index for artifact {}",
+          MvnCoordinate.write(
+              MvnCoordinate.newInstance(
+                  artifactInfo.getGroupId(),
+                  artifactInfo.getArtifactId(),
+                  artifactInfo.getVersion())));
+    } else {
+      document.add(SYMBOLIC_NAME_FIELD.toField(symbolicName));
+    }
+
+    for (IndexerField field : LIST_FIELDS.values()) {
+      final String names = attributes.get(field.getKey());
+      if (names != null) {
+        for (String name : names.split(",")) {
+          document.add(field.toField(name));
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean updateArtifactInfo(Document document, ArtifactInfo artifactInfo) {
+    final Map<String, String> attributes = artifactInfo.getAttributes();
+    boolean updated = false;
+
+    final String symbolicName = document.get(SYMBOLIC_NAME_FIELD.getKey());
+    if (symbolicName != null) {
+      attributes.put(SYMBOLIC_NAME_FIELD.getKey(), symbolicName);
+      updated = true;
+    }
+
+    for (IndexerField field : LIST_FIELDS.values()) {
+      final String[] names = document.getValues(field.getKey());
+      if (names.length > 0) {
+        attributes.put(field.getKey(), String.join(",", names));
+        updated = true;
+      }
+    }
+
+    return updated;
+  }
+
+  @Override
+  public String toString() {
+    return ID;
+  }
+
+  private static IndexerField field(org.apache.maven.index.Field ontologyField) {
+    return new IndexerField(
+        ontologyField,
+        IndexerFieldVersion.V3,
+        ontologyField.getFieldName(),
+        ontologyField.getDescription(),
+        Field.Store.YES,
+        Index.NOT_ANALYZED);
+  }
+}
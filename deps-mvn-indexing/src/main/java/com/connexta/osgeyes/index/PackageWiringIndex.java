@@ -0,0 +1,239 @@
+package com.connexta.osgeyes.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.util.Bits;
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * In-memory view of which bundles export each package and service, so import -> export edges for a
+ * whole set of artifacts can be produced in one pass without searching Lucene or rebuilding the
+ * lookup on every request.
+ *
+ * <p>Every artifact with parsed OSGi headers (see {@link OsgiHeadersIndexCreator}) is interned to
+ * an int id by its {@link ArtifactInfo#UINFO}. Each exported name maps to the ids of <b>all</b> of
+ * its exporters, so wiring an import yields one edge per exporter in the requested set.
+ *
+ * <p>Like {@link MvnHierarchyIndex}, the wiring carries the version of the reader it was built from
+ * and should be discarded once that version changes.
+ */
+public class PackageWiringIndex {
+
+  private static final int[] NONE = new int[0];
+
+  private static final Set<String> FIELDS_TO_LOAD =
+      new HashSet<>(
+          Arrays.asList(
+              ArtifactInfo.UINFO,
+              MvnOntology.BUNDLE_IMPORT_PACKAGE.getFieldName(),
+              MvnOntology.BUNDLE_EXPORT_PACKAGE.getFieldName(),
+              MvnOntology.BUNDLE_IMPORT_SERVICE.getFieldName(),
+              MvnOntology.BUNDLE_EXPORT_SERVICE.getFieldName()));
+
+  /** What an import was matched against to produce a {@link Wire}. */
+  public enum Kind {
+    PACKAGE,
+    SERVICE
+  }
+
+  private final String version;
+
+  private final String[] uinfos;
+
+  private final Map<String, Integer> ids;
+
+  private final String[][] importPackages;
+
+  private final String[][] importServices;
+
+  private final Map<String, int[]> packageExporters;
+
+  private final Map<String, int[]> serviceExporters;
+
+  private PackageWiringIndex(
+      String version,
+      List<String> uinfos,
+      List<String[]> importPackages,
+      List<String[]> importServices,
+      Map<String, int[]> packageExporters,
+      Map<String, int[]> serviceExporters) {
+    this.version = version;
+    this.uinfos = uinfos.toArray(new String[0]);
+    this.importPackages = importPackages.toArray(new String[0][]);
+    this.importServices = importServices.toArray(new String[0][]);
+    this.packageExporters = packageExporters;
+    this.serviceExporters = serviceExporters;
+    this.ids = new HashMap<>(this.uinfos.length * 2);
+    for (int i = 0; i < this.uinfos.length; i++) {
+      ids.put(this.uinfos[i], i);
+    }
+  }
+
+  /**
+   * Builds the wiring by visiting every live document in the index, loading only the stored OSGi
+   * header fields.
+   *
+   * @param reader the reader to build from.
+   * @param version the version of the reader, see {@link MvnHierarchyIndex#versionOf(IndexReader)}.
+   * @return the wiring of the index.
+   * @throws IOException if documents could not be read.
+   */
+  static PackageWiringIndex build(IndexReader reader, String version) throws IOException {
+    final List<String> uinfos = new ArrayList<>();
+    final List<String[]> importPackages = new ArrayList<>();
+    final List<String[]> importServices = new ArrayList<>();
+    final Map<String, List<Integer>> packageExporters = new HashMap<>();
+    final Map<String, List<Integer>> serviceExporters = new HashMap<>();
+
+    final Bits liveDocs = MultiFields.getLiveDocs(reader);
+    for (int doc = 0; doc < reader.maxDoc(); doc++) {
+      if (liveDocs != null && !liveDocs.get(doc)) {
+        continue;
+      }
+      final Document document = reader.document(doc, FIELDS_TO_LOAD);
+      final String uinfo = document.get(ArtifactInfo.UINFO);
+      final String[] importedPackages =
+          document.getValues(MvnOntology.BUNDLE_IMPORT_PACKAGE.getFieldName());
+      final String[] exportedPackages =
+          document.getValues(MvnOntology.BUNDLE_EXPORT_PACKAGE.getFieldName());
+      final String[] importedServices =
+          document.getValues(MvnOntology.BUNDLE_IMPORT_SERVICE.getFieldName());
+      final String[] exportedServices =
+          document.getValues(MvnOntology.BUNDLE_EXPORT_SERVICE.getFieldName());
+      if (uinfo == null
+          || (importedPackages.length == 0
+              && exportedPackages.length == 0
+              && importedServices.length == 0
+              && exportedServices.length == 0)) {
+        continue;
+      }
+
+      final int id = uinfos.size();
+      uinfos.add(uinfo);
+      importPackages.add(importedPackages);
+      importServices.add(importedServices);
+      for (String name : exportedPackages) {
+        packageExporters.computeIfAbsent(name, n -> new ArrayList<>(1)).add(id);
+      }
+      for (String name : exportedServices) {
+        serviceExporters.computeIfAbsent(name, n -> new ArrayList<>(1)).add(id);
+      }
+    }
+
+    return new PackageWiringIndex(
+        version,
+        uinfos,
+        importPackages,
+        importServices,
+        toArrays(packageExporters),
+        toArrays(serviceExporters));
+  }
+
+  String getVersion() {
+    return version;
+  }
+
+  /**
+   * Matches every import of the given artifacts against every export of the given artifacts, in a
+   * single pass over their imports. Artifacts that are not part of the index are ignored. Package
+   * wires come first, followed by service wires, each in the order of the given artifacts.
+   *
+   * @param artifactUinfos the {@link ArtifactInfo#UINFO} of each artifact to wire together.
+   * @return one wire per import and matching exporter, the importer depends on the exporter.
+   */
+  List<Wire> wire(Collection<String> artifactUinfos) {
+    final boolean[] selected = new boolean[uinfos.length];
+    final List<Integer> order = new ArrayList<>(artifactUinfos.size());
+    for (String uinfo : artifactUinfos) {
+      final Integer id = ids.get(uinfo);
+      if (id != null && !selected[id]) {
+        selected[id] = true;
+        order.add(id);
+      }
+    }
+
+    final List<Wire> wires = new ArrayList<>();
+    wire(Kind.PACKAGE, order, selected, importPackages, packageExporters, wires);
+    wire(Kind.SERVICE, order, selected, importServices, serviceExporters, wires);
+    return wires;
+  }
+
+  private void wire(
+      Kind kind,
+      List<Integer> order,
+      boolean[] selected,
+      String[][] imports,
+      Map<String, int[]> exporters,
+      List<Wire> wires) {
+    for (int importer : order) {
+      for (String name : imports[importer]) {
+        for (int exporter : exporters.getOrDefault(name, NONE)) {
+          if (selected[exporter]) {
+            wires.add(new Wire(uinfos[importer], uinfos[exporter], name, kind));
+          }
+        }
+      }
+    }
+  }
+
+  private static Map<String, int[]> toArrays(Map<String, List<Integer>> exporters) {
+    final Map<String, int[]> result = new HashMap<>(exporters.size() * 2);
+    exporters.forEach(
+        (name, ids) -> result.put(name, ids.stream().mapToInt(Integer::intValue).toArray()));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /** A dependency from an importing artifact to an exporting artifact. */
+  public static class Wire {
+
+    private final String from;
+
+    private final String to;
+
+    private final String cause;
+
+    private final Kind kind;
+
+    private Wire(String from, String to, String cause, Kind kind) {
+      this.from = from;
+      this.to = to;
+      this.cause = cause;
+      this.kind = kind;
+    }
+
+    /** @return the {@link ArtifactInfo#UINFO} of the importer. */
+    public String getFrom() {
+      return from;
+    }
+
+    /** @return the {@link ArtifactInfo#UINFO} of the exporter. */
+    public String getTo() {
+      return to;
+    }
+
+    /** @return the package or service that was imported. */
+    public String getCause() {
+      return cause;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    @Override
+    public String toString() {
+      return from + " -> " + to + " (" + kind + " " + cause + ")";
+    }
+  }
+}
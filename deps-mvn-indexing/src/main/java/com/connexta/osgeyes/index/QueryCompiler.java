@@ -0,0 +1,184 @@
+package com.connexta.osgeyes.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.maven.index.Field;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.IndexerField;
+import org.apache.maven.index.expr.SourcedSearchExpression;
+import org.apache.maven.index.expr.UserInputSearchExpression;
+
+/**
+ * Turns {@link Criteria} into Lucene queries and keeps the compiled queries around, keyed by the
+ * structure of the criteria they came from, so identical criteria share one query. Lucene 5 queries
+ * are mutable, {@link Query#setBoost(float)} in particular, so callers must not modify the queries
+ * they get back.
+ *
+ * <p>Values of un-analyzed (keyword) fields are compiled directly into {@link TermQuery}, {@link
+ * PrefixQuery}, or {@link WildcardQuery}, picking the indexer field the same way maven-indexer
+ * does: exact values prefer keyword fields, partial input prefers analyzed ones. Analyzed fields
+ * still go through the {@link Indexer} since matching them depends on maven-indexer's analyzer and
+ * its query parsing rules.
+ *
+ * <p>Partial input against a keyword field without wildcards compiles to a plain prefix query.
+ * maven-indexer additionally boosts the exact term, so the same documents match but scores may
+ * differ slightly.
+ */
+class QueryCompiler {
+
+  private static final int MAX_CACHED_QUERIES = 1024;
+
+  private final Indexer indexer;
+
+  private final Cache<Key, Query> compiled =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_QUERIES).build();
+
+  QueryCompiler(Indexer indexer) {
+    this.indexer = indexer;
+  }
+
+  Indexer getIndexer() {
+    return indexer;
+  }
+
+  /**
+   * Returns the query cached under the key, compiling and caching it first if necessary.
+   *
+   * @param key the structural key of the criteria, see {@link #keyOf(Field, String, boolean)} and
+   *     {@link #keyOf(List, List)}.
+   * @param compiler compiles the query if it has not been cached.
+   * @return the compiled query, shared with every other caller of the same key.
+   */
+  Query get(Key key, Supplier<Query> compiler) {
+    try {
+      return compiled.get(key, compiler::get);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Could not compile query " + key, cause);
+    }
+  }
+
+  /**
+   * @param field the field to match against.
+   * @param value the value to match.
+   * @param exact whether the value is exact or partial user input.
+   * @return the structural key of a single key-value criteria.
+   */
+  static Key keyOf(Field field, String value, boolean exact) {
+    return new Key(Key.Kind.KEY_VALUE, exact, field.getNamespace(), field.getFieldName(), value);
+  }
+
+  /**
+   * @param occurs the occurrence of each clause.
+   * @param clauses the structural key of each clause, in the same order.
+   * @return the structural key of a boolean combination of criteria.
+   */
+  static Key keyOf(List<BooleanClause.Occur> occurs, List<Key> clauses) {
+    if (occurs.size() != clauses.size()) {
+      throw new IllegalArgumentException("Every clause needs exactly one occurrence");
+    }
+    final List<Object> parts = new ArrayList<>();
+    for (int i = 0; i < clauses.size(); i++) {
+      parts.add(occurs.get(i));
+      parts.add(clauses.get(i));
+    }
+    return new Key(Key.Kind.COMPOUND, parts.toArray());
+  }
+
+  /**
+   * Compiles a single key-value criteria.
+   *
+   * @param field the field to match against.
+   * @param value the value to match.
+   * @param exact whether the value is exact or partial user input.
+   * @return the compiled query.
+   */
+  Query compile(Field field, String value, boolean exact) {
+    final IndexerField indexerField = selectIndexerField(field, exact);
+    if (indexerField == null || !indexerField.isKeyword()) {
+      // Note the use of indexer expression classes, not strictly lucene classes
+      return indexer.constructQuery(
+          field, exact ? new SourcedSearchExpression(value) : new UserInputSearchExpression(value));
+    }
+
+    final String key = indexerField.getKey();
+    if (Field.NOT_PRESENT.equals(value)) {
+      return new WildcardQuery(new Term(key, "*"));
+    }
+    if (value.contains("*") || value.contains("?")) {
+      return new WildcardQuery(new Term(key, value));
+    }
+    return exact ? new TermQuery(new Term(key, value)) : new PrefixQuery(new Term(key, value));
+  }
+
+  @Nullable
+  private static IndexerField selectIndexerField(Field field, boolean exact) {
+    IndexerField last = null;
+    for (IndexerField indexerField : field.getIndexerFields()) {
+      last = indexerField;
+      if (indexerField.isKeyword() == exact) {
+        return indexerField;
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Structural key of a criteria. Compared part by part rather than as a concatenated string, so no
+   * value can be mistaken for a separator and criteria that differ never share a key.
+   */
+  static final class Key {
+
+    private enum Kind {
+      KEY_VALUE,
+      COMPOUND
+    }
+
+    private final Kind kind;
+
+    private final List<Object> parts;
+
+    private Key(Kind kind, Object... parts) {
+      this.kind = kind;
+      this.parts = Arrays.asList(parts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return kind == key.kind && parts.equals(key.parts);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * kind.hashCode() + parts.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return kind + parts.toString();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.connexta.osgeyes.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * Where the time of a single criteria query goes, see {@link
+ * IndexingApp#explain(Criteria.Queryable, int)}: compiling the criteria, searching the index, and
+ * loading the stored fields of the hits, along with how many documents each clause of the compiled
+ * query matches on its own.
+ *
+ * <p>Clause counts ignore the other clauses, so they show how selective each clause is rather than
+ * how the clauses combine. Counts include the descriptor and group documents of the index, which
+ * match some queries but are never returned as artifacts.
+ */
+public class QueryExplanation {
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final String criteria;
+
+  private final String query;
+
+  private final double compileMillis;
+
+  private final int totalHits;
+
+  private final double searchMillis;
+
+  private final int loadedCount;
+
+  private final double loadMillis;
+
+  private final List<Clause> clauses;
+
+  private QueryExplanation(
+      String criteria,
+      String query,
+      double compileMillis,
+      int totalHits,
+      double searchMillis,
+      int loadedCount,
+      double loadMillis,
+      List<Clause> clauses) {
+    this.criteria = criteria;
+    this.query = query;
+    this.compileMillis = compileMillis;
+    this.totalHits = totalHits;
+    this.searchMillis = searchMillis;
+    this.loadedCount = loadedCount;
+    this.loadMillis = loadMillis;
+    this.clauses = Collections.unmodifiableList(clauses);
+  }
+
+  /**
+   * Compiles the criteria and runs the query the way a page of results would be fetched, timing
+   * each step, then counts the matches of every clause.
+   *
+   * @param criteria the criteria to explain.
+   * @param searcher the searcher to run the query with.
+   * @param context the context of the searcher.
+   * @param projection the fields to load for each hit.
+   * @param limit the maximum number of hits to load, as with a page size.
+   * @return the explanation.
+   * @throws IOException if an error occurs during search.
+   */
+  static QueryExplanation explain(
+      Criteria.Queryable criteria,
+      IndexSearcher searcher,
+      IndexingContext context,
+      FieldProjection projection,
+      int limit)
+      throws IOException {
+    final long compileStart = System.nanoTime();
+    final Query query = criteria.getQuery();
+    final long compileNanos = System.nanoTime() - compileStart;
+
+    final long searchStart = System.nanoTime();
+    final TopDocs topDocs = searcher.search(query, Math.max(1, limit));
+    final long searchNanos = System.nanoTime() - searchStart;
+
+    int loaded = 0;
+    final long loadStart = System.nanoTime();
+    for (ScoreDoc hit : topDocs.scoreDocs) {
+      if (projection.load(searcher, hit.doc, context) != null) {
+        loaded++;
+      }
+    }
+    final long loadNanos = System.nanoTime() - loadStart;
+
+    final List<Clause> clauses = new ArrayList<>();
+    addClauses(searcher, query, 0, clauses);
+
+    return new QueryExplanation(
+        criteria.toString(),
+        query.toString(),
+        compileNanos / NANOS_PER_MILLI,
+        topDocs.totalHits,
+        searchNanos / NANOS_PER_MILLI,
+        loaded,
+        loadNanos / NANOS_PER_MILLI,
+        clauses);
+  }
+
+  /** Depth first, so nested clauses follow the clause they belong to. */
+  private static void addClauses(
+      IndexSearcher searcher, Query query, int depth, List<Clause> clauses) throws IOException {
+    if (!(query instanceof BooleanQuery)) {
+      return;
+    }
+    for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+      final Query clauseQuery = clause.getQuery();
+      final long start = System.nanoTime();
+      final int hits = searcher.count(clauseQuery);
+      final double millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+      clauses.add(new Clause(depth, clause.getOccur(), clauseQuery.toString(), hits, millis));
+      addClauses(searcher, clauseQuery, depth + 1, clauses);
+    }
+  }
+
+  /** @return the criteria, as written. */
+  public String getCriteria() {
+    return criteria;
+  }
+
+  /** @return the compiled Lucene query. */
+  public String getQuery() {
+    return query;
+  }
+
+  /** @return time to compile the criteria, close to zero when the query was already cached. */
+  public double getCompileMillis() {
+    return compileMillis;
+  }
+
+  /** @return number of documents the query matches. */
+  public int getTotalHits() {
+    return totalHits;
+  }
+
+  /** @return time to search the index for the top hits. */
+  public double getSearchMillis() {
+    return searchMillis;
+  }
+
+  /** @return number of top hits that were loaded as artifacts. */
+  public int getLoadedCount() {
+    return loadedCount;
+  }
+
+  /** @return time to load the stored fields of the top hits. */
+  public double getLoadMillis() {
+    return loadMillis;
+  }
+
+  /** @return every clause of the query, nested clauses included, in order. */
+  public List<Clause> getClauses() {
+    return clauses;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s -> %s: %d hits, search %.3f ms, load %.3f ms",
+        criteria, query, totalHits, searchMillis, loadMillis);
+  }
+
+  /** A single clause of a boolean query, and the documents it matches on its own. */
+  public static class Clause {
+
+    private final int depth;
+
+    private final BooleanClause.Occur occur;
+
+    private final String query;
+
+    private final int hits;
+
+    private final double countMillis;
+
+    private Clause(
+        int depth, BooleanClause.Occur occur, String query, int hits, double countMillis) {
+      this.depth = depth;
+      this.occur = occur;
+      this.query = query;
+      this.hits = hits;
+      this.countMillis = countMillis;
+    }
+
+    /** @return how deeply the clause is nested, zero for the clauses of the top level query. */
+    public int getDepth() {
+      return depth;
+    }
+
+    public BooleanClause.Occur getOccur() {
+      return occur;
+    }
+
+    public String getQuery() {
+      return query;
+    }
+
+    /** @return number of documents the clause matches, ignoring the other clauses. */
+    public int getHits() {
+      return hits;
+    }
+
+    /** @return time to count the matches of the clause. */
+    public double getCountMillis() {
+      return countMillis;
+    }
+  }
+}
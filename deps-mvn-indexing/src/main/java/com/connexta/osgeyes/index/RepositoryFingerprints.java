@@ -0,0 +1,393 @@
+package com.connexta.osgeyes.index;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.ArtifactScanningListener;
+import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * Records a fingerprint for every directory of a repository that directly contains files (in
+ * practice, the GAV directories) along with the {@link org.apache.maven.index.ArtifactInfo#UINFO}
+ * of every artifact that was indexed out of that directory. Comparing a fresh set of fingerprints
+ * against the set saved alongside the index tells us exactly which directories need rescanning and
+ * which documents need to be removed, so reopening after a build does not require a full rescan.
+ *
+ * <p>A fingerprint covers the name, size, and last modified time of each file in the directory, as
+ * well as the contents of any {@code .sha1} checksum files. Hidden files and directories are
+ * ignored, matching the behavior of {@link RepositoryReader}.
+ *
+ * <p>Fingerprints are persisted as a tab-separated sidecar file in the root of the repository. The
+ * first line is a header holding a schema string supplied by the caller; a mismatch means the
+ * sidecar no longer describes the index and it should be rebuilt from scratch.
+ */
+class RepositoryFingerprints {
+
+  static final String FILE_NAME = ".index-fingerprints";
+
+  private static final String HEADER_PREFIX = "#osgeyes-fingerprints";
+
+  private static final String SEPARATOR = "\t";
+
+  private static final String ROOT_DIR_KEY = ".";
+
+  private final Path repoLocation;
+
+  // Sorted so the sidecar is stable across writes
+  private final Map<String, String> fingerprints;
+
+  private final Map<String, Set<String>> uinfos;
+
+  private RepositoryFingerprints(
+      Path repoLocation, Map<String, String> fingerprints, Map<String, Set<String>> uinfos) {
+    this.repoLocation = repoLocation;
+    this.fingerprints = fingerprints;
+    this.uinfos = uinfos;
+  }
+
+  /**
+   * Walks the repository and fingerprints every directory that directly contains files. No
+   * artifacts are recorded yet; use {@link #recorder()} during a scan to capture them.
+   *
+   * @param repoLocation root of the repository.
+   * @return the current fingerprints of the repository.
+   * @throws IOException if the repository could not be walked.
+   */
+  static RepositoryFingerprints compute(Path repoLocation) throws IOException {
+    final Path root = repoLocation.toAbsolutePath().normalize();
+    final Map<String, String> fingerprints = new TreeMap<>();
+    final Deque<Map<String, BasicFileAttributes>> stack = new ArrayDeque<>();
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!dir.equals(root) && isHidden(dir)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            stack.push(new TreeMap<>());
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (attrs.isRegularFile()
+                && !isHidden(file)
+                && !RepositoryReader.isSkipped(file.toFile())) {
+              stack.peek().put(file.getFileName().toString(), attrs);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+            if (e != null) {
+              throw e;
+            }
+            final Map<String, BasicFileAttributes> files = stack.pop();
+            if (!files.isEmpty()) {
+              fingerprints.put(toKey(root, dir), fingerprint(dir, files));
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return new RepositoryFingerprints(root, fingerprints, new HashMap<>());
+  }
+
+  /**
+   * Reads the fingerprints previously saved for the repository.
+   *
+   * @param repoLocation root of the repository.
+   * @param schema the schema the caller expects the sidecar to have been written with.
+   * @return the saved fingerprints, or {@code null} if there are none or they were written with a
+   *     different schema.
+   * @throws IOException if the sidecar exists but could not be read.
+   */
+  @Nullable
+  static RepositoryFingerprints read(Path repoLocation, String schema) throws IOException {
+    final Path sidecar = repoLocation.resolve(FILE_NAME);
+    final Map<String, String> fingerprints = new TreeMap<>();
+    final Map<String, Set<String>> uinfos = new HashMap<>();
+    try (final BufferedReader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+      final String header = reader.readLine();
+      if (header == null || !header.equals(HEADER_PREFIX + SEPARATOR + schema)) {
+        return null;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        final String[] columns = line.split(SEPARATOR);
+        if (columns.length < 2) {
+          // Truncated or otherwise corrupt, safest to start over
+          return null;
+        }
+        fingerprints.put(columns[0], columns[1]);
+        for (int i = 2; i < columns.length; i++) {
+          uinfos.computeIfAbsent(columns[0], d -> new TreeSet<>()).add(columns[i]);
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    return new RepositoryFingerprints(
+        repoLocation.toAbsolutePath().normalize(), fingerprints, uinfos);
+  }
+
+  /**
+   * Saves these fingerprints to the repository's sidecar file, replacing any previous one.
+   *
+   * @param schema the schema of the index the fingerprints describe.
+   * @throws IOException if the sidecar could not be written.
+   */
+  void write(String schema) throws IOException {
+    final Path sidecar = repoLocation.resolve(FILE_NAME);
+    final Path temp = repoLocation.resolve(FILE_NAME + ".tmp");
+    try (final BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      writer.write(HEADER_PREFIX + SEPARATOR + schema);
+      writer.newLine();
+      for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+        writer.write(entry.getKey());
+        writer.write(SEPARATOR);
+        writer.write(entry.getValue());
+        for (String uinfo : new TreeSet<>(getUinfos(entry.getKey()))) {
+          writer.write(SEPARATOR);
+          writer.write(uinfo);
+        }
+        writer.newLine();
+      }
+    }
+    try {
+      Files.move(
+          temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Deletes the repository's sidecar file, if there is one.
+   *
+   * @param repoLocation root of the repository.
+   * @throws IOException if the sidecar could not be deleted.
+   */
+  static void delete(Path repoLocation) throws IOException {
+    Files.deleteIfExists(repoLocation.resolve(FILE_NAME));
+  }
+
+  /**
+   * Compares these (current) fingerprints against a previous set. Artifacts recorded for the
+   * directories that did not change are carried over from the previous set so these fingerprints
+   * remain complete once the changed directories have been rescanned.
+   *
+   * @param previous the fingerprints that describe the existing index.
+   * @return the differences between the two.
+   */
+  Delta update(RepositoryFingerprints previous) {
+    final Delta delta = new Delta();
+    for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+      final String dir = entry.getKey();
+      final String before = previous.fingerprints.get(dir);
+      if (before == null) {
+        delta.added.add(dir);
+      } else if (!before.equals(entry.getValue())) {
+        delta.changed.add(dir);
+        delta.staleUinfos.addAll(previous.getUinfos(dir));
+      } else if (!previous.getUinfos(dir).isEmpty()) {
+        uinfos.put(dir, new TreeSet<>(previous.getUinfos(dir)));
+      }
+    }
+    for (String dir : previous.fingerprints.keySet()) {
+      if (!fingerprints.containsKey(dir)) {
+        delta.removed.add(dir);
+        delta.staleUinfos.addAll(previous.getUinfos(dir));
+      }
+    }
+    return delta;
+  }
+
+  /**
+   * Group ids of the artifacts that were indexed from changed or removed directories and that none
+   * of these fingerprints record anymore. Once the changed directories have been rescanned, these
+   * are the groups left without a single artifact in the index.
+   *
+   * @param delta the differences these fingerprints were updated with.
+   * @return the group ids that are gone from the repository.
+   */
+  Set<String> getRemovedGroupIds(Delta delta) {
+    final Set<String> removed = groupIds(delta.getStaleUinfos().stream());
+    removed.removeAll(groupIds(uinfos.values().stream().flatMap(Set::stream)));
+    return removed;
+  }
+
+  /**
+   * Returns a listener to chain behind the indexing listener so every artifact that makes it into
+   * the index is recorded against the directory it came from.
+   */
+  ArtifactScanningListener recorder() {
+    return new Recorder();
+  }
+
+  private Set<String> getUinfos(String dir) {
+    return uinfos.getOrDefault(dir, Collections.emptySet());
+  }
+
+  private static Set<String> groupIds(Stream<String> uinfos) {
+    // A uinfo leads with the group id
+    return uinfos
+        .map(uinfo -> uinfo.substring(0, Math.max(0, uinfo.indexOf(ArtifactInfo.FS))))
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  private static boolean isHidden(Path path) {
+    final Path name = path.getFileName();
+    return name != null && name.toString().startsWith(".");
+  }
+
+  private static String toKey(Path repoLocation, Path dir) {
+    final Path relative = repoLocation.relativize(dir);
+    if (relative.toString().isEmpty()) {
+      return ROOT_DIR_KEY;
+    }
+    return relative.toString().replace(File.separatorChar, '/');
+  }
+
+  private static String fingerprint(Path dir, Map<String, BasicFileAttributes> files)
+      throws IOException {
+    final MessageDigest digest = newDigest();
+    for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+      final BasicFileAttributes attrs = file.getValue();
+      digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(Long.toString(attrs.size()).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(
+          Long.toString(attrs.lastModifiedTime().toMillis()).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      // Checksums are tiny and catch rewrites that keep the same size and timestamp
+      if (file.getKey().endsWith(".sha1") && attrs.size() <= 1024) {
+        digest.update(Files.readAllBytes(dir.resolve(file.getKey())));
+        digest.update((byte) 0);
+      }
+    }
+    final StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 should always be supported", e);
+    }
+  }
+
+  /** The directories that differ between two sets of fingerprints. */
+  static class Delta {
+
+    private final Set<String> added = new TreeSet<>();
+
+    private final Set<String> changed = new TreeSet<>();
+
+    private final Set<String> removed = new TreeSet<>();
+
+    private final Set<String> staleUinfos = new TreeSet<>();
+
+    private Delta() {}
+
+    boolean isEmpty() {
+      return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    int getAddedCount() {
+      return added.size();
+    }
+
+    int getChangedCount() {
+      return changed.size();
+    }
+
+    int getRemovedCount() {
+      return removed.size();
+    }
+
+    /** Artifacts that were indexed from directories that have since changed or disappeared. */
+    Set<String> getStaleUinfos() {
+      return Collections.unmodifiableSet(staleUinfos);
+    }
+
+    /** Directories that are new or have changed, resolved against the repository. */
+    List<File> getDirectoriesToScan(Path repoLocation) {
+      return toScan().stream()
+          .map(dir -> ROOT_DIR_KEY.equals(dir) ? repoLocation : repoLocation.resolve(dir))
+          .map(Path::toFile)
+          .collect(Collectors.toList());
+    }
+
+    private Collection<String> toScan() {
+      final Set<String> dirs = new TreeSet<>(added);
+      dirs.addAll(changed);
+      return dirs;
+    }
+  }
+
+  private class Recorder implements ArtifactScanningListener {
+
+    @Override
+    public void scanningStarted(IndexingContext ctx) {
+      // no-op
+    }
+
+    @Override
+    public void scanningFinished(IndexingContext ctx, ScanningResult result) {
+      // no-op
+    }
+
+    @Override
+    public void artifactError(ArtifactContext ac, Exception e) {
+      // no-op
+    }
+
+    @Override
+    public void artifactDiscovered(ArtifactContext ac) {
+      final File file = ac.getArtifact() != null ? ac.getArtifact() : ac.getPom();
+      if (file == null) {
+        return;
+      }
+      final String dir = toKey(repoLocation, file.getAbsoluteFile().getParentFile().toPath());
+      uinfos.computeIfAbsent(dir, d -> new TreeSet<>()).add(ac.getArtifactInfo().getUinfo());
+    }
+  }
+}
@@ -1,17 +1,33 @@
 package com.connexta.osgeyes.index;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.maven.index.ArtifactContext;
 import org.apache.maven.index.ArtifactContextProducer;
+import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.Scanner;
 import org.apache.maven.index.ScanningRequest;
 import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.context.IndexCreator;
 import org.apache.maven.index.context.IndexingContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +42,16 @@ import org.slf4j.LoggerFactory;
  * org.apache.maven.index.ArtifactScanningListener#artifactDiscovered(ArtifactContext)} then
  * indexing should proceed like normal.
  *
+ * <p>When created with a parallelism greater than one, directory walking and the per-artifact work
+ * ({@link ArtifactContextProducer#getArtifactContext(IndexingContext, File)} followed by every
+ * {@link IndexCreator#populateArtifactInfo(ArtifactContext)}) fans out over a work-stealing pool.
+ * Finished artifacts are handed off through a bounded queue to the thread that called {@link
+ * #scan(ScanningRequest)}, which remains the only thread that talks to the listener and, by
+ * extension, the Lucene writer. Files within a single directory are still processed in {@link
+ * ScannerFileComparator} order by one task, so POMs continue to be discovered after their artifact.
+ *
+ * <p>Either way, every scan records its throughput and where its time went in {@link ScanMetrics}.
+ *
  * <p>Code in this file adapted from:
  * https://github.com/apache/maven-indexer/blob/maven-indexer-6.0.0/indexer-core/src/main/java/org/apache/maven/index/DefaultScanner.java
  */
@@ -37,61 +63,328 @@ public class RepositoryReader implements Scanner {
   private static final Set<String> EXTS_TO_SKIP =
       Stream.of(".lastUpdated").collect(Collectors.toSet());
 
+  // Bounds how far the producers can run ahead of the single writer
+  private static final int HANDOFF_CAPACITY_PER_THREAD = 64;
+
+  private static final long HANDOFF_POLL_MILLIS = 100L;
+
   private final ArtifactContextProducer artifactContextProducer;
 
+  private final int parallelism;
+
+  private final ScanMetrics metrics;
+
   public RepositoryReader(ArtifactContextProducer artifactContextProducer) {
+    this(artifactContextProducer, 1);
+  }
+
+  public RepositoryReader(ArtifactContextProducer artifactContextProducer, int parallelism) {
+    this(artifactContextProducer, parallelism, null);
+  }
+
+  /**
+   * Creates a reader that scans with the given number of worker threads.
+   *
+   * @param artifactContextProducer producer of artifact contexts for discovered files.
+   * @param parallelism number of worker threads; a value of one scans serially on the caller.
+   * @param metrics where to record the metrics of the scan, or null to record them for the index
+   *     creators of the scanned context, see {@link #getMetrics()}.
+   */
+  public RepositoryReader(
+      ArtifactContextProducer artifactContextProducer,
+      int parallelism,
+      @Nullable ScanMetrics metrics) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1, but was " + parallelism);
+    }
     this.artifactContextProducer = artifactContextProducer;
+    this.parallelism = parallelism;
+    this.metrics = metrics;
+  }
+
+  /**
+   * A reader is meant for a single scan, and its metrics only describe one scan.
+   *
+   * @return the metrics given to this reader, if any.
+   */
+  @Nullable
+  public ScanMetrics getMetrics() {
+    return metrics;
   }
 
   public ScanningResult scan(ScanningRequest request) {
+    return scan(request, Collections.singletonList(request.getStartingDirectory()), true);
+  }
+
+  /**
+   * Scans only the files that sit directly within each of the given directories, without descending
+   * into subdirectories. Used for incremental updates, when it is already known which artifact
+   * directories changed.
+   *
+   * @param request the scanning request; its starting directory is ignored.
+   * @param directories the directories whose files should be scanned.
+   * @return the result of the scan.
+   */
+  public ScanningResult scan(ScanningRequest request, Collection<File> directories) {
+    return scan(request, directories, false);
+  }
+
+  private ScanningResult scan(
+      ScanningRequest request, Collection<File> directories, boolean recursive) {
+    final ScanMetrics metrics =
+        this.metrics == null
+            ? new ScanMetrics(request.getIndexingContext().getIndexCreators())
+            : this.metrics;
     request.getArtifactScanningListener().scanningStarted(request.getIndexingContext());
 
     ScanningResult result = new ScanningResult(request);
-    scanDirectory(request.getStartingDirectory(), request);
+    if (parallelism > 1) {
+      scanInParallel(request, result, directories, recursive, metrics);
+    } else {
+      directories.forEach(dir -> scanDirectory(dir, request, recursive, metrics));
+    }
 
+    // Commits and merges the index
+    final long finishStart = System.nanoTime();
     request.getArtifactScanningListener().scanningFinished(request.getIndexingContext(), result);
+    metrics.finishTimed(System.nanoTime() - finishStart);
+    metrics.stop(result.getExceptions().size());
     return result;
   }
 
-  private void scanDirectory(File dir, ScanningRequest request) {
+  private void scanDirectory(
+      File dir, ScanningRequest request, boolean recursive, ScanMetrics metrics) {
     if (dir == null) {
       return;
     }
 
-    File[] fileArray = dir.listFiles();
-    if (fileArray == null) {
+    for (File f : listSorted(dir)) {
+      if (f.isDirectory()) {
+        if (recursive) {
+          scanDirectory(f, request, true, metrics);
+        }
+      } else {
+        processFile(f, request, metrics);
+      }
+    }
+  }
+
+  private void processFile(File file, ScanningRequest request, ScanMetrics metrics) {
+    if (isSkipped(file)) {
+      metrics.fileSkipped();
       return;
     }
 
-    Set<File> files = new TreeSet<>(new ScannerFileComparator());
-    files.addAll(Arrays.asList(fileArray));
+    IndexingContext context = request.getIndexingContext();
+    ArtifactContext ac = artifactContextProducer.getArtifactContext(context, file);
 
-    for (File f : files) {
-      if (f.getName().startsWith(".")) {
-        continue; // skip all hidden files and directories
-      }
+    if (ac != null) {
+      metrics.artifactRead(ac);
+      // Populated up front, same as in parallel, so the index creators can be timed
+      discovered(request, PopulatedArtifactContext.populate(ac, context, metrics), metrics);
+    }
+  }
 
-      if (f.isDirectory()) {
-        scanDirectory(f, request);
-      } else {
-        processFile(f, request);
+  private static void discovered(ScanningRequest request, ArtifactContext ac, ScanMetrics metrics) {
+    final long start = System.nanoTime();
+    request.getArtifactScanningListener().artifactDiscovered(ac);
+    metrics.writerTimed(System.nanoTime() - start);
+  }
+
+  private void scanInParallel(
+      ScanningRequest request,
+      ScanningResult result,
+      Collection<File> directories,
+      boolean recursive,
+      ScanMetrics metrics) {
+    final BlockingQueue<ArtifactContext> handoff =
+        new ArrayBlockingQueue<>(parallelism * HANDOFF_CAPACITY_PER_THREAD);
+    final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<>());
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      final List<DirectoryTask> tasks =
+          directories.stream()
+              .map(dir -> new DirectoryTask(dir, recursive, request, handoff, exceptions, metrics))
+              .collect(Collectors.toList());
+      final ForkJoinTask<?> root = pool.submit(() -> ForkJoinTask.invokeAll(tasks));
+      // The calling thread is the single writer; drain until the producers are done
+      while (true) {
+        final ArtifactContext ac = handoff.poll(HANDOFF_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (ac != null) {
+          discovered(request, ac, metrics);
+        } else if (root.isDone()) {
+          // Every producer has finished so anything left in the queue is final
+          ArtifactContext remaining;
+          while ((remaining = handoff.poll()) != null) {
+            discovered(request, remaining, metrics);
+          }
+          break;
+        }
       }
+      root.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exceptions.add(e);
+    } catch (RuntimeException e) {
+      exceptions.add(e);
+    } finally {
+      pool.shutdownNow();
     }
+    exceptions.forEach(result::addException);
   }
 
-  private void processFile(File file, ScanningRequest request) {
+  private List<File> listSorted(File dir) {
+    File[] fileArray = dir.listFiles();
+    if (fileArray == null) {
+      return Collections.emptyList();
+    }
+
+    Set<File> files = new TreeSet<>(new ScannerFileComparator());
+    files.addAll(Arrays.asList(fileArray));
+
+    // skip all hidden files and directories
+    return files.stream().filter(f -> !f.getName().startsWith(".")).collect(Collectors.toList());
+  }
+
+  static boolean isSkipped(File file) {
     // Added for OSG-EYES
     // ~ files with inappropriate extensions should not be indexed
     if (EXTS_TO_SKIP.stream().anyMatch(ext -> file.getName().endsWith(ext))) {
       LOGGER.debug("Skipping ineligible artifact file: " + file.getAbsolutePath());
-      return;
+      return true;
     }
+    return false;
+  }
 
-    IndexingContext context = request.getIndexingContext();
-    ArtifactContext ac = artifactContextProducer.getArtifactContext(context, file);
+  /**
+   * Walks one directory. Subdirectories are forked as their own tasks while the files in this
+   * directory are processed in order by this task, which preserves the artifact-then-POM discovery
+   * order within a GAV directory once the results reach the queue. Subdirectories are skipped
+   * entirely for non-recursive scans.
+   */
+  private class DirectoryTask extends RecursiveAction {
 
-    if (ac != null) {
-      request.getArtifactScanningListener().artifactDiscovered(ac);
+    private final File dir;
+
+    private final boolean recursive;
+
+    private final ScanningRequest request;
+
+    private final BlockingQueue<ArtifactContext> handoff;
+
+    private final List<Exception> exceptions;
+
+    private final ScanMetrics metrics;
+
+    private DirectoryTask(
+        File dir,
+        boolean recursive,
+        ScanningRequest request,
+        BlockingQueue<ArtifactContext> handoff,
+        List<Exception> exceptions,
+        ScanMetrics metrics) {
+      this.dir = dir;
+      this.recursive = recursive;
+      this.request = request;
+      this.handoff = handoff;
+      this.exceptions = exceptions;
+      this.metrics = metrics;
+    }
+
+    @Override
+    protected void compute() {
+      if (dir == null) {
+        return;
+      }
+
+      final List<DirectoryTask> subtasks = new ArrayList<>();
+      for (File f : listSorted(dir)) {
+        if (f.isDirectory()) {
+          if (recursive) {
+            final DirectoryTask subtask =
+                new DirectoryTask(f, true, request, handoff, exceptions, metrics);
+            subtask.fork();
+            subtasks.add(subtask);
+          }
+        } else {
+          processFile(f);
+        }
+      }
+      subtasks.forEach(ForkJoinTask::join);
+    }
+
+    private void processFile(File file) {
+      if (isSkipped(file)) {
+        metrics.fileSkipped();
+        return;
+      }
+
+      final IndexingContext context = request.getIndexingContext();
+      try {
+        final ArtifactContext ac = artifactContextProducer.getArtifactContext(context, file);
+        if (ac == null) {
+          return;
+        }
+        metrics.artifactRead(ac);
+        handoff.put(PopulatedArtifactContext.populate(ac, context, metrics));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exceptions.add(e);
+      } catch (RuntimeException e) {
+        LOGGER.debug("Could not process artifact file: " + file.getAbsolutePath(), e);
+        exceptions.add(e);
+      }
+    }
+  }
+
+  /**
+   * An {@link ArtifactContext} whose {@link ArtifactInfo} was already populated by every {@link
+   * IndexCreator} on a worker thread. Document creation on the writer thread then only has to copy
+   * the populated attributes into the Lucene document.
+   */
+  private static class PopulatedArtifactContext extends ArtifactContext {
+
+    private PopulatedArtifactContext(ArtifactContext ac) {
+      super(ac.getPom(), ac.getArtifact(), ac.getMetadata(), ac.getArtifactInfo(), ac.getGav());
+      ac.getErrors().forEach(this::addError);
+    }
+
+    private static ArtifactContext populate(
+        ArtifactContext ac, IndexingContext context, ScanMetrics metrics) {
+      final PopulatedArtifactContext populated = new PopulatedArtifactContext(ac);
+      for (IndexCreator indexCreator : context.getIndexCreators()) {
+        final long start = System.nanoTime();
+        try {
+          indexCreator.populateArtifactInfo(populated);
+        } catch (IOException e) {
+          populated.addError(e);
+        } finally {
+          metrics.indexCreatorTimed(indexCreator, System.nanoTime() - start);
+        }
+      }
+      return populated;
+    }
+
+    /** Mirrors {@link ArtifactContext#createDocument(IndexingContext)} minus the populate pass. */
+    @Override
+    public Document createDocument(IndexingContext context) {
+      final Document doc = new Document();
+      doc.add(
+          new Field(
+              ArtifactInfo.UINFO,
+              getArtifactInfo().getUinfo(),
+              Field.Store.YES,
+              Field.Index.NOT_ANALYZED));
+      doc.add(
+          new Field(
+              ArtifactInfo.LAST_MODIFIED,
+              Long.toString(System.currentTimeMillis()),
+              Field.Store.YES,
+              Field.Index.NO));
+      for (IndexCreator indexCreator : context.getIndexCreators()) {
+        indexCreator.updateDocument(getArtifactInfo(), doc);
+      }
+      return doc;
     }
   }
 
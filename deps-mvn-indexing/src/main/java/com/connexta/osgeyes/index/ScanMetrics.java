@@ -0,0 +1,215 @@
+package com.connexta.osgeyes.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.util.zip.ZipFacade;
+
+/**
+ * Counters and timers for a single repository scan, recorded by the {@link RepositoryReader} while
+ * it scans. Every counter can be updated from any of the scanning threads, and read at any time, so
+ * progress can be reported while the scan is still running.
+ *
+ * <p>Times are wall clock time summed across threads, so with a parallel scan the time spent in the
+ * index creators can add up to more than the elapsed time.
+ */
+public class ScanMetrics implements ScanMetricsMXBean {
+
+  /** Name the metrics of the latest scan are registered under, see {@link IndexingApp}. */
+  public static final String OBJECT_NAME = "com.connexta.osgeyes:type=ScanMetrics";
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  private final long startNanos = System.nanoTime();
+
+  private final long emptyZipsBefore = ZipFacade.getEmptyHandleCount();
+
+  private final LongAdder artifacts = new LongAdder();
+
+  private final LongAdder bytesRead = new LongAdder();
+
+  private final LongAdder skippedFiles = new LongAdder();
+
+  private final LongAdder writerNanos = new LongAdder();
+
+  private final LongAdder finishNanos = new LongAdder();
+
+  // Fixed up front so it can be read without locking while it's being updated
+  private final Map<String, LongAdder> creatorNanos;
+
+  // Set once the scan has finished
+  private volatile long stopNanos = -1L;
+
+  private volatile long emptyZips = -1L;
+
+  private volatile long errors = 0L;
+
+  /** @param indexCreators the index creators of the scanned context. */
+  public ScanMetrics(Collection<? extends IndexCreator> indexCreators) {
+    final Map<String, LongAdder> timers = new LinkedHashMap<>();
+    indexCreators.forEach(creator -> timers.put(creator.getId(), new LongAdder()));
+    this.creatorNanos = Collections.unmodifiableMap(timers);
+  }
+
+  void fileSkipped() {
+    skippedFiles.increment();
+  }
+
+  void artifactRead(ArtifactContext ac) {
+    artifacts.increment();
+    bytesRead.add(sizeOf(ac.getArtifact()) + sizeOf(ac.getPom()));
+  }
+
+  void indexCreatorTimed(IndexCreator creator, long nanos) {
+    final LongAdder timer = creatorNanos.get(creator.getId());
+    if (timer != null) {
+      timer.add(nanos);
+    }
+  }
+
+  void writerTimed(long nanos) {
+    writerNanos.add(nanos);
+  }
+
+  void finishTimed(long nanos) {
+    finishNanos.add(nanos);
+  }
+
+  /** Freezes the elapsed time and the counters that are not owned by the scan. */
+  void stop(int errorCount) {
+    errors = errorCount;
+    emptyZips = ZipFacade.getEmptyHandleCount() - emptyZipsBefore;
+    stopNanos = System.nanoTime();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return stopNanos < 0;
+  }
+
+  @Override
+  public long getElapsedMillis() {
+    final long stop = stopNanos;
+    return ((stop < 0 ? System.nanoTime() : stop) - startNanos) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public long getArtifactCount() {
+    return artifacts.sum();
+  }
+
+  @Override
+  public double getArtifactsPerSecond() {
+    final long elapsed = getElapsedMillis();
+    return elapsed == 0 ? 0.0 : getArtifactCount() * 1000.0 / elapsed;
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  @Override
+  public long getSkippedFileCount() {
+    return skippedFiles.sum();
+  }
+
+  @Override
+  public long getEmptyZipCount() {
+    final long frozen = emptyZips;
+    return frozen < 0 ? ZipFacade.getEmptyHandleCount() - emptyZipsBefore : frozen;
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errors;
+  }
+
+  @Override
+  public Map<String, Long> getIndexCreatorMillis() {
+    final Map<String, Long> millis = new LinkedHashMap<>();
+    creatorNanos.forEach((id, timer) -> millis.put(id, timer.sum() / NANOS_PER_MILLI));
+    return millis;
+  }
+
+  @Override
+  public long getWriterMillis() {
+    return writerNanos.sum() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public long getFinishMillis() {
+    return finishNanos.sum() / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Every metric by name, for use from Clojure.
+   *
+   * @return the metrics, where the index creator times are a nested map.
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("running", isRunning());
+    map.put("elapsed-ms", getElapsedMillis());
+    map.put("artifacts", getArtifactCount());
+    map.put("artifacts-per-sec", getArtifactsPerSecond());
+    map.put("bytes-read", getBytesRead());
+    map.put("skipped-files", getSkippedFileCount());
+    map.put("empty-zips", getEmptyZipCount());
+    map.put("errors", getErrorCount());
+    map.put("index-creator-ms", getIndexCreatorMillis());
+    map.put("writer-ms", getWriterMillis());
+    map.put("finish-ms", getFinishMillis());
+    return map;
+  }
+
+  /** @return a one line summary of the progress so far. */
+  public String toProgressLine() {
+    return String.format(
+        "Scanned %d artifacts in %.1f s (%.1f/s), %.1f MB read, %d skipped, %d not zips",
+        getArtifactCount(),
+        getElapsedMillis() / 1000.0,
+        getArtifactsPerSecond(),
+        getBytesRead() / (1024.0 * 1024.0),
+        getSkippedFileCount(),
+        getEmptyZipCount());
+  }
+
+  /**
+   * Logs a progress line at a fixed rate from a background thread until closed.
+   *
+   * @param intervalSeconds seconds between progress lines; zero or less disables reporting.
+   * @param log where to write the progress lines.
+   * @return closes the reporter, which does not log a final line.
+   */
+  public Closeable reportProgress(long intervalSeconds, Consumer<String> log) {
+    if (intervalSeconds <= 0) {
+      return () -> {};
+    }
+    final ScheduledExecutorService reporter =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "osgeyes-scan-progress");
+              thread.setDaemon(true);
+              return thread;
+            });
+    reporter.scheduleAtFixedRate(
+        () -> log.accept(toProgressLine()), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    return reporter::shutdownNow;
+  }
+
+  private static long sizeOf(@Nullable File file) {
+    return file == null ? 0L : file.length();
+  }
+}
@@ -0,0 +1,43 @@
+package com.connexta.osgeyes.index;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link ScanMetrics} of the last repository scan, or of the one in progress.
+ * Registered by {@link IndexingApp} as {@value ScanMetrics#OBJECT_NAME}.
+ */
+public interface ScanMetricsMXBean {
+
+  /** @return whether the scan is still in progress. */
+  boolean isRunning();
+
+  /** @return time since the scan started, or the duration of the scan once it has finished. */
+  long getElapsedMillis();
+
+  /** @return number of artifacts read from the repository so far. */
+  long getArtifactCount();
+
+  /** @return artifacts read per second, averaged over the elapsed time. */
+  double getArtifactsPerSecond();
+
+  /** @return combined size of the artifact and pom files read so far. */
+  long getBytesRead();
+
+  /** @return number of files skipped because of their extension. */
+  long getSkippedFileCount();
+
+  /** @return number of files given an empty zip handle because they are not zips. */
+  long getEmptyZipCount();
+
+  /** @return number of problems reported by the scan, only known once it has finished. */
+  long getErrorCount();
+
+  /** @return time spent populating artifact info, by index creator id. */
+  Map<String, Long> getIndexCreatorMillis();
+
+  /** @return time spent writing documents to the index. */
+  long getWriterMillis();
+
+  /** @return time spent committing and merging the index once every artifact was written. */
+  long getFinishMillis();
+}
@@ -0,0 +1,465 @@
+package org.apache.maven.index.util.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Added for OSG-EYES ~ a {@link ZipHandle} that only ever reads the end of central directory record
+ * and the central directory itself. Entry names are visited straight out of the central directory
+ * buffer, through a reusable {@link CharSequence}, so listing the contents of a fat bundle with
+ * thousands of classes allocates nothing per entry. Content is only read, and inflated, for the
+ * specific entries that are asked for.
+ *
+ * <p>Large central directories are memory mapped, smaller ones are read onto the heap with a single
+ * positional read. ZIP64 archives are supported; encrypted entries and compression methods other
+ * than stored and deflated are not, and are reported as a {@link ZipException}, as is a central
+ * directory whose entries run past its end.
+ *
+ * <p>Format reference: https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT
+ */
+public class CentralDirectoryZipHandle extends AbstractZipHandle implements ZipHandle {
+
+  private static final int EOCD_SIG = 0x06054b50;
+
+  private static final int EOCD_SIZE = 22;
+
+  private static final int EOCD_MAX_COMMENT = 0xFFFF;
+
+  private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+
+  private static final int ZIP64_EOCD_SIG = 0x06064b50;
+
+  private static final int ZIP64_EOCD_SIZE = 56;
+
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+
+  private static final int CEN_SIG = 0x02014b50;
+
+  private static final int CEN_SIZE = 46;
+
+  private static final int LOC_SIG = 0x04034b50;
+
+  private static final int LOC_SIZE = 30;
+
+  private static final int METHOD_STORED = 0;
+
+  private static final int METHOD_DEFLATED = 8;
+
+  private static final int FLAG_ENCRYPTED = 0x1;
+
+  private static final long MAX_U16 = 0xFFFFL;
+
+  private static final long MAX_U32 = 0xFFFFFFFFL;
+
+  private static final long MAP_THRESHOLD = 1024L * 1024L;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer centralDirectory;
+
+  private final long entryCount;
+
+  public CentralDirectoryZipHandle(File targetFile) throws IOException {
+    super(targetFile);
+    this.channel = FileChannel.open(targetFile.toPath(), StandardOpenOption.READ);
+    try {
+      final long fileSize = channel.size();
+      final ByteBuffer eocd = findEndOfCentralDirectory(fileSize);
+      final int eocdPosition = eocd.position();
+
+      long count = u16(eocd, eocdPosition + 10);
+      long size = u32(eocd, eocdPosition + 12);
+      long offset = u32(eocd, eocdPosition + 16);
+
+      if (count == MAX_U16 || size == MAX_U32 || offset == MAX_U32) {
+        final ByteBuffer zip64 = readZip64EndOfCentralDirectory(eocd, eocdPosition);
+        count = zip64.getLong(32);
+        size = zip64.getLong(40);
+        offset = zip64.getLong(48);
+      }
+
+      if (offset < 0 || size < 0 || offset + size > fileSize || size > Integer.MAX_VALUE) {
+        throw new ZipException("Central directory is out of bounds: " + targetFile);
+      }
+
+      this.entryCount = count;
+      this.centralDirectory = load(offset, (int) size);
+      // Walk the entries once up front so a corrupt directory fails here, where ZipFacade can
+      // still fall back to java.util.zip, rather than halfway through a scan
+      checkEntries();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Visits the name of every entry, in central directory order. The {@link CharSequence} handed to
+   * the visitor is reused and is only valid for the duration of the call; copy it (for example with
+   * {@code toString()}) to keep it.
+   *
+   * @param visitor receives each entry name.
+   * @throws ZipException if the central directory is malformed.
+   */
+  public void forEachEntryName(Consumer<CharSequence> visitor) throws ZipException {
+    final EntryName name = new EntryName(centralDirectory);
+    int pos = 0;
+    for (long i = 0; i < entryCount; i++) {
+      checkEntry(pos);
+      final int nameLength = u16(centralDirectory, pos + 28);
+      final int namePos = pos + CEN_SIZE;
+      if (name.reset(namePos, nameLength)) {
+        visitor.accept(name);
+      } else {
+        visitor.accept(decode(namePos, nameLength));
+      }
+      pos = next(pos);
+    }
+  }
+
+  @Override
+  public boolean hasEntry(String path) throws IOException {
+    return find(path) >= 0;
+  }
+
+  @Override
+  public List<String> getEntries() {
+    return getEntries(name -> true);
+  }
+
+  @Override
+  public List<String> getEntries(EntryNameFilter filter) {
+    final List<String> entries = new ArrayList<>((int) Math.min(entryCount, Integer.MAX_VALUE));
+    try {
+      forEachEntryName(
+          name -> {
+            final String entry = name.toString();
+            if (filter.accepts(entry)) {
+              entries.add(entry);
+            }
+          });
+    } catch (ZipException e) {
+      throw new IllegalStateException(e);
+    }
+    return entries;
+  }
+
+  @Override
+  public InputStream getEntryContent(String path) throws IOException {
+    final int pos = find(path);
+    if (pos < 0) {
+      return null;
+    }
+
+    final int flags = u16(centralDirectory, pos + 8);
+    final int method = u16(centralDirectory, pos + 10);
+    if ((flags & FLAG_ENCRYPTED) != 0) {
+      throw new ZipException("Encrypted entries are not supported: " + path);
+    }
+
+    long compressedSize = u32(centralDirectory, pos + 20);
+    long size = u32(centralDirectory, pos + 24);
+    long localHeaderOffset = u32(centralDirectory, pos + 42);
+    if (compressedSize == MAX_U32 || size == MAX_U32 || localHeaderOffset == MAX_U32) {
+      final long[] zip64 = readZip64Extra(pos, size, compressedSize, localHeaderOffset);
+      size = zip64[0];
+      compressedSize = zip64[1];
+      localHeaderOffset = zip64[2];
+    }
+    if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE) {
+      throw new ZipException("Entry is too large to be read into memory: " + path);
+    }
+
+    final ByteBuffer localHeader = read(localHeaderOffset, LOC_SIZE);
+    if (localHeader.getInt(0) != LOC_SIG) {
+      throw new ZipException("Invalid local file header for entry: " + path);
+    }
+    final long dataOffset =
+        localHeaderOffset + LOC_SIZE + u16(localHeader, 26) + u16(localHeader, 28);
+    final byte[] data = read(dataOffset, (int) compressedSize).array();
+
+    switch (method) {
+      case METHOD_STORED:
+        return new ByteArrayInputStream(data);
+      case METHOD_DEFLATED:
+        return new ByteArrayInputStream(inflate(path, data, (int) size));
+      default:
+        throw new ZipException("Unsupported compression method " + method + " for: " + path);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private ByteBuffer findEndOfCentralDirectory(long fileSize) throws IOException {
+    if (fileSize < EOCD_SIZE) {
+      throw new ZipException("File is too small to be a zip: " + getTargetFile());
+    }
+    // Almost every jar has no archive comment, so try the smallest possible read first
+    final int shortTailSize = (int) Math.min(fileSize, EOCD_SIZE + ZIP64_LOCATOR_SIZE);
+    final ByteBuffer shortTail = read(fileSize - shortTailSize, shortTailSize);
+    final int shortPos = shortTailSize - EOCD_SIZE;
+    if (shortTail.getInt(shortPos) == EOCD_SIG && u16(shortTail, shortPos + 20) == 0) {
+      shortTail.position(shortPos);
+      return shortTail;
+    }
+
+    final int tailSize =
+        (int) Math.min(fileSize, EOCD_SIZE + ZIP64_LOCATOR_SIZE + EOCD_MAX_COMMENT);
+    final ByteBuffer tail = read(fileSize - tailSize, tailSize);
+    for (int pos = tailSize - EOCD_SIZE; pos >= 0; pos--) {
+      if (tail.getInt(pos) == EOCD_SIG && pos + EOCD_SIZE + u16(tail, pos + 20) <= tailSize) {
+        tail.position(pos);
+        return tail;
+      }
+    }
+    throw new ZipException("No end of central directory record found: " + getTargetFile());
+  }
+
+  private ByteBuffer readZip64EndOfCentralDirectory(ByteBuffer tail, int eocdPosition)
+      throws IOException {
+    final int locatorPosition = eocdPosition - ZIP64_LOCATOR_SIZE;
+    if (locatorPosition < 0 || tail.getInt(locatorPosition) != ZIP64_LOCATOR_SIG) {
+      throw new ZipException("Missing ZIP64 end of central directory locator: " + getTargetFile());
+    }
+    final ByteBuffer zip64 = read(tail.getLong(locatorPosition + 8), ZIP64_EOCD_SIZE);
+    if (zip64.getInt(0) != ZIP64_EOCD_SIG) {
+      throw new ZipException("Invalid ZIP64 end of central directory record: " + getTargetFile());
+    }
+    return zip64;
+  }
+
+  /**
+   * Resolves the sizes and offset of an entry from its ZIP64 extended information extra field. Only
+   * the values that overflowed in the central directory are present, in a fixed order.
+   */
+  private long[] readZip64Extra(int pos, long size, long compressedSize, long localHeaderOffset)
+      throws ZipException {
+    final int nameLength = u16(centralDirectory, pos + 28);
+    final int extraLength = u16(centralDirectory, pos + 30);
+    final int extraEnd = pos + CEN_SIZE + nameLength + extraLength;
+    int extra = pos + CEN_SIZE + nameLength;
+    while (extra + 4 <= extraEnd) {
+      final int id = u16(centralDirectory, extra);
+      final int length = u16(centralDirectory, extra + 2);
+      if (extra + 4 + length > extraEnd) {
+        break;
+      }
+      if (id == ZIP64_EXTRA_ID) {
+        final int values =
+            (size == MAX_U32 ? 8 : 0)
+                + (compressedSize == MAX_U32 ? 8 : 0)
+                + (localHeaderOffset == MAX_U32 ? 8 : 0);
+        if (values > length) {
+          break;
+        }
+        int value = extra + 4;
+        if (size == MAX_U32) {
+          size = centralDirectory.getLong(value);
+          value += 8;
+        }
+        if (compressedSize == MAX_U32) {
+          compressedSize = centralDirectory.getLong(value);
+          value += 8;
+        }
+        if (localHeaderOffset == MAX_U32) {
+          localHeaderOffset = centralDirectory.getLong(value);
+        }
+        return new long[] {size, compressedSize, localHeaderOffset};
+      }
+      extra += 4 + length;
+    }
+    throw new ZipException("Missing ZIP64 extra field for entry in: " + getTargetFile());
+  }
+
+  private int find(String path) throws ZipException {
+    final byte[] target = path.getBytes(StandardCharsets.UTF_8);
+    int pos = 0;
+    for (long i = 0; i < entryCount; i++) {
+      checkEntry(pos);
+      if (u16(centralDirectory, pos + 28) == target.length && matches(pos + CEN_SIZE, target)) {
+        return pos;
+      }
+      pos = next(pos);
+    }
+    return -1;
+  }
+
+  private boolean matches(int namePos, byte[] target) {
+    for (int i = 0; i < target.length; i++) {
+      if (centralDirectory.get(namePos + i) != target[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkEntries() throws ZipException {
+    int pos = 0;
+    for (long i = 0; i < entryCount; i++) {
+      checkEntry(pos);
+      pos = next(pos);
+    }
+  }
+
+  /**
+   * Checks that the entry at the given position has a valid signature and that its name, extra
+   * field and comment all end within the central directory, so none of them are read past its end.
+   */
+  private void checkEntry(int pos) throws ZipException {
+    final int limit = centralDirectory.limit();
+    if (pos > limit - CEN_SIZE || centralDirectory.getInt(pos) != CEN_SIG) {
+      throw new ZipException("Invalid central directory entry in: " + getTargetFile());
+    }
+    final long end =
+        (long) pos
+            + CEN_SIZE
+            + u16(centralDirectory, pos + 28)
+            + u16(centralDirectory, pos + 30)
+            + u16(centralDirectory, pos + 32);
+    if (end > limit) {
+      throw new ZipException("Central directory entry is out of bounds in: " + getTargetFile());
+    }
+  }
+
+  private int next(int pos) {
+    return pos
+        + CEN_SIZE
+        + u16(centralDirectory, pos + 28)
+        + u16(centralDirectory, pos + 30)
+        + u16(centralDirectory, pos + 32);
+  }
+
+  private String decode(int namePos, int nameLength) {
+    final byte[] bytes = new byte[nameLength];
+    for (int i = 0; i < nameLength; i++) {
+      bytes[i] = centralDirectory.get(namePos + i);
+    }
+    // Mirrors java.util.zip.ZipFile, which decodes names as UTF-8 unless told otherwise
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private byte[] inflate(String path, byte[] data, int size) throws ZipException {
+    final Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(data);
+      final byte[] result = new byte[size];
+      int total = 0;
+      while (total < size && !inflater.finished()) {
+        final int count = inflater.inflate(result, total, size - total);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        total += count;
+      }
+      if (total != size) {
+        throw new ZipException("Truncated entry, expected " + size + " bytes: " + path);
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new ZipException("Corrupt deflated entry " + path + ": " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private ByteBuffer load(long offset, int size) throws IOException {
+    if (size >= MAP_THRESHOLD) {
+      return channel
+          .map(FileChannel.MapMode.READ_ONLY, offset, size)
+          .order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return read(offset, size);
+  }
+
+  private ByteBuffer read(long offset, int size) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new ZipException("Unexpected end of file: " + getTargetFile());
+      }
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private static int u16(ByteBuffer buffer, int index) {
+    return buffer.getShort(index) & 0xFFFF;
+  }
+
+  private static long u32(ByteBuffer buffer, int index) {
+    return buffer.getInt(index) & MAX_U32;
+  }
+
+  /**
+   * Flyweight view of an ASCII entry name sitting in the central directory buffer. Names that
+   * contain anything outside of ASCII are decoded into a {@link String} instead.
+   */
+  private static class EntryName implements CharSequence {
+
+    private final ByteBuffer buffer;
+
+    private int offset;
+
+    private int length;
+
+    private EntryName(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private boolean reset(int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        if (buffer.get(offset + i) < 0) {
+          return false;
+        }
+      }
+      this.offset = offset;
+      this.length = length;
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index " + index + " for length " + length);
+      }
+      return (char) buffer.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      final char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) buffer.get(offset + i);
+      }
+      return new String(chars);
+    }
+  }
+}
@@ -6,8 +6,10 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,10 +37,18 @@ public class ZipFacade {
       Long.getLong(
           "org.apache.maven.index.util.zip.ZipFacade.javaZipFileSizeThreshold", 100L * MEGABYTE);
 
+  // Added for OSG-EYES ~ read zips from their central directory only, unless disabled
+  public static final boolean CENTRAL_DIRECTORY_READER_ENABLED =
+      !Boolean.getBoolean(
+          "org.apache.maven.index.util.zip.ZipFacade.disableCentralDirectoryReader");
+
   // Added for OSG-EYES ~ configure extensions that cannot be unzipped
   private static final Set<String> EXTS_TO_SKIP =
       Stream.of("xml", "cfg", "yml", "tar.gz").collect(Collectors.toSet());
 
+  // Added for OSG-EYES ~ count the files that were not unzipped, for scan metrics
+  private static final LongAdder EMPTY_HANDLES = new LongAdder();
+
   private static final boolean TRUEZIP_AVAILABLE;
 
   static {
@@ -61,9 +71,19 @@ public class ZipFacade {
     // Added for OSG-EYES ~ validate extensions that cannot be unzipped
     if (EXTS_TO_SKIP.stream().anyMatch(ext -> targetFile.getName().endsWith(ext))) {
       LOGGER.debug("Skipping pom extraction for non-zip file: " + targetFile.getAbsolutePath());
+      EMPTY_HANDLES.increment();
       return new EmptyZipHandle(targetFile);
     }
 
+    // Added for OSG-EYES ~ prefer the lightweight reader, fall back for anything it can't handle
+    if (CENTRAL_DIRECTORY_READER_ENABLED) {
+      try {
+        return new CentralDirectoryZipHandle(targetFile);
+      } catch (ZipException e) {
+        LOGGER.debug("Falling back to the full zip reader for " + targetFile.getAbsolutePath(), e);
+      }
+    }
+
     if (TRUEZIP_AVAILABLE && targetFile.length() > JAVA_ZIPFILE_SIZE_THRESHOLD) {
       return new TrueZipZipFileHandle(targetFile);
     }
@@ -71,6 +91,11 @@ public class ZipFacade {
     return new JavaZipFileHandle(targetFile);
   }
 
+  /** @return the number of empty handles given out for files that are not zips, ever. */
+  public static long getEmptyHandleCount() {
+    return EMPTY_HANDLES.sum();
+  }
+
   public static void close(ZipHandle handle) throws IOException {
     if (handle != null) {
       handle.close();
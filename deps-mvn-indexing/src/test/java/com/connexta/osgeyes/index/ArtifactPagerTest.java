@@ -0,0 +1,103 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ArtifactPagerTest {
+
+  private static final int ARTIFACT_COUNT = 10;
+
+  private TestIndex index;
+
+  private List<String> expected;
+
+  @Before
+  public void setUp() throws IOException {
+    final List<Document> documents = new ArrayList<>();
+    expected = new ArrayList<>();
+    for (int i = 0; i < ARTIFACT_COUNT; i++) {
+      // Documents that aren't artifacts match too, a whole page of them right after the first
+      if (i == 3) {
+        for (int j = 0; j < 3; j++) {
+          documents.add(descriptor());
+        }
+      }
+      documents.add(TestIndex.artifact("ddf|artifact-" + i + "|1.0|NA", "bundle"));
+      expected.add("artifact-" + i);
+    }
+    index =
+        new TestIndex(Collections.singletonList(new MinimalArtifactInfoIndexCreator()), documents);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    index.close();
+  }
+
+  @Test
+  public void testPagesHaveNoDuplicatesOrGaps() throws IOException {
+    final ArtifactPager pager = pager(3);
+    final List<String> found = new ArrayList<>();
+    for (List<ArtifactInfo> page = pager.nextPage(); !page.isEmpty(); page = pager.nextPage()) {
+      assertTrue("Pages should never be larger than the page size", page.size() <= 3);
+      page.forEach(info -> found.add(info.getArtifactId()));
+    }
+    assertEquals(expected, found);
+    assertTrue("Should stay empty once exhausted", pager.nextPage().isEmpty());
+  }
+
+  @Test
+  public void testPageEndingOnTheLastHit() throws IOException {
+    final ArtifactPager pager = pager(ARTIFACT_COUNT + 3);
+    assertEquals(expected, artifactIds(pager.nextPage()));
+    assertTrue(pager.nextPage().isEmpty());
+  }
+
+  @Test
+  public void testSinglePage() throws IOException {
+    final ArtifactPager pager = pager(100);
+    assertEquals(expected, artifactIds(pager.nextPage()));
+    assertTrue(pager.nextPage().isEmpty());
+  }
+
+  @Test
+  public void testStream() {
+    assertEquals(
+        expected, pager(4).stream().map(ArtifactInfo::getArtifactId).collect(Collectors.toList()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPageSizeMustBePositive() {
+    pager(0);
+  }
+
+  private ArtifactPager pager(int pageSize) {
+    return new ArtifactPager(
+        index.getContext(), new MatchAllDocsQuery(), pageSize, FieldProjection.all());
+  }
+
+  private static List<String> artifactIds(List<ArtifactInfo> page) {
+    return page.stream().map(ArtifactInfo::getArtifactId).collect(Collectors.toList());
+  }
+
+  private static Document descriptor() {
+    final Document document = new Document();
+    document.add(new StringField("DESCRIPTOR", "NexusIndex", Store.YES));
+    return document;
+  }
+}
@@ -0,0 +1,110 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.MAVEN;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FieldProjectionTest {
+
+  private static final String MANIFEST_KEY = MvnOntology.JAR_MANIFEST.getFieldName();
+
+  private static final String MANIFEST = "Manifest-Version: 1.0";
+
+  private List<IndexCreator> indexCreators;
+
+  private TestIndex index;
+
+  @Before
+  public void setUp() throws IOException {
+    indexCreators =
+        Arrays.asList(new MinimalArtifactInfoIndexCreator(), new JarManifestIndexCreator());
+    final Document document = TestIndex.artifact("ddf|api|1.0|NA", "bundle");
+    document.add(new StoredField(MANIFEST_KEY, MANIFEST));
+    index = new TestIndex(indexCreators, Collections.singletonList(document));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    index.close();
+  }
+
+  @Test
+  public void testStandardLeavesOutHeavyFields() {
+    final Set<String> fieldNames = FieldProjection.standard(indexCreators).getFieldNames();
+    assertNotNull(fieldNames);
+    assertTrue(fieldNames.contains(ArtifactInfo.UINFO));
+    assertTrue(fieldNames.contains(ArtifactInfo.INFO));
+    assertFalse(fieldNames.contains(MANIFEST_KEY));
+  }
+
+  @Test
+  public void testIncludingAddsEveryKeyOfTheField() {
+    final Set<String> fieldNames =
+        FieldProjection.standard(indexCreators)
+            .including(MAVEN.GROUP_ID, MAVEN.PACKAGING)
+            .getFieldNames();
+    assertNotNull(fieldNames);
+    assertTrue(fieldNames.contains(MinimalArtifactInfoIndexCreator.FLD_GROUP_ID_KW.getKey()));
+    assertTrue(fieldNames.contains(MinimalArtifactInfoIndexCreator.FLD_GROUP_ID.getKey()));
+    assertTrue(fieldNames.contains(MinimalArtifactInfoIndexCreator.FLD_PACKAGING.getKey()));
+  }
+
+  @Test
+  public void testIncludingAHeavyField() {
+    final Set<String> fieldNames =
+        FieldProjection.standard(indexCreators).including(MvnOntology.JAR_MANIFEST).getFieldNames();
+    assertNotNull(fieldNames);
+    assertTrue(fieldNames.contains(MANIFEST_KEY));
+    assertFalse(fieldNames.contains(MvnOntology.JAR_PACKAGES.getFieldName()));
+  }
+
+  @Test
+  public void testIncludingAFieldOutsideTheIndex() {
+    final FieldProjection standard =
+        FieldProjection.standard(Collections.singletonList(new MinimalArtifactInfoIndexCreator()));
+    assertEquals(
+        standard.getFieldNames(), standard.including(MvnOntology.JAR_MANIFEST).getFieldNames());
+  }
+
+  @Test
+  public void testAllIncludesEverything() {
+    assertNull(FieldProjection.all().getFieldNames());
+    assertSame(FieldProjection.all(), FieldProjection.all().including(MvnOntology.JAR_MANIFEST));
+  }
+
+  @Test
+  public void testLoadOnlyReadsProjectedFields() throws IOException {
+    final FieldProjection standard = FieldProjection.standard(indexCreators);
+
+    final ArtifactInfo light = standard.load(index.newSearcher(), 0, index.getContext());
+    assertNotNull(light);
+    assertEquals("api", light.getArtifactId());
+    assertEquals("bundle", light.getPackaging());
+    assertFalse(light.getAttributes().containsKey(MANIFEST_KEY));
+
+    final ArtifactInfo full =
+        standard
+            .including(MvnOntology.JAR_MANIFEST)
+            .load(index.newSearcher(), 0, index.getContext());
+    assertNotNull(full);
+    assertEquals(MANIFEST, full.getAttributes().get(MANIFEST_KEY));
+  }
+}
@@ -0,0 +1,111 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarDigestTest {
+
+  private static final String MANIFEST =
+      "Manifest-Version: 1.0\r\nBundle-SymbolicName: ddf.api\r\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testClassPackagesAndManifest() throws IOException {
+    final File jar =
+        jar(
+            "api-1.0.jar",
+            MANIFEST,
+            "ddf/",
+            "ddf/api/",
+            "ddf/api/Api.class",
+            "ddf/api/Api$Inner.class",
+            "ddf/impl/Impl.class",
+            "ddf/api/Late.class",
+            "ddf/api/messages.properties",
+            "Root.class",
+            "META-INF/versions/9/module-info.class");
+    final JarDigest digest = JarDigest.of(context(jar));
+    assertTrue(digest.isPresent());
+    assertEquals(
+        "Packages should be distinct, in the order first seen",
+        Arrays.asList("ddf.api", "ddf.impl", "", "META-INF.versions.9"),
+        digest.getClassPackages());
+    assertEquals(MANIFEST, digest.getManifestText());
+  }
+
+  @Test
+  public void testJarWithoutManifestOrClasses() throws IOException {
+    final JarDigest digest = JarDigest.of(context(jar("empty-1.0.jar", null, "readme.txt")));
+    assertTrue(digest.isPresent());
+    assertEquals(Collections.emptyList(), digest.getClassPackages());
+    assertNull(digest.getManifestText());
+  }
+
+  @Test
+  public void testDigestIsSharedByTheSameContext() throws IOException {
+    final File jar = jar("api-1.0.jar", MANIFEST, "ddf/api/Api.class");
+    final ArtifactContext context = context(jar);
+    assertSame(JarDigest.of(context), JarDigest.of(context));
+    assertNotSame(JarDigest.of(context), JarDigest.of(context(jar)));
+  }
+
+  @Test
+  public void testArtifactsThatAreNotJars() throws IOException {
+    final File pom = temporaryFolder.newFile("api-1.0.pom");
+    for (JarDigest digest :
+        Arrays.asList(JarDigest.of(context(pom)), JarDigest.of(context(null)))) {
+      assertFalse(digest.isPresent());
+      assertEquals(Collections.emptyList(), digest.getClassPackages());
+      assertNull(digest.getManifestText());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testJarThatIsNotAZip() throws IOException {
+    final File jar = temporaryFolder.newFile("broken-1.0.jar");
+    Files.write(jar.toPath(), new byte[1024]);
+    JarDigest.of(context(jar));
+  }
+
+  private File jar(String name, @Nullable String manifest, String... entries) throws IOException {
+    final File file = temporaryFolder.newFile(name);
+    try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      if (manifest != null) {
+        out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+        out.write(manifest.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.closeEntry();
+      }
+    }
+    return file;
+  }
+
+  private static ArtifactContext context(@Nullable File artifact) {
+    final ArtifactInfo info = new ArtifactInfo("test", "ddf", "api", "1.0", null, "jar");
+    return new ArtifactContext(null, artifact, null, info, null);
+  }
+}
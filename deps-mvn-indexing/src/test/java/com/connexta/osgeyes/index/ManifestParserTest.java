@@ -0,0 +1,131 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+
+public class ManifestParserTest {
+
+  private static final String MANIFEST =
+      "Manifest-Version: 1.0\r\n"
+          + "Import-Package: ddf.a;version=1,ddf.b;ver\r\n"
+          + " sion=2,org.plain\r\n"
+          + "\r\n"
+          + "Bundle-SymbolicName: ddf.test;singleton:=true\n"
+          + "Embedded-Artifacts: a.jar;g=\"ddf\",b.jar\n"
+          + "Created-By";
+
+  @Test
+  public void testParse() {
+    final Map<String, Object> headers = ManifestParser.parse(MANIFEST, "test");
+    assertEquals(
+        Arrays.asList(
+            "Manifest-Version",
+            "Import-Package",
+            "Bundle-SymbolicName",
+            "Embedded-Artifacts",
+            "Created-By"),
+        Arrays.asList(headers.keySet().toArray()));
+    assertEquals("1.0", headers.get("Manifest-Version"));
+    assertEquals(Arrays.asList("ddf.a", "ddf.b"), headers.get("Import-Package"));
+    assertEquals("ddf.test", headers.get("Bundle-SymbolicName"));
+    assertEquals(Arrays.asList("a.jar;g=\"ddf\"", "b.jar"), headers.get("Embedded-Artifacts"));
+    assertEquals(
+        "Lines without a separator should be their own value",
+        "Created-By",
+        headers.get("Created-By"));
+  }
+
+  @Test
+  public void testParseHeadersJoinsContinuationLines() {
+    final Map<String, String> headers = ManifestParser.parseHeaders(MANIFEST, "test");
+    assertEquals("ddf.a;version=1,ddf.b;version=2,org.plain", headers.get("Import-Package"));
+    assertEquals("ddf.test;singleton:=true", headers.get("Bundle-SymbolicName"));
+    assertEquals(5, headers.size());
+  }
+
+  @Test
+  public void testContinuationLinesAreTrimmed() {
+    assertEquals(
+        "ddf.a;version=1",
+        ManifestParser.parseHeaders("Import-Package: ddf.a;\n  version=1  \n", "test")
+            .get("Import-Package"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyManifest() {
+    ManifestParser.parse("", "test");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testManifestOfEmptyLines() {
+    ManifestParser.parse("\r\n\n", "test");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testManifestStartingWithWhitespace() {
+    ManifestParser.parse(" Manifest-Version: 1.0\n", "test");
+  }
+
+  @Test
+  public void testParseValueByHeader() {
+    assertEquals(
+        Collections.singletonList("ddf.a"),
+        ManifestParser.parseValue("Export-Service", "ddf.a;x=1"));
+    assertEquals(
+        Arrays.asList("a.xml", "b.xml"),
+        ManifestParser.parseValue("Bundle-Blueprint", "a.xml,b.xml"));
+    assertEquals("ddf", ManifestParser.parseValue("Bundle-SymbolicName", "ddf;singleton:=true"));
+    assertEquals("a,b;c=d", ManifestParser.parseValue("Bundle-Version", "a,b;c=d"));
+  }
+
+  @Test
+  public void testParseSymbolicName() {
+    assertEquals("ddf.api", ManifestParser.parseSymbolicName("ddf.api;singleton:=true"));
+    assertEquals("ddf.api", ManifestParser.parseSymbolicName("ddf.api"));
+    assertEquals("", ManifestParser.parseSymbolicName(";singleton:=true"));
+  }
+
+  @Test
+  public void testParseNamesNeedsASemicolon() {
+    assertEquals(
+        Arrays.asList("org.foo", "ddf.x.y"),
+        ManifestParser.parseNames(
+            "org.foo;version=\"[1,2)\",org.bar,ddf.x.y;resolution:=optional"));
+  }
+
+  @Test
+  public void testParseNamesInsideAttributeValues() {
+    assertEquals(
+        Arrays.asList("ddf.a", "record.xsd"),
+        ManifestParser.parseNames("ddf.a;schema=record.xsd;version=1"));
+  }
+
+  @Test
+  public void testParseNamesSegments() {
+    assertEquals(Collections.emptyList(), ManifestParser.parseNames("single;version=1"));
+    assertEquals(Collections.emptyList(), ManifestParser.parseNames("ddf.;version=1"));
+    assertEquals(Arrays.asList("ddf.v2_api"), ManifestParser.parseNames("ddf.v2_api;version=1"));
+    assertEquals(Arrays.asList("api.impl"), ManifestParser.parseNames("ddf..api.impl;version=1"));
+    assertEquals(Collections.emptyList(), ManifestParser.parseNames(""));
+  }
+
+  @Test
+  public void testParseNamesInternsNames() {
+    assertSame(
+        ManifestParser.parseNames("ddf.api;version=1").get(0),
+        ManifestParser.parseNames(new StringBuilder("ddf.api;version=2")).get(0));
+  }
+
+  @Test
+  public void testParseClauses() {
+    assertEquals(Arrays.asList("a;b=\"x,y\"", "c"), ManifestParser.parseClauses("a;b=\"x,y\",c"));
+    assertEquals(Arrays.asList("a", "b"), ManifestParser.parseClauses("a,b,,"));
+    assertEquals(Arrays.asList("", "a"), ManifestParser.parseClauses(",a"));
+    assertEquals(Collections.singletonList(""), ManifestParser.parseClauses(""));
+  }
+}
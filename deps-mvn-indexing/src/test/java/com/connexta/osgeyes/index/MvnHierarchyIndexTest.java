@@ -0,0 +1,136 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MvnHierarchyIndexTest {
+
+  private static final MvnCoordinate ROOT = MvnCoordinate.newInstance("ddf", "ddf", "2.19.5");
+
+  private static final String ROOT_PARENT = "mvn:ddf/ddf/2.19.5";
+
+  private static final String LIBS_PARENT = "mvn:ddf/libs/2.19.5";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Directory directory;
+
+  private DirectoryReader reader;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new RAMDirectory();
+    try (final IndexWriter writer =
+        new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+      // Doc ids follow the order documents are added in, within a single segment
+      writer.addDocument(artifact("ddf|ddf|2.19.5|NA", "pom|0|0|0|0|0|pom", null)); // 0
+      writer.addDocument(artifact("ddf|libs|2.19.5|NA", "pom|0|0|0|0|0|pom", ROOT_PARENT)); // 1
+      writer.addDocument(artifact("ddf|plain|2.19.5|NA", "bundle|0|0|0|0|0|jar", LIBS_PARENT)); // 2
+      writer.addDocument(artifact("ddf|util|2.19.5|NA", "jar|0|0|0|0|0|jar", LIBS_PARENT)); // 3
+      writer.addDocument(
+          artifact("ddf|plain|2.19.5|tests|jar", "bundle|0|0|0|0|0|jar", LIBS_PARENT)); // 4
+      writer.addDocument(artifact("ddf|webapp|2.19.5|NA", "war|0|0|0|0|0|war", LIBS_PARENT)); // 5
+      writer.addDocument(artifact("ddf|kit|2.19.5|NA", "bundle|0|0|0|0|0|zip", ROOT_PARENT)); // 6
+      writer.addDocument(artifact("other|other|1.0|NA", "pom|0|0|0|0|0|pom", null)); // 7
+    }
+    reader = DirectoryReader.open(directory);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    reader.close();
+    directory.close();
+  }
+
+  @Test
+  public void testGatherIncludesUnclassifiedBundlesAndJars() throws IOException {
+    final MvnHierarchyIndex index = MvnHierarchyIndex.build(reader, "v1");
+    assertArrayEquals(
+        "Children of each level should follow document order, without non-jar files",
+        new int[] {1, 2, 3, 4},
+        index.gather(ROOT));
+  }
+
+  @Test
+  public void testGatherOfUnknownOrChildlessRoot() throws IOException {
+    final MvnHierarchyIndex index = MvnHierarchyIndex.build(reader, "v1");
+    assertEquals(0, index.gather(MvnCoordinate.newInstance("other", "other", "1.0")).length);
+    assertEquals(0, index.gather(MvnCoordinate.newInstance("none", "none", "1.0")).length);
+  }
+
+  @Test
+  public void testIsSinglePom() throws IOException {
+    final MvnHierarchyIndex index = MvnHierarchyIndex.build(reader, "v1");
+    assertTrue(index.isSinglePom(ROOT));
+    assertFalse(index.isSinglePom(MvnCoordinate.newInstance("ddf", "plain", "2.19.5")));
+    assertFalse(index.isSinglePom(MvnCoordinate.newInstance("none", "none", "1.0")));
+  }
+
+  @Test
+  public void testWriteAndReadBack() throws IOException {
+    final Path repo = temporaryFolder.getRoot().toPath();
+    MvnHierarchyIndex.build(reader, "v1").write(repo);
+
+    final MvnHierarchyIndex index = MvnHierarchyIndex.read(repo, "v1");
+    assertNotNull(index);
+    assertEquals("v1", index.getVersion());
+    assertArrayEquals(new int[] {1, 2, 3, 4}, index.gather(ROOT));
+  }
+
+  @Test
+  public void testReadOfOtherVersionOrMissingFile() throws IOException {
+    final Path repo = temporaryFolder.getRoot().toPath();
+    assertNull(MvnHierarchyIndex.read(repo, "v1"));
+
+    MvnHierarchyIndex.build(reader, "v1").write(repo);
+    assertNull(MvnHierarchyIndex.read(repo, "v2"));
+  }
+
+  @Test
+  public void testVersionOfChangesWithTheIndex() throws IOException {
+    final String before = MvnHierarchyIndex.versionOf(reader);
+    assertEquals(before, MvnHierarchyIndex.versionOf(reader));
+
+    try (final IndexWriter writer =
+        new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+      writer.addDocument(artifact("ddf|late|2.19.5|NA", "pom|0|0|0|0|0|pom", ROOT_PARENT));
+    }
+    try (final DirectoryReader changed = DirectoryReader.openIfChanged(reader)) {
+      assertNotNull(changed);
+      assertFalse(before.equals(MvnHierarchyIndex.versionOf(changed)));
+    }
+  }
+
+  private static Document artifact(String uinfo, String info, @Nullable String parent) {
+    final Document document = new Document();
+    document.add(new StringField(ArtifactInfo.UINFO, uinfo, Store.YES));
+    document.add(new StringField(ArtifactInfo.INFO, info, Store.YES));
+    if (parent != null) {
+      document.add(new StringField(MvnOntology.POM_PARENT.getFieldName(), parent, Store.YES));
+    }
+    return document;
+  }
+}
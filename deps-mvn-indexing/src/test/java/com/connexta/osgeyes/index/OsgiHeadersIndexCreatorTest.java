@@ -0,0 +1,128 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.apache.lucene.document.Document;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IndexerField;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OsgiHeadersIndexCreatorTest {
+
+  private static final String SYMBOLIC_NAME = MvnOntology.BUNDLE_SYMBOLIC_NAME.getFieldName();
+
+  private static final String IMPORT_PACKAGE = MvnOntology.BUNDLE_IMPORT_PACKAGE.getFieldName();
+
+  private static final String EXPORT_PACKAGE = MvnOntology.BUNDLE_EXPORT_PACKAGE.getFieldName();
+
+  private static final String IMPORT_SERVICE = MvnOntology.BUNDLE_IMPORT_SERVICE.getFieldName();
+
+  private static final String EXPORT_SERVICE = MvnOntology.BUNDLE_EXPORT_SERVICE.getFieldName();
+
+  private static final String MANIFEST =
+      "Manifest-Version: 1.0\r\n"
+          + "Bundle-SymbolicName: ddf.api;singleton:=true\r\n"
+          + "Import-Package: ddf.b;version=\"[1,2)\",ddf.c;resolution:=option\r\n"
+          + " al\r\n"
+          + "Export-Package: ddf.api;version=1.0\r\n"
+          + "Import-Service: unqualified\r\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final OsgiHeadersIndexCreator creator = new OsgiHeadersIndexCreator();
+
+  @Test
+  public void testFields() {
+    assertEquals(
+        Arrays.asList(
+            SYMBOLIC_NAME, IMPORT_PACKAGE, EXPORT_PACKAGE, IMPORT_SERVICE, EXPORT_SERVICE),
+        creator.getIndexerFields().stream().map(IndexerField::getKey).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList("min"), creator.getCreatorDependencies());
+  }
+
+  @Test
+  public void testPopulateArtifactInfo() throws IOException {
+    final Map<String, String> attributes = populate(MANIFEST).getAttributes();
+    assertEquals("ddf.api", attributes.get(SYMBOLIC_NAME));
+    assertEquals("ddf.b,ddf.c", attributes.get(IMPORT_PACKAGE));
+    assertEquals("ddf.api", attributes.get(EXPORT_PACKAGE));
+    assertFalse("Headers without any names are left out", attributes.containsKey(IMPORT_SERVICE));
+    assertFalse(attributes.containsKey(EXPORT_SERVICE));
+  }
+
+  @Test
+  public void testEachNameIsItsOwnValue() throws IOException {
+    final Document document = new Document();
+    creator.updateDocument(populate(MANIFEST), document);
+    assertArrayEquals(new String[] {"ddf.api"}, document.getValues(SYMBOLIC_NAME));
+    assertArrayEquals(new String[] {"ddf.b", "ddf.c"}, document.getValues(IMPORT_PACKAGE));
+    assertArrayEquals(new String[] {"ddf.api"}, document.getValues(EXPORT_PACKAGE));
+    assertArrayEquals(new String[0], document.getValues(IMPORT_SERVICE));
+  }
+
+  @Test
+  public void testReadBackFromTheDocument() throws IOException {
+    final ArtifactInfo populated = populate(MANIFEST);
+    final Document document = new Document();
+    creator.updateDocument(populated, document);
+
+    final ArtifactInfo read = new ArtifactInfo();
+    assertTrue(creator.updateArtifactInfo(document, read));
+    assertEquals(populated.getAttributes(), read.getAttributes());
+  }
+
+  @Test
+  public void testJarWithoutManifest() throws IOException {
+    final ArtifactInfo info = populate(null);
+    assertEquals(Collections.emptyMap(), info.getAttributes());
+
+    final Document document = new Document();
+    creator.updateDocument(info, document);
+    assertTrue(document.getFields().isEmpty());
+    assertFalse(creator.updateArtifactInfo(document, new ArtifactInfo()));
+  }
+
+  @Test
+  public void testMalformedManifestIsSkipped() throws IOException {
+    assertEquals(
+        Collections.emptyMap(), populate(" Bundle-SymbolicName: ddf.api\r\n").getAttributes());
+  }
+
+  @Test
+  public void testManifestWithoutOsgiHeaders() throws IOException {
+    assertEquals(Collections.emptyMap(), populate("Manifest-Version: 1.0\r\n").getAttributes());
+  }
+
+  private ArtifactInfo populate(@Nullable String manifest) throws IOException {
+    final File jar = File.createTempFile("api-", ".jar", temporaryFolder.getRoot());
+    try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      if (manifest != null) {
+        out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+        out.write(manifest.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+      out.putNextEntry(new ZipEntry("ddf/api/Api.class"));
+      out.closeEntry();
+    }
+    final ArtifactInfo info = new ArtifactInfo("test", "ddf", "api", "1.0", null, "jar");
+    creator.populateArtifactInfo(new ArtifactContext(null, jar, null, info, null));
+    return info;
+  }
+}
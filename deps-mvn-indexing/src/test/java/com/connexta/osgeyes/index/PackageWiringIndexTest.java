@@ -0,0 +1,130 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.Field;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageWiringIndexTest {
+
+  private static final String CONSUMER = "ddf|consumer|1.0|NA";
+
+  private static final String API = "ddf|api|1.0|NA";
+
+  private static final String API_COPY = "ddf|api-copy|1.0|NA";
+
+  private static final String SERVICES = "ddf|services|1.0|NA";
+
+  private static final String PLAIN_JAR = "ddf|plain|1.0|NA";
+
+  private Directory directory;
+
+  private DirectoryReader reader;
+
+  private PackageWiringIndex wiring;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new RAMDirectory();
+    try (final IndexWriter writer =
+        new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+      final Document consumer = artifact(CONSUMER);
+      add(consumer, MvnOntology.BUNDLE_IMPORT_PACKAGE, "ddf.api", "ddf.missing", "ddf.own");
+      add(consumer, MvnOntology.BUNDLE_EXPORT_PACKAGE, "ddf.own");
+      add(consumer, MvnOntology.BUNDLE_IMPORT_SERVICE, "ddf.api.Service");
+      writer.addDocument(consumer);
+
+      final Document api = artifact(API);
+      add(api, MvnOntology.BUNDLE_EXPORT_PACKAGE, "ddf.api");
+      writer.addDocument(api);
+
+      final Document apiCopy = artifact(API_COPY);
+      add(apiCopy, MvnOntology.BUNDLE_EXPORT_PACKAGE, "ddf.api");
+      writer.addDocument(apiCopy);
+
+      final Document services = artifact(SERVICES);
+      add(services, MvnOntology.BUNDLE_EXPORT_SERVICE, "ddf.api.Service");
+      writer.addDocument(services);
+
+      writer.addDocument(artifact(PLAIN_JAR));
+    }
+    reader = DirectoryReader.open(directory);
+    wiring = PackageWiringIndex.build(reader, "v1");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    reader.close();
+    directory.close();
+  }
+
+  @Test
+  public void testImportsAreWiredToEveryExporter() {
+    assertEquals(
+        Arrays.asList(
+            "PACKAGE ddf|consumer|1.0|NA -> ddf|api|1.0|NA ddf.api",
+            "PACKAGE ddf|consumer|1.0|NA -> ddf|api-copy|1.0|NA ddf.api",
+            "PACKAGE ddf|consumer|1.0|NA -> ddf|consumer|1.0|NA ddf.own",
+            "SERVICE ddf|consumer|1.0|NA -> ddf|services|1.0|NA ddf.api.Service"),
+        describe(wiring.wire(Arrays.asList(CONSUMER, API, API_COPY, SERVICES))));
+  }
+
+  @Test
+  public void testOnlyRequestedArtifactsAreWired() {
+    assertEquals(
+        Arrays.asList(
+            "PACKAGE ddf|consumer|1.0|NA -> ddf|api|1.0|NA ddf.api",
+            "PACKAGE ddf|consumer|1.0|NA -> ddf|consumer|1.0|NA ddf.own"),
+        describe(wiring.wire(Arrays.asList(API, CONSUMER, "ddf|unknown|1.0|NA"))));
+  }
+
+  @Test
+  public void testDuplicatesAndArtifactsWithoutHeaders() {
+    assertEquals(
+        wiring.wire(Arrays.asList(CONSUMER, API)).size(),
+        wiring.wire(Arrays.asList(CONSUMER, API, CONSUMER, API, PLAIN_JAR)).size());
+    assertTrue(wiring.wire(Collections.singletonList(PLAIN_JAR)).isEmpty());
+    assertTrue(wiring.wire(Collections.emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testVersion() {
+    assertEquals("v1", wiring.getVersion());
+  }
+
+  private static List<String> describe(List<PackageWiringIndex.Wire> wires) {
+    return wires.stream()
+        .map(w -> w.getKind() + " " + w.getFrom() + " -> " + w.getTo() + " " + w.getCause())
+        .collect(Collectors.toList());
+  }
+
+  private static Document artifact(String uinfo) {
+    final Document document = new Document();
+    document.add(new StringField(ArtifactInfo.UINFO, uinfo, Store.YES));
+    return document;
+  }
+
+  private static void add(Document document, Field field, String... values) {
+    for (String value : values) {
+      document.add(new StringField(field.getFieldName(), value, Store.YES));
+    }
+  }
+}
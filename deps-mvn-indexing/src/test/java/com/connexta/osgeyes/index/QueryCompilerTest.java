@@ -0,0 +1,128 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.maven.index.Field;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.expr.SearchExpression;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryCompilerTest {
+
+  private static final String NAMESPACE = "urn:test#";
+
+  // Without indexer fields of their own, these are compiled by the indexer
+  private static final Field NAME = new Field(null, NAMESPACE, "name", "name");
+
+  private static final Field GROUP_ID = new Field(null, NAMESPACE, "groupId", "group id");
+
+  private static final Field ID_OF_GROUP = new Field(null, NAMESPACE + "group", "Id", "group id");
+
+  private static final Field SCOPED_NAME = new Field(null, NAMESPACE, "name:scope", "scoped name");
+
+  private static final String INVALID = "invalid";
+
+  private final AtomicInteger compiled = new AtomicInteger();
+
+  private Criteria criteria;
+
+  @Before
+  public void setUp() {
+    final Indexer indexer =
+        (Indexer)
+            Proxy.newProxyInstance(
+                Indexer.class.getClassLoader(),
+                new Class<?>[] {Indexer.class},
+                (proxy, method, args) -> {
+                  if (!"constructQuery".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                  }
+                  final String value = ((SearchExpression) args[1]).getStringValue();
+                  if (INVALID.equals(value)) {
+                    throw new IllegalArgumentException("Invalid value");
+                  }
+                  compiled.incrementAndGet();
+                  return new TermQuery(new Term(((Field) args[0]).getFieldName(), value));
+                });
+    criteria = new Criteria(indexer);
+  }
+
+  @Test
+  public void testIdenticalCriteriaShareOneQuery() {
+    final Query query = criteria.of(NAME, "ddf").getQuery();
+    assertSame(query, criteria.of(NAME, "ddf").getQuery());
+    assertSame(
+        criteria.of(criteria.of(NAME, "ddf"), criteria.of(GROUP_ID, "ddf")).getQuery(),
+        criteria.of(criteria.of(NAME, "ddf"), criteria.of(GROUP_ID, "ddf")).getQuery());
+    assertEquals("Each distinct criteria should be compiled once", 2, compiled.get());
+  }
+
+  @Test
+  public void testFieldBoundariesAreNotAmbiguous() {
+    assertDistinct(criteria.of(GROUP_ID, "ddf"), criteria.of(ID_OF_GROUP, "ddf"));
+    assertDistinct(criteria.of(NAME, "scope:ddf"), criteria.of(SCOPED_NAME, "ddf"));
+  }
+
+  @Test
+  public void testSeparatorsInValuesAreNotAmbiguous() {
+    final Criteria.Queryable last = criteria.of(NAME, "last");
+    assertDistinct(
+        criteria.of(criteria.of(NAME, "a"), criteria.of(NAME, "b"), last),
+        criteria.of(criteria.of(NAME, "a, MUST =" + NAMESPACE + "name:b"), last));
+  }
+
+  @Test
+  public void testOptionsArePartOfTheKey() {
+    assertDistinct(
+        criteria.of(NAME, "ddf"), criteria.of(NAME, "ddf", criteria.options().partialInput()));
+    assertDistinct(
+        criteria.of(criteria.of(NAME, "a"), criteria.of(NAME, "b")),
+        criteria.of(
+            criteria.of(NAME, "a"),
+            criteria.of(NAME, "b", criteria.options().with(Occur.MUST_NOT))));
+    assertEquals(
+        "The occurrence of the compound itself is not part of its query",
+        criteria.of(criteria.of(NAME, "a"), criteria.of(NAME, "b")).getKey(),
+        criteria
+            .of(
+                criteria.options().with(Occur.SHOULD),
+                criteria.of(NAME, "a"),
+                criteria.of(NAME, "b"))
+            .getKey());
+  }
+
+  @Test
+  public void testCompoundOfOneSharesTheQueryOfItsCriteria() {
+    assertSame(
+        criteria.of(NAME, "ddf").getQuery(), criteria.of(criteria.of(NAME, "ddf")).getQuery());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompileErrorsPropagate() {
+    criteria.of(NAME, INVALID).getQuery();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompoundKeyNeedsAnOccurrencePerClause() {
+    QueryCompiler.keyOf(
+        Collections.singletonList(Occur.MUST),
+        Arrays.asList(QueryCompiler.keyOf(NAME, "a", true), QueryCompiler.keyOf(NAME, "b", true)));
+  }
+
+  private static void assertDistinct(Criteria.Queryable first, Criteria.Queryable second) {
+    assertNotEquals(first.getKey(), second.getKey());
+    assertNotSame(first.getQuery(), second.getQuery());
+  }
+}
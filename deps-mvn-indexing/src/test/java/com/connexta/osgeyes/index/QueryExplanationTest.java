@@ -0,0 +1,164 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.TermQuery;
+import org.apache.maven.index.Field;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.apache.maven.index.expr.SearchExpression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryExplanationTest {
+
+  private static final String NAMESPACE = "urn:test#";
+
+  // Without indexer fields of their own, these are compiled by the indexer
+  private static final Field PACKAGING = new Field(null, NAMESPACE, "packaging", "packaging");
+
+  private static final Field ARTIFACT_ID = new Field(null, NAMESPACE, "artifactId", "artifact id");
+
+  private TestIndex index;
+
+  private FieldProjection projection;
+
+  private Criteria criteria;
+
+  @Before
+  public void setUp() throws IOException {
+    final List<IndexCreator> indexCreators =
+        Collections.singletonList(new MinimalArtifactInfoIndexCreator());
+    // Matched by queries like any other document, but not an artifact
+    final Document descriptor = new Document();
+    descriptor.add(new StringField("DESCRIPTOR", "NexusIndex", Store.YES));
+    descriptor.add(new StringField(PACKAGING.getFieldName(), "bundle", Store.NO));
+    index =
+        new TestIndex(
+            indexCreators,
+            Arrays.asList(
+                artifact("api", "bundle"),
+                artifact("core", "bundle"),
+                artifact("util", "jar"),
+                descriptor));
+    projection = FieldProjection.standard(indexCreators);
+
+    final Indexer indexer =
+        (Indexer)
+            Proxy.newProxyInstance(
+                Indexer.class.getClassLoader(),
+                new Class<?>[] {Indexer.class},
+                (proxy, method, args) -> {
+                  if (!"constructQuery".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                  }
+                  return new TermQuery(
+                      new Term(
+                          ((Field) args[0]).getFieldName(),
+                          ((SearchExpression) args[1]).getStringValue()));
+                });
+    criteria = new Criteria(indexer);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    index.close();
+  }
+
+  @Test
+  public void testHitsAndLoadedArtifacts() throws IOException {
+    final Criteria.Queryable bundles = criteria.of(PACKAGING, "bundle");
+    final QueryExplanation explanation = explain(bundles, 10);
+    assertEquals(bundles.toString(), explanation.getCriteria());
+    assertEquals(bundles.getQuery().toString(), explanation.getQuery());
+    assertEquals(3, explanation.getTotalHits());
+    assertEquals("The descriptor should not be loaded", 2, explanation.getLoadedCount());
+    assertEquals("Term queries have no clauses", 0, explanation.getClauses().size());
+    assertTrue(explanation.getCompileMillis() >= 0);
+    assertTrue(explanation.getSearchMillis() >= 0);
+    assertTrue(explanation.getLoadMillis() >= 0);
+  }
+
+  @Test
+  public void testLoadedHitsAreLimited() throws IOException {
+    final QueryExplanation explanation = explain(criteria.of(PACKAGING, "bundle"), 1);
+    assertEquals(3, explanation.getTotalHits());
+    assertEquals(1, explanation.getLoadedCount());
+  }
+
+  @Test
+  public void testClausesAreCountedOnTheirOwn() throws IOException {
+    final QueryExplanation explanation =
+        explain(
+            criteria.of(
+                criteria.of(PACKAGING, "bundle"),
+                criteria.of(ARTIFACT_ID, "core", criteria.options().with(Occur.MUST_NOT))),
+            10);
+    assertEquals(2, explanation.getTotalHits());
+    assertEquals(1, explanation.getLoadedCount());
+
+    final List<QueryExplanation.Clause> clauses = explanation.getClauses();
+    assertEquals(2, clauses.size());
+    assertClause(0, Occur.MUST, "packaging:bundle", 3, clauses.get(0));
+    assertClause(0, Occur.MUST_NOT, "artifactId:core", 1, clauses.get(1));
+  }
+
+  @Test
+  public void testNestedClausesFollowTheClauseTheyBelongTo() throws IOException {
+    final Criteria.Queryable nested =
+        criteria.of(
+            criteria.options().with(Occur.SHOULD),
+            criteria.of(ARTIFACT_ID, "api"),
+            criteria.of(PACKAGING, "bundle"));
+    final QueryExplanation explanation =
+        explain(
+            criteria.of(
+                criteria.of(PACKAGING, "jar", criteria.options().with(Occur.SHOULD)),
+                nested,
+                criteria.of(ARTIFACT_ID, "core", criteria.options().with(Occur.SHOULD))),
+            10);
+    assertEquals(3, explanation.getTotalHits());
+
+    final List<QueryExplanation.Clause> clauses = explanation.getClauses();
+    assertEquals(5, clauses.size());
+    assertClause(0, Occur.SHOULD, "packaging:jar", 1, clauses.get(0));
+    assertClause(0, Occur.SHOULD, nested.getQuery().toString(), 1, clauses.get(1));
+    assertClause(1, Occur.MUST, "artifactId:api", 1, clauses.get(2));
+    assertClause(1, Occur.MUST, "packaging:bundle", 3, clauses.get(3));
+    assertClause(0, Occur.SHOULD, "artifactId:core", 1, clauses.get(4));
+  }
+
+  private QueryExplanation explain(Criteria.Queryable queryable, int limit) throws IOException {
+    return QueryExplanation.explain(
+        queryable, index.newSearcher(), index.getContext(), projection, limit);
+  }
+
+  private static Document artifact(String artifactId, String packaging) {
+    final Document document = TestIndex.artifact("ddf|" + artifactId + "|1.0|NA", packaging);
+    document.add(new StringField(ARTIFACT_ID.getFieldName(), artifactId, Store.NO));
+    document.add(new StringField(PACKAGING.getFieldName(), packaging, Store.NO));
+    return document;
+  }
+
+  private static void assertClause(
+      int depth, Occur occur, String query, int hits, QueryExplanation.Clause clause) {
+    assertEquals(depth, clause.getDepth());
+    assertEquals(occur, clause.getOccur());
+    assertEquals(query, clause.getQuery());
+    assertEquals(hits, clause.getHits());
+    assertTrue(clause.getCountMillis() >= 0);
+  }
+}
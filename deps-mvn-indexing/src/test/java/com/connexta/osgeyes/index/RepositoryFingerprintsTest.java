@@ -0,0 +1,196 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryFingerprintsTest {
+
+  private static final String SCHEMA = "v1";
+
+  // Fixed so content changes that keep the size are only caught by the checksums
+  private static final FileTime MODIFIED = FileTime.fromMillis(1_500_000_000_000L);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path repo;
+
+  @Before
+  public void setUp() throws IOException {
+    repo = temporaryFolder.getRoot().toPath();
+    write("ddf/api/1.0/api-1.0.jar", "api");
+    write("ddf/api/1.0/api-1.0.pom", "<project/>");
+    write("ddf/core/1.0/core-1.0.jar", "core");
+    write("ddf/util/1.0/util-1.0.jar", "util");
+  }
+
+  @Test
+  public void testOnlyDirectoriesWithVisibleFilesAreFingerprinted() throws IOException {
+    write(".hidden/1.0/hidden-1.0.jar", "hidden");
+    write("ddf/api/1.0/.hidden.jar", "hidden");
+    RepositoryFingerprints.compute(repo).write(SCHEMA);
+
+    final List<String> lines =
+        Files.readAllLines(repo.resolve(RepositoryFingerprints.FILE_NAME), StandardCharsets.UTF_8);
+    assertEquals(
+        Arrays.asList("ddf/api/1.0", "ddf/core/1.0", "ddf/util/1.0"),
+        lines.stream().skip(1).map(line -> line.split("\t")[0]).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testUnchangedRepository() throws IOException {
+    final RepositoryFingerprints previous = RepositoryFingerprints.compute(repo);
+    write("ddf/api/1.0/api-1.0.jar.lastUpdated", "skipped");
+    write(".hidden/1.0/hidden-1.0.jar", "hidden");
+    final RepositoryFingerprints.Delta delta =
+        RepositoryFingerprints.compute(repo).update(previous);
+    assertTrue(delta.isEmpty());
+    assertTrue(delta.getStaleUinfos().isEmpty());
+    assertTrue(delta.getDirectoriesToScan(repo).isEmpty());
+  }
+
+  @Test
+  public void testAddedChangedAndRemovedDirectories() throws IOException {
+    final RepositoryFingerprints previous = RepositoryFingerprints.compute(repo);
+    final String api = record(previous, "ddf/api/1.0/api-1.0.jar", "api");
+    final String core = record(previous, "ddf/core/1.0/core-1.0.jar", "core");
+    record(previous, "ddf/util/1.0/util-1.0.jar", "util");
+
+    write("ddf/api/1.0/api-1.0.jar", "api, rebuilt");
+    delete("ddf/core/1.0/core-1.0.jar");
+    write("ddf/added/1.0/added-1.0.jar", "added");
+
+    final RepositoryFingerprints.Delta delta =
+        RepositoryFingerprints.compute(repo).update(previous);
+    assertFalse(delta.isEmpty());
+    assertEquals(1, delta.getAddedCount());
+    assertEquals(1, delta.getChangedCount());
+    assertEquals(1, delta.getRemovedCount());
+    assertEquals(new HashSet<>(Arrays.asList(api, core)), delta.getStaleUinfos());
+    assertEquals(
+        Arrays.asList(repo.resolve("ddf/added/1.0").toFile(), repo.resolve("ddf/api/1.0").toFile()),
+        delta.getDirectoriesToScan(repo));
+  }
+
+  @Test
+  public void testArtifactsOfUnchangedDirectoriesAreCarriedOver() throws IOException {
+    final RepositoryFingerprints first = RepositoryFingerprints.compute(repo);
+    final String util = record(first, "ddf/util/1.0/util-1.0.jar", "util");
+    first.write(SCHEMA);
+
+    // Nothing recorded this time around, util is carried over from the first set
+    final RepositoryFingerprints second = RepositoryFingerprints.compute(repo);
+    second.update(RepositoryFingerprints.read(repo, SCHEMA));
+    second.write(SCHEMA);
+
+    delete("ddf/util/1.0/util-1.0.jar");
+    assertEquals(
+        Collections.singleton(util),
+        RepositoryFingerprints.compute(repo)
+            .update(RepositoryFingerprints.read(repo, SCHEMA))
+            .getStaleUinfos());
+  }
+
+  @Test
+  public void testGroupsLeftWithoutArtifactsAreRemoved() throws IOException {
+    write("org/other/1.0/other-1.0.jar", "other");
+    final RepositoryFingerprints previous = RepositoryFingerprints.compute(repo);
+    record(previous, "ddf/api/1.0/api-1.0.jar", "ddf", "api");
+    record(previous, "ddf/core/1.0/core-1.0.jar", "ddf", "core");
+    record(previous, "ddf/util/1.0/util-1.0.jar", "ddf", "util");
+    record(previous, "org/other/1.0/other-1.0.jar", "org.other", "other");
+
+    // ddf keeps util, and api is found again by the rescan, but nothing is left of org.other
+    write("ddf/api/1.0/api-1.0.jar", "api, rebuilt");
+    delete("ddf/core/1.0/core-1.0.jar");
+    delete("org/other/1.0/other-1.0.jar");
+
+    final RepositoryFingerprints current = RepositoryFingerprints.compute(repo);
+    final RepositoryFingerprints.Delta delta = current.update(previous);
+    record(current, "ddf/api/1.0/api-1.0.jar", "ddf", "api");
+    assertEquals(Collections.singleton("org.other"), current.getRemovedGroupIds(delta));
+  }
+
+  @Test
+  public void testChecksumContentIsPartOfTheFingerprint() throws IOException {
+    write("ddf/api/1.0/api-1.0.jar.sha1", "aaaa");
+    final RepositoryFingerprints previous = RepositoryFingerprints.compute(repo);
+    write("ddf/api/1.0/api-1.0.jar.sha1", "bbbb");
+    assertEquals(1, RepositoryFingerprints.compute(repo).update(previous).getChangedCount());
+  }
+
+  @Test
+  public void testWriteAndReadBack() throws IOException {
+    final RepositoryFingerprints written = RepositoryFingerprints.compute(repo);
+    record(written, "ddf/api/1.0/api-1.0.jar", "api");
+    written.write(SCHEMA);
+
+    final RepositoryFingerprints read = RepositoryFingerprints.read(repo, SCHEMA);
+    assertNotNull(read);
+    assertTrue(RepositoryFingerprints.compute(repo).update(read).isEmpty());
+  }
+
+  @Test
+  public void testReadOfOtherSchemaMissingOrCorruptSidecar() throws IOException {
+    assertNull(RepositoryFingerprints.read(repo, SCHEMA));
+
+    RepositoryFingerprints.compute(repo).write(SCHEMA);
+    assertNull(RepositoryFingerprints.read(repo, "v2"));
+
+    Files.write(
+        repo.resolve(RepositoryFingerprints.FILE_NAME),
+        Arrays.asList("#osgeyes-fingerprints\t" + SCHEMA, "ddf/api/1.0"),
+        StandardCharsets.UTF_8);
+    assertNull(RepositoryFingerprints.read(repo, SCHEMA));
+
+    RepositoryFingerprints.delete(repo);
+    assertFalse(Files.exists(repo.resolve(RepositoryFingerprints.FILE_NAME)));
+  }
+
+  /** @return the uinfo recorded for the artifact. */
+  private String record(RepositoryFingerprints fingerprints, String path, String artifactId) {
+    return record(fingerprints, path, "ddf", artifactId);
+  }
+
+  /** @return the uinfo recorded for the artifact. */
+  private String record(
+      RepositoryFingerprints fingerprints, String path, String groupId, String artifactId) {
+    final File artifact = repo.resolve(path).toFile();
+    final ArtifactInfo info = new ArtifactInfo("test", groupId, artifactId, "1.0", null, "jar");
+    fingerprints
+        .recorder()
+        .artifactDiscovered(new ArtifactContext(null, artifact, null, info, null));
+    return info.getUinfo();
+  }
+
+  private void write(String path, String content) throws IOException {
+    final Path file = repo.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, MODIFIED);
+  }
+
+  private void delete(String path) throws IOException {
+    Files.delete(repo.resolve(path));
+  }
+}
@@ -0,0 +1,161 @@
+package com.connexta.osgeyes.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.apache.maven.index.util.zip.ZipFacade;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScanMetricsTest {
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final MinimalArtifactInfoIndexCreator minimal = new MinimalArtifactInfoIndexCreator();
+
+  private final JarManifestIndexCreator manifest = new JarManifestIndexCreator();
+
+  private ScanMetrics metrics;
+
+  @Before
+  public void setUp() {
+    metrics = new ScanMetrics(Arrays.asList(minimal, manifest));
+  }
+
+  @Test
+  public void testCounters() throws IOException {
+    metrics.artifactRead(context(file("api-1.0.jar", 100), file("api-1.0.pom", 20)));
+    metrics.artifactRead(context(null, file("parent-1.0.pom", 3)));
+    metrics.fileSkipped();
+
+    assertEquals(2, metrics.getArtifactCount());
+    assertEquals(123, metrics.getBytesRead());
+    assertEquals(1, metrics.getSkippedFileCount());
+  }
+
+  @Test
+  public void testTimers() {
+    metrics.indexCreatorTimed(minimal, 3 * NANOS_PER_MILLI);
+    metrics.indexCreatorTimed(minimal, 2 * NANOS_PER_MILLI);
+    metrics.indexCreatorTimed(new OsgiHeadersIndexCreator(), NANOS_PER_MILLI);
+    metrics.writerTimed(NANOS_PER_MILLI / 2);
+    metrics.writerTimed(NANOS_PER_MILLI / 2);
+    metrics.finishTimed(7 * NANOS_PER_MILLI);
+
+    final Map<String, Long> creatorMillis = new LinkedHashMap<>();
+    creatorMillis.put(minimal.getId(), 5L);
+    creatorMillis.put(manifest.getId(), 0L);
+    assertEquals(
+        "Creators of other contexts should be ignored",
+        creatorMillis,
+        metrics.getIndexCreatorMillis());
+    assertEquals("Nanos should be summed before rounding", 1, metrics.getWriterMillis());
+    assertEquals(7, metrics.getFinishMillis());
+  }
+
+  @Test
+  public void testStopFreezesTheScan() throws IOException {
+    assertTrue(metrics.isRunning());
+    assertEquals(0, metrics.getErrorCount());
+
+    ZipFacade.close(ZipFacade.getZipHandle(file("features.xml", 10)));
+    assertEquals(1, metrics.getEmptyZipCount());
+
+    metrics.stop(2);
+    assertFalse(metrics.isRunning());
+    assertEquals(2, metrics.getErrorCount());
+
+    ZipFacade.close(ZipFacade.getZipHandle(file("settings.cfg", 10)));
+    assertEquals(1, metrics.getEmptyZipCount());
+    final long elapsed = metrics.getElapsedMillis();
+    sleep(20);
+    assertEquals(elapsed, metrics.getElapsedMillis());
+  }
+
+  @Test
+  public void testArtifactsPerSecond() throws IOException {
+    metrics.artifactRead(context(null, file("parent-1.0.pom", 3)));
+    sleep(20);
+    metrics.stop(0);
+    assertEquals(1000.0 / metrics.getElapsedMillis(), metrics.getArtifactsPerSecond(), 0.000_001);
+  }
+
+  @Test
+  public void testToMap() {
+    metrics.stop(0);
+    final Map<String, Object> map = metrics.toMap();
+    assertEquals(
+        Arrays.asList(
+            "running",
+            "elapsed-ms",
+            "artifacts",
+            "artifacts-per-sec",
+            "bytes-read",
+            "skipped-files",
+            "empty-zips",
+            "errors",
+            "index-creator-ms",
+            "writer-ms",
+            "finish-ms"),
+        Arrays.asList(map.keySet().toArray()));
+    assertEquals(false, map.get("running"));
+    assertEquals(metrics.getIndexCreatorMillis(), map.get("index-creator-ms"));
+  }
+
+  @Test
+  public void testReportProgress() throws IOException, InterruptedException {
+    final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    try (final Closeable reporter = metrics.reportProgress(1, lines::add)) {
+      final String line = lines.poll(10, TimeUnit.SECONDS);
+      assertNotNull("Progress should be reported", line);
+      assertTrue(line, line.startsWith("Scanned 0 artifacts in "));
+    }
+  }
+
+  @Test
+  public void testReportProgressDisabled() throws IOException {
+    final Closeable reporter =
+        metrics.reportProgress(0, line -> fail("Nothing should be reported"));
+    reporter.close();
+  }
+
+  private File file(String name, int size) throws IOException {
+    final File file = temporaryFolder.newFile(name);
+    Files.write(file.toPath(), new byte[size]);
+    return file;
+  }
+
+  private static ArtifactContext context(@Nullable File artifact, File pom) {
+    final ArtifactInfo info = new ArtifactInfo("test", "ddf", "api", "1.0", null, "jar");
+    return new ArtifactContext(pom, artifact, null, info, null);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.connexta.osgeyes.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * An index held in memory, along with an {@link IndexingContext} that only hands out searchers over
+ * it and its index creators. Documents are numbered in the order they were given.
+ */
+class TestIndex implements Closeable {
+
+  private final Directory directory;
+
+  private final DirectoryReader reader;
+
+  private final IndexingContext context;
+
+  TestIndex(List<? extends IndexCreator> indexCreators, List<Document> documents)
+      throws IOException {
+    directory = new RAMDirectory();
+    try (final IndexWriter writer =
+        new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+      for (Document document : documents) {
+        writer.addDocument(document);
+      }
+    }
+    reader = DirectoryReader.open(directory);
+    context =
+        (IndexingContext)
+            Proxy.newProxyInstance(
+                IndexingContext.class.getClassLoader(),
+                new Class<?>[] {IndexingContext.class},
+                (proxy, method, args) -> {
+                  switch (method.getName()) {
+                    case "acquireIndexSearcher":
+                      return new IndexSearcher(reader);
+                    case "releaseIndexSearcher":
+                      return null;
+                    case "getIndexCreators":
+                      return indexCreators;
+                    case "getId":
+                    case "getRepositoryId":
+                    case "toString":
+                      return "test";
+                    default:
+                      throw new UnsupportedOperationException(method.getName());
+                  }
+                });
+  }
+
+  /**
+   * @param uinfo the unique info of the artifact, {@code groupId|artifactId|version|classifier}.
+   * @param packaging the packaging of the artifact, its file being a jar.
+   * @return a document like the minimal index creator would write for the artifact.
+   */
+  static Document artifact(String uinfo, String packaging) {
+    final Document document = new Document();
+    document.add(new StringField(ArtifactInfo.UINFO, uinfo, Store.YES));
+    document.add(new StringField(ArtifactInfo.INFO, packaging + "|0|0|0|0|0|jar", Store.YES));
+    return document;
+  }
+
+  DirectoryReader getReader() {
+    return reader;
+  }
+
+  IndexingContext getContext() {
+    return context;
+  }
+
+  IndexSearcher newSearcher() {
+    return new IndexSearcher(reader);
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+    directory.close();
+  }
+}
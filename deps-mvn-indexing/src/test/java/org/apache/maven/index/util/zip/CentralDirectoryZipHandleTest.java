@@ -0,0 +1,216 @@
+package org.apache.maven.index.util.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CentralDirectoryZipHandleTest {
+
+  private static final byte[] MANIFEST =
+      "Manifest-Version: 1.0\r\nBundle-SymbolicName: ddf.test\r\n\r\n"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] STORED = "stored as is".getBytes(StandardCharsets.UTF_8);
+
+  private static final String UNICODE_NAME = "ddf/tést/Ünicode.class";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<ZipHandle> handles = new ArrayList<>();
+
+  @After
+  public void tearDown() throws IOException {
+    for (ZipHandle handle : handles) {
+      handle.close();
+    }
+  }
+
+  @Test
+  public void testEntriesInCentralDirectoryOrder() throws IOException {
+    final CentralDirectoryZipHandle handle = open(sampleJar(null));
+    assertEquals(
+        Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "ddf/test/Stored.txt", UNICODE_NAME),
+        handle.getEntries());
+    assertEquals(
+        Arrays.asList("META-INF/MANIFEST.MF"), handle.getEntries(name -> name.endsWith(".MF")));
+  }
+
+  @Test
+  public void testForEachEntryNameDecodesNonAsciiNames() throws IOException {
+    final List<String> names = new ArrayList<>();
+    open(sampleJar(null)).forEachEntryName(name -> names.add(name.toString()));
+    assertEquals(
+        Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "ddf/test/Stored.txt", UNICODE_NAME),
+        names);
+  }
+
+  @Test
+  public void testHasEntry() throws IOException {
+    final CentralDirectoryZipHandle handle = open(sampleJar(null));
+    assertTrue(handle.hasEntry("META-INF/MANIFEST.MF"));
+    assertTrue(handle.hasEntry(UNICODE_NAME));
+    assertFalse(handle.hasEntry("META-INF/MANIFEST"));
+    assertFalse(handle.hasEntry("meta-inf/manifest.mf"));
+  }
+
+  @Test
+  public void testDeflatedAndStoredContent() throws IOException {
+    final CentralDirectoryZipHandle handle = open(sampleJar(null));
+    assertArrayEquals(MANIFEST, readAll(handle.getEntryContent("META-INF/MANIFEST.MF")));
+    assertArrayEquals(STORED, readAll(handle.getEntryContent("ddf/test/Stored.txt")));
+    assertNull(handle.getEntryContent("missing"));
+  }
+
+  @Test
+  public void testArchiveComment() throws IOException {
+    final char[] comment = new char[1000];
+    Arrays.fill(comment, 'x');
+    final CentralDirectoryZipHandle handle = open(sampleJar(new String(comment)));
+    assertEquals(4, handle.getEntries().size());
+    assertArrayEquals(MANIFEST, readAll(handle.getEntryContent("META-INF/MANIFEST.MF")));
+  }
+
+  @Test
+  public void testEmptyZip() throws IOException {
+    final File file = temporaryFolder.newFile("empty.zip");
+    new ZipOutputStream(new FileOutputStream(file)).close();
+    final CentralDirectoryZipHandle handle = open(file);
+    assertTrue(handle.getEntries().isEmpty());
+    assertFalse(handle.hasEntry("META-INF/MANIFEST.MF"));
+  }
+
+  @Test
+  public void testZip64WithMappedCentralDirectory() throws IOException {
+    // More entries than the end of central directory record can count, which forces ZIP64, and a
+    // central directory large enough to be memory mapped
+    final int count = 70_000;
+    final File file = temporaryFolder.newFile("many.jar");
+    try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      for (int i = 0; i < count; i++) {
+        out.putNextEntry(new ZipEntry("e" + i));
+        out.write(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+    final CentralDirectoryZipHandle handle = open(file);
+    final List<String> entries = handle.getEntries();
+    assertEquals(count, entries.size());
+    assertEquals("e69999", entries.get(count - 1));
+    assertArrayEquals(
+        "69999".getBytes(StandardCharsets.UTF_8), readAll(handle.getEntryContent("e69999")));
+  }
+
+  @Test(expected = ZipException.class)
+  public void testNotAZip() throws IOException {
+    final File file = temporaryFolder.newFile("not.jar");
+    Files.write(file.toPath(), new byte[1024]);
+    open(file);
+  }
+
+  @Test(expected = ZipException.class)
+  public void testTooSmallToBeAZip() throws IOException {
+    final File file = temporaryFolder.newFile("small.jar");
+    Files.write(file.toPath(), new byte[] {'P', 'K'});
+    open(file);
+  }
+
+  @Test(expected = ZipException.class)
+  public void testEntryNameRunsPastCentralDirectory() throws IOException {
+    final File file = sampleJar(null);
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    // Point the name of the last entry past the end of the central directory
+    final int entry = lastCentralDirectoryEntry(bytes);
+    bytes[entry + 28] = (byte) 0xFF;
+    bytes[entry + 29] = (byte) 0xFF;
+    Files.write(file.toPath(), bytes);
+    open(file);
+  }
+
+  @Test(expected = ZipException.class)
+  public void testEntryCommentRunsPastCentralDirectory() throws IOException {
+    final File file = sampleJar(null);
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    bytes[lastCentralDirectoryEntry(bytes) + 32] = 0x40;
+    Files.write(file.toPath(), bytes);
+    open(file);
+  }
+
+  private CentralDirectoryZipHandle open(File file) throws IOException {
+    final CentralDirectoryZipHandle handle = new CentralDirectoryZipHandle(file);
+    handles.add(handle);
+    return handle;
+  }
+
+  private File sampleJar(@Nullable String comment) throws IOException {
+    final File file = temporaryFolder.newFile();
+    try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      if (comment != null) {
+        out.setComment(comment);
+      }
+      out.putNextEntry(new ZipEntry("META-INF/"));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      out.write(MANIFEST);
+      out.closeEntry();
+
+      final ZipEntry stored = new ZipEntry("ddf/test/Stored.txt");
+      final CRC32 crc = new CRC32();
+      crc.update(STORED);
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(STORED.length);
+      stored.setCompressedSize(STORED.length);
+      stored.setCrc(crc.getValue());
+      out.putNextEntry(stored);
+      out.write(STORED);
+      out.closeEntry();
+
+      out.putNextEntry(new ZipEntry(UNICODE_NAME));
+      out.write(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+      out.closeEntry();
+    }
+    return file;
+  }
+
+  private static int lastCentralDirectoryEntry(byte[] bytes) {
+    for (int pos = bytes.length - 4; pos >= 0; pos--) {
+      if (bytes[pos] == 'P'
+          && bytes[pos + 1] == 'K'
+          && bytes[pos + 2] == 1
+          && bytes[pos + 3] == 2) {
+        return pos;
+      }
+    }
+    throw new AssertionError("No central directory entry found");
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+}